@@ -49,6 +49,10 @@ android {
         viewBinding = true
         buildConfig = true
     }
+
+    testOptions {
+        unitTests.isIncludeAndroidResources = true
+    }
     
     ksp {
         arg("correctErrorTypes", "true")
@@ -59,12 +63,52 @@ android {
     }
 }
 
+// Снимок групп заданий для первого запуска: app/seed/catalog.json проверяется и сжимается
+// в assets/seed/catalog.json, из которого CatalogSeeder заполняет новую базу
+val catalogSeedDir = layout.buildDirectory.dir("generated/seed/assets")
+val generateCatalogSeed by tasks.registering {
+    val source = file("seed/catalog.json")
+    val target = catalogSeedDir.map { it.file("seed/catalog.json") }
+    inputs.file(source)
+    outputs.file(target)
+    doLast {
+        @Suppress("UNCHECKED_CAST")
+        val snapshot = groovy.json.JsonSlurper().parse(source, "UTF-8") as Map<String, Any?>
+        // Снимок содержит только группы заданий: их состав задан форматом экзамена.
+        // Теория, сочинения, варианты и шпаргалки меняются на сервере и приходят при первом обновлении
+        val requiredFields = listOf("content_id", "title", "type")
+        val rows = snapshot["contents"] as? List<*> ?: throw GradleException("catalog.json: нет массива contents")
+        rows.forEachIndexed { index, row ->
+            val item = row as? Map<*, *> ?: throw GradleException("catalog.json: contents[$index] не объект")
+            val missing = requiredFields.filter { item[it] == null }
+            if (missing.isNotEmpty()) {
+                throw GradleException("catalog.json: в contents[$index] нет полей $missing")
+            }
+            if (item["type"] != "task_group") {
+                throw GradleException("catalog.json: contents[$index] не группа заданий (${item["type"]})")
+            }
+        }
+        val unexpected = snapshot.keys - setOf("version", "contents")
+        if (unexpected.isNotEmpty()) {
+            throw GradleException("catalog.json: снимок содержит только группы заданий, лишние разделы $unexpected")
+        }
+        val output = target.get().asFile
+        output.parentFile.mkdirs()
+        output.writeText(groovy.json.JsonOutput.toJson(snapshot), Charsets.UTF_8)
+    }
+}
+android.sourceSets.getByName("main").assets.srcDir(catalogSeedDir)
+// MigrationTestHelper под Robolectric читает экспортированные схемы Room из assets тестируемой сборки
+android.sourceSets.getByName("debug").assets.srcDir("$projectDir/schemas")
+tasks.named("preBuild") { dependsOn(generateCatalogSeed) }
+
 val roomVersion = "2.6.1"
 val hiltVersion = "2.51.1"
 val moshiVersion = "1.15.1"
 val kspVersion = "1.9.20-1.0.14"
 val kotlinVersion = "1.9.20"
 val workVersion = "2.9.0"
+val pagingVersion = "3.2.1"
 val markwonVersion = "4.6.2"
 
 dependencies {
@@ -93,6 +137,9 @@ dependencies {
     implementation("androidx.room:room-runtime:$roomVersion")
     implementation("androidx.room:room-ktx:$roomVersion")
     ksp("androidx.room:room-compiler:$roomVersion")
+    implementation("androidx.sqlite:sqlite-framework:2.4.0")
+
+    implementation("androidx.paging:paging-runtime-ktx:$pagingVersion")
     
     implementation("androidx.lifecycle:lifecycle-viewmodel-ktx:2.8.2")
     implementation("androidx.lifecycle:lifecycle-livedata-ktx:2.8.2")
@@ -116,6 +163,7 @@ dependencies {
     
     implementation("com.squareup.okhttp3:okhttp:4.12.0")
     implementation("com.squareup.okhttp3:logging-interceptor:4.12.0")
+    implementation("com.squareup.okhttp3:okhttp-brotli:4.12.0")
     
     implementation("com.google.dagger:hilt-android:2.51.1")
     ksp("com.google.dagger:hilt-compiler:2.51.1")
@@ -148,6 +196,9 @@ dependencies {
     implementation("io.noties.markwon:linkify:$markwonVersion")
 
     testImplementation(libs.junit)
+    testImplementation(libs.ext.junit)
+    testImplementation("org.robolectric:robolectric:4.11.1")
+    testImplementation("androidx.room:room-testing:$roomVersion")
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 
@@ -0,0 +1,103 @@
+package com.ruege.mobile.data.local.dao;
+
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.ruege.mobile.data.local.AppDatabase;
+import com.ruege.mobile.data.local.entity.CachedContentEntity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+@RunWith(AndroidJUnit4.class)
+public class CachedContentDaoTest {
+
+    private static final int ENTRY_SIZE = 400;
+    private static final long MAX_BYTES = 1000;
+
+    private AppDatabase database;
+    private CachedContentDao dao;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        database = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+            .allowMainThreadQueries()
+            .build();
+        dao = database.cachedContentDao();
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void trimEvictsLeastRecentlyOpenedAndSparesDownloaded() {
+        SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+        db.execSQL("INSERT INTO downloaded_theory (content_id, title, html_content, downloaded_at) " +
+            "VALUES ('t_downloaded', 'Теория', '<p></p>', 1)");
+        db.execSQL("INSERT INTO contents (content_id, title, description, type, parent_id, is_downloaded, is_new, order_position, content_url) " +
+            "VALUES ('e_downloaded', 'Сочинение', NULL, 'essay', NULL, 1, 0, 0, NULL)");
+
+        // Скачанные записи самые давние, но вытесняться не должны
+        dao.insert(entry(CachedContentEntity.KIND_THEORY, "t_downloaded", 100));
+        dao.insert(entry(CachedContentEntity.KIND_ESSAY, "e_downloaded", 100));
+        dao.insert(entry(CachedContentEntity.KIND_THEORY, "t_recent", 300));
+        dao.insert(entry(CachedContentEntity.KIND_THEORY, "t_old", 200));
+
+        int evicted = dao.insertAndTrim(entry(CachedContentEntity.KIND_THEORY, "t_new", 400), MAX_BYTES);
+
+        assertEquals(1, evicted);
+        assertNull(dao.get(CachedContentEntity.KIND_THEORY, "t_old"));
+        assertNotNull(dao.get(CachedContentEntity.KIND_THEORY, "t_new"));
+        assertNotNull(dao.get(CachedContentEntity.KIND_THEORY, "t_recent"));
+        assertNotNull(dao.get(CachedContentEntity.KIND_THEORY, "t_downloaded"));
+        assertNotNull(dao.get(CachedContentEntity.KIND_ESSAY, "e_downloaded"));
+    }
+
+    @Test
+    public void theoryIdMatchingOnlyAnEssayIsStillEvictable() {
+        SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+        db.execSQL("INSERT INTO downloaded_theory (content_id, title, html_content, downloaded_at) " +
+            "VALUES ('shared', 'Теория', '<p></p>', 1)");
+
+        dao.insert(entry(CachedContentEntity.KIND_ESSAY, "shared", 100));
+        dao.insert(entry(CachedContentEntity.KIND_THEORY, "t_recent", 300));
+
+        int evicted = dao.insertAndTrim(entry(CachedContentEntity.KIND_THEORY, "t_new", 400), MAX_BYTES);
+
+        assertEquals(1, evicted);
+        assertNull(dao.get(CachedContentEntity.KIND_ESSAY, "shared"));
+    }
+
+    @Test
+    public void markRevalidatedOnlyRefreshesFetchTime() {
+        dao.insert(entry(CachedContentEntity.KIND_THEORY, "t1", 100));
+
+        dao.markRevalidated(CachedContentEntity.KIND_THEORY, "t1", 5_000);
+
+        CachedContentEntity stored = dao.get(CachedContentEntity.KIND_THEORY, "t1");
+        assertEquals(5_000, stored.getFetchedAt());
+        assertEquals(100, stored.getLastAccessedAt());
+        assertEquals("\"v1\"", stored.getEtag());
+        assertEquals("тело", stored.getBody());
+    }
+
+    private static CachedContentEntity entry(String kind, String contentId, long accessedAt) {
+        CachedContentEntity entity = new CachedContentEntity(kind, contentId, 1, 1, "заголовок", "тело",
+            "2024-01-01", "2024-01-01", "\"v1\"", accessedAt);
+        entity.setSizeBytes(ENTRY_SIZE);
+        return entity;
+    }
+}
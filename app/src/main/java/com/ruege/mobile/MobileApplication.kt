@@ -1,7 +1,6 @@
 package com.ruege.mobile
 
 import android.app.Application
-import android.content.Context
 import androidx.appcompat.app.AppCompatDelegate
 import androidx.work.Configuration
 import com.google.android.recaptcha.Recaptcha
@@ -10,6 +9,7 @@ import com.ruege.mobile.data.local.DBResetHelper
 import com.ruege.mobile.data.repository.ProgressRepository
 import com.ruege.mobile.data.repository.ProgressSyncRepository
 import com.ruege.mobile.data.local.preferences.AppPreferences
+import com.ruege.mobile.worker.PracticeAttemptRetentionWorker
 import dagger.hilt.android.HiltAndroidApp
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
@@ -21,7 +21,6 @@ import timber.log.Timber
 class MobileApplication : Application(), Configuration.Provider {
     companion object {
         private const val TAG = "MobileApplication"
-        private const val DB_VERSION = 12
         private const val FORCE_DB_RESET = false
         lateinit var recaptchaClient: RecaptchaClient
             private set
@@ -58,12 +57,11 @@ class MobileApplication : Application(), Configuration.Provider {
         progressRepository.initialize()
         Timber.d("ProgressRepository.initialize() вызван в MobileApplication")
 
-        val preferences = getSharedPreferences("app_preferences", Context.MODE_PRIVATE)
-        val currentDbVersion = preferences.getInt("db_version", 0)
-        
-        if (currentDbVersion < DB_VERSION || BuildConfig.DEBUG && FORCE_DB_RESET) {
+        PracticeAttemptRetentionWorker.schedule(this)
+
+        // Схема базы обновляется миграциями Room (DatabaseMigrations), сброс - только вручную в debug
+        if (BuildConfig.DEBUG && FORCE_DB_RESET) {
             DBResetHelper.resetDatabase(this)
-            preferences.edit().putInt("db_version", DB_VERSION).apply()
         }
         
         val appPreferences = AppPreferences(this)
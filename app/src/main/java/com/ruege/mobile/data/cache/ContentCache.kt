@@ -0,0 +1,69 @@
+package com.ruege.mobile.data.cache
+
+import android.util.LruCache
+
+/**
+ * Счетчики одного кэша для экрана диагностики
+ */
+data class ContentCacheStats(
+    val name: String,
+    val sizeBytes: Int,
+    val maxSizeBytes: Int,
+    val entries: Int,
+    val hits: Int,
+    val misses: Int,
+    val evictions: Int
+)
+
+/**
+ * LRU-кэш, ограниченный суммарным размером содержимого в байтах, а не числом записей.
+ * Создается через ContentCacheManager, который уменьшает его при нехватке памяти
+ * и очищает при выходе пользователя.
+ */
+class ContentCache<K : Any, V : Any> internal constructor(
+    val name: String,
+    maxSizeBytes: Int,
+    private val sizer: (K, V) -> Int
+) {
+
+    private val lru = object : LruCache<K, V>(maxSizeBytes) {
+        override fun sizeOf(key: K, value: V): Int = sizer(key, value).coerceAtLeast(1)
+    }
+
+    operator fun get(key: K): V? = lru.get(key)
+
+    operator fun set(key: K, value: V) {
+        lru.put(key, value)
+    }
+
+    fun remove(key: K): V? = lru.remove(key)
+
+    fun clear() {
+        lru.evictAll()
+    }
+
+    /**
+     * Вытесняет старые записи, пока кэш не уменьшится до доли fraction от лимита
+     */
+    fun trimTo(fraction: Float) {
+        lru.trimToSize((lru.maxSize() * fraction).toInt())
+    }
+
+    fun stats(): ContentCacheStats = ContentCacheStats(
+        name = name,
+        sizeBytes = lru.size(),
+        maxSizeBytes = lru.maxSize(),
+        entries = lru.snapshot().size,
+        hits = lru.hitCount(),
+        misses = lru.missCount(),
+        evictions = lru.evictionCount()
+    )
+
+    companion object {
+        /** Накладные расходы на объект и ссылки, добавляются к размеру строк */
+        const val ENTRY_OVERHEAD_BYTES = 64
+
+        /** Размер строки в куче: два байта на символ */
+        fun sizeOf(text: String?): Int = (text?.length ?: 0) * 2
+    }
+}
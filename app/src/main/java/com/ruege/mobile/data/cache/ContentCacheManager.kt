@@ -0,0 +1,90 @@
+package com.ruege.mobile.data.cache
+
+import android.app.ActivityManager
+import android.content.ComponentCallbacks2
+import android.content.Context
+import android.content.res.Configuration
+import com.ruege.mobile.data.local.dao.UserDao
+import dagger.hilt.android.qualifiers.ApplicationContext
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.launch
+import timber.log.Timber
+import java.util.concurrent.CopyOnWriteArrayList
+import javax.inject.Inject
+import javax.inject.Singleton
+
+/**
+ * Общий бюджет памяти для кэшей контента в репозиториях.
+ * Бюджет - 1/16 лимита кучи приложения, каждый кэш получает свою долю.
+ * При onTrimMemory кэши уменьшаются или очищаются, при выходе пользователя - очищаются.
+ */
+@Singleton
+class ContentCacheManager @Inject constructor(
+    @ApplicationContext context: Context,
+    userDao: UserDao,
+    externalScope: CoroutineScope
+) : ComponentCallbacks2 {
+
+    companion object {
+        private const val HEAP_FRACTION_DIVISOR = 16
+    }
+
+    private val caches = CopyOnWriteArrayList<ContentCache<*, *>>()
+
+    private val budgetBytes: Int = run {
+        val activityManager = context.getSystemService(Context.ACTIVITY_SERVICE) as ActivityManager
+        activityManager.memoryClass * 1024 * 1024 / HEAP_FRACTION_DIVISOR
+    }
+
+    init {
+        context.registerComponentCallbacks(this)
+        externalScope.launch {
+            userDao.getFirstUserFlow().collect { user ->
+                if (user == null) {
+                    clearAll()
+                }
+            }
+        }
+    }
+
+    /**
+     * Создает кэш с лимитом share от общего бюджета
+     * @param sizer размер записи в байтах
+     */
+    fun <K : Any, V : Any> create(name: String, share: Float, sizer: (K, V) -> Int): ContentCache<K, V> {
+        val cache = ContentCache(name, (budgetBytes * share).toInt().coerceAtLeast(1), sizer)
+        caches.add(cache)
+        return cache
+    }
+
+    fun clearAll() {
+        caches.forEach { it.clear() }
+    }
+
+    fun stats(): List<ContentCacheStats> = caches.map { it.stats() }
+
+    /**
+     * Начиная с API 34 система присылает только TRIM_MEMORY_UI_HIDDEN и TRIM_MEMORY_BACKGROUND,
+     * остальные уровни устарели. Более высокие уровни на старых версиях тоже означают работу
+     * в фоне и попадают в первую ветку; при нехватке памяти на переднем плане кэши очищает onLowMemory.
+     */
+    override fun onTrimMemory(level: Int) {
+        when {
+            level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND -> {
+                Timber.d("ContentCacheManager: onTrimMemory($level), кэши очищены")
+                clearAll()
+            }
+            level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN -> {
+                Timber.d("ContentCacheManager: onTrimMemory($level), кэши уменьшены вдвое")
+                caches.forEach { it.trimTo(0.5f) }
+            }
+        }
+    }
+
+    override fun onLowMemory() {
+        Timber.d("ContentCacheManager: onLowMemory, кэши очищены")
+        clearAll()
+    }
+
+    override fun onConfigurationChanged(newConfig: Configuration) = Unit
+}
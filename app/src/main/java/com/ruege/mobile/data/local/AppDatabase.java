@@ -6,12 +6,19 @@ import androidx.room.Room;
 import androidx.room.RoomDatabase;
 import androidx.annotation.NonNull;
 import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
+import com.ruege.mobile.BuildConfig;
 import com.ruege.mobile.data.local.dao.CategoryDao;
 import com.ruege.mobile.data.local.dao.ContentDao;
 import com.ruege.mobile.data.local.dao.NewsDao;
+import com.ruege.mobile.data.local.dao.PracticeAttemptCounterDao;
+import com.ruege.mobile.data.local.dao.PracticeRecordDao;
+import com.ruege.mobile.data.local.dao.VariantTaskResultDao;
+import com.ruege.mobile.data.local.dao.CachedContentDao;
 import com.ruege.mobile.data.local.dao.PracticeAttemptDao;
 import com.ruege.mobile.data.local.dao.PracticeStatisticsDao;
 import com.ruege.mobile.data.local.dao.ProgressDao;
+import com.ruege.mobile.data.local.dao.ProgressSolvedTaskDao;
 import com.ruege.mobile.data.local.dao.ProgressSyncQueueDao;
 import com.ruege.mobile.data.local.dao.TaskDao;
 import com.ruege.mobile.data.local.dao.UserDao;
@@ -28,12 +35,20 @@ import com.ruege.mobile.data.local.dao.TaskTextDao;
 import com.ruege.mobile.data.local.dao.ShpargalkaDao;
 import com.ruege.mobile.data.local.dao.UserEssayDao;
 
+import com.ruege.mobile.data.local.metrics.QueryMetrics;
+import com.ruege.mobile.data.local.metrics.TimingOpenHelperFactory;
+import com.ruege.mobile.data.local.migration.DatabaseMigrations;
 import com.ruege.mobile.data.local.entity.CategoryEntity;
 import com.ruege.mobile.data.local.entity.ContentEntity;
+import com.ruege.mobile.data.local.entity.DownloadedGroupEntity;
+import com.ruege.mobile.data.local.entity.VariantTaskResultEntity;
+import com.ruege.mobile.data.local.entity.CachedContentEntity;
 import com.ruege.mobile.data.local.entity.NewsEntity;
+import com.ruege.mobile.data.local.entity.PracticeAttemptCounterEntity;
 import com.ruege.mobile.data.local.entity.PracticeAttemptEntity;
 import com.ruege.mobile.data.local.entity.PracticeStatisticsEntity;
 import com.ruege.mobile.data.local.entity.ProgressEntity;
+import com.ruege.mobile.data.local.entity.ProgressSolvedTaskEntity;
 import com.ruege.mobile.data.local.entity.ProgressSyncQueueEntity;
 import com.ruege.mobile.data.local.entity.TaskEntity;
 import com.ruege.mobile.data.local.entity.TaskOptionEntity;
@@ -50,6 +65,11 @@ import com.ruege.mobile.data.local.entity.TaskTextEntity;
 import com.ruege.mobile.data.local.entity.ShpargalkaEntity;
 import com.ruege.mobile.data.local.entity.UserEssayEntity;
 
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+
+import timber.log.Timber;
+
 @Database(
     entities = {
         NewsEntity.class,
@@ -72,9 +92,14 @@ import com.ruege.mobile.data.local.entity.UserEssayEntity;
         DownloadedTheoryEntity.class,
         TaskTextEntity.class,
         ShpargalkaEntity.class,
-        UserEssayEntity.class
+        UserEssayEntity.class,
+        PracticeAttemptCounterEntity.class,
+        ProgressSolvedTaskEntity.class,
+        DownloadedGroupEntity.class,
+        VariantTaskResultEntity.class,
+        CachedContentEntity.class
     },
-    version = 25,
+    version = 36,
     exportSchema = true
 )
 public abstract class AppDatabase extends RoomDatabase {
@@ -83,6 +108,7 @@ public abstract class AppDatabase extends RoomDatabase {
     public abstract CategoryDao categoryDao();
     public abstract ContentDao contentDao();
     public abstract ProgressDao progressDao();
+    public abstract ProgressSolvedTaskDao progressSolvedTaskDao();
     public abstract ProgressSyncQueueDao progressSyncQueueDao();
     public abstract TaskDao taskDao();
     public abstract UserTaskAttemptDao userTaskAttemptDao();
@@ -90,6 +116,10 @@ public abstract class AppDatabase extends RoomDatabase {
     public abstract TaskOptionDao taskOptionDao();
     public abstract PracticeAttemptDao practiceAttemptDao();
     public abstract PracticeStatisticsDao practiceStatisticsDao();
+    public abstract PracticeAttemptCounterDao practiceAttemptCounterDao();
+    public abstract PracticeRecordDao practiceRecordDao();
+    public abstract VariantTaskResultDao variantTaskResultDao();
+    public abstract CachedContentDao cachedContentDao();
 
     public  abstract  SyncQueueDao syncQueueDao();
 
@@ -111,20 +141,38 @@ public abstract class AppDatabase extends RoomDatabase {
         if (INSTANCE == null) {
             synchronized (AppDatabase.class) {
                 if (INSTANCE == null) {
-                    INSTANCE = Room.databaseBuilder(
+                    Builder<AppDatabase> builder = Room.databaseBuilder(
                             context.getApplicationContext(),
                             AppDatabase.class,
                             DATABASE_NAME
                         )
-                        .fallbackToDestructiveMigration()
+                        .addMigrations(DatabaseMigrations.ALL)
+                        .fallbackToDestructiveMigrationFrom(DatabaseMigrations.DESTRUCTIVE_FROM_VERSIONS)
+                        .fallbackToDestructiveMigrationOnDowngrade()
                         .addCallback(new Callback() {
+                            @Override
+                            public void onCreate(@NonNull SupportSQLiteDatabase db) {
+                                super.onCreate(db);
+                                CatalogSeeder.seed(context, db);
+                            }
+
                             @Override
                             public void onOpen(@NonNull SupportSQLiteDatabase db) {
                                 super.onOpen(db);
                                 DBResetHelper.checkAndFixProgressTable(context);
                             }
-                        })
-                        .build();
+                        });
+                    if (BuildConfig.DEBUG) {
+                        // Замер каждого запроса (с cursor.count) - только в отладочной сборке
+                        QueryMetrics.init(context);
+                        builder.openHelperFactory(new TimingOpenHelperFactory(new FrameworkSQLiteOpenHelperFactory()));
+                        // Текст запросов с параметрами - только в отладочной сборке
+                        builder.setQueryCallback(
+                            (sql, bindArgs) -> Timber.v("SQL: %s %s", sql, Arrays.toString(bindArgs.toArray())),
+                            Executors.newSingleThreadExecutor()
+                        );
+                    }
+                    INSTANCE = builder.build();
                 }
             }
         }
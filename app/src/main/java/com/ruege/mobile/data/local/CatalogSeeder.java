@@ -0,0 +1,106 @@
+package com.ruege.mobile.data.local;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.annotation.NonNull;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import timber.log.Timber;
+
+/**
+ * Заполняет группы заданий (contents с type = task_group) из снимка assets/seed/catalog.json,
+ * чтобы список заданий отображался до первого ответа сервера. Теория, сочинения, варианты
+ * и шпаргалки в снимок не входят: они меняются на сервере и загружаются при первом обновлении.
+ * Снимок собирается при сборке задачей generateCatalogSeed из app/seed/catalog.json.
+ * Строки вставляются с CONFLICT_IGNORE: уже полученные с сервера данные не перезаписываются.
+ * <p>
+ * TODO: это промежуточный шаг. Не сделана готовая SQLite-база в assets, открываемая через
+ * createFromAsset, с каталогами contents, variants и shpargalki_cache. Для нее нужны снимок
+ * этих каталогов с сервера и схема текущей версии, экспортированная Room (app/schemas).
+ */
+public final class CatalogSeeder {
+
+    static final String ASSET_PATH = "seed/catalog.json";
+    private static final String TYPE_TASK_GROUP = "task_group";
+
+    private CatalogSeeder() {
+    }
+
+    /**
+     * Вставляет группы заданий из снимка одной транзакцией
+     * @return количество вставленных строк
+     */
+    public static int seed(@NonNull Context context, @NonNull SupportSQLiteDatabase db) {
+        JSONObject snapshot;
+        try {
+            snapshot = new JSONObject(readAsset(context));
+        } catch (Exception e) {
+            Timber.w(e, "CatalogSeeder: снимок каталога недоступен, группы заданий будут загружены с сервера");
+            return 0;
+        }
+
+        int inserted = 0;
+        db.beginTransaction();
+        try {
+            inserted += insertTaskGroups(db, snapshot.optJSONArray("contents"));
+            db.setTransactionSuccessful();
+        } catch (Exception e) {
+            Timber.e(e, "CatalogSeeder: ошибка заполнения групп заданий из снимка");
+            inserted = 0;
+        } finally {
+            db.endTransaction();
+        }
+        Timber.d("CatalogSeeder: из снимка версии %d вставлено строк: %d", snapshot.optInt("version"), inserted);
+        return inserted;
+    }
+
+    private static int insertTaskGroups(SupportSQLiteDatabase db, JSONArray items) {
+        if (items == null) return 0;
+        int inserted = 0;
+        for (int i = 0; i < items.length(); i++) {
+            JSONObject item = items.optJSONObject(i);
+            if (item == null || !TYPE_TASK_GROUP.equals(item.optString("type"))) continue;
+            ContentValues values = new ContentValues();
+            values.put("content_id", item.optString("content_id"));
+            values.put("title", item.optString("title"));
+            putNullableString(values, item, "description");
+            values.put("type", item.optString("type"));
+            values.putNull("parent_id");
+            values.put("is_downloaded", 0);
+            values.put("is_new", item.optBoolean("is_new") ? 1 : 0);
+            values.put("order_position", item.optInt("order_position"));
+            putNullableString(values, item, "content_url");
+            if (db.insert("contents", SQLiteDatabase.CONFLICT_IGNORE, values) != -1) inserted++;
+        }
+        return inserted;
+    }
+
+    private static void putNullableString(ContentValues values, JSONObject item, String key) {
+        if (item.isNull(key)) {
+            values.putNull(key);
+        } else {
+            values.put(key, item.optString(key));
+        }
+    }
+
+    private static String readAsset(Context context) throws Exception {
+        try (InputStream input = context.getAssets().open(ASSET_PATH)) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+            return output.toString(StandardCharsets.UTF_8.name());
+        }
+    }
+}
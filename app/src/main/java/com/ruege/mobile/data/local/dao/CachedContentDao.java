@@ -0,0 +1,84 @@
+package com.ruege.mobile.data.local.dao;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import com.ruege.mobile.data.local.entity.CachedContentEntity;
+
+import java.util.List;
+
+@Dao
+public interface CachedContentDao {
+
+    /**
+     * Ключ и размер записи, которую можно вытеснить
+     */
+    public static class EvictionCandidate {
+        @ColumnInfo(name = "kind")
+        public String kind;
+
+        @ColumnInfo(name = "content_id")
+        public String contentId;
+
+        @ColumnInfo(name = "size_bytes")
+        public int sizeBytes;
+    }
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insert(CachedContentEntity content);
+
+    @Query("SELECT * FROM content_cache WHERE kind = :kind AND content_id = :contentId")
+    CachedContentEntity get(String kind, String contentId);
+
+    @Query("UPDATE content_cache SET last_accessed_at = :accessedAt WHERE kind = :kind AND content_id = :contentId")
+    void touch(String kind, String contentId, long accessedAt);
+
+    /**
+     * Сервер подтвердил, что версия не изменилась (304)
+     */
+    @Query("UPDATE content_cache SET fetched_at = :fetchedAt WHERE kind = :kind AND content_id = :contentId")
+    void markRevalidated(String kind, String contentId, long fetchedAt);
+
+    /**
+     * Записи, которые можно вытеснить, от недавно открытых к давним.
+     * Скачанная пользователем теория и помеченные скачанными темы не вытесняются
+     */
+    @Query("SELECT kind, content_id, size_bytes FROM content_cache c " +
+           "WHERE NOT (c.kind = 'theory' AND c.content_id IN (SELECT content_id FROM downloaded_theory)) " +
+           "AND NOT EXISTS (SELECT 1 FROM contents WHERE contents.content_id = c.content_id AND contents.is_downloaded = 1) " +
+           "ORDER BY last_accessed_at DESC")
+    List<EvictionCandidate> getEvictionCandidates();
+
+    @Query("DELETE FROM content_cache WHERE kind = :kind AND content_id = :contentId")
+    void delete(String kind, String contentId);
+
+    @Query("DELETE FROM content_cache WHERE kind = :kind")
+    void deleteByKind(String kind);
+
+    @Query("DELETE FROM content_cache")
+    void deleteAll();
+
+    /**
+     * Сохраняет запись и вытесняет давно открытые, пока сумма size_bytes
+     * вытесняемых записей не уложится в maxBytes
+     * @return число вытесненных записей
+     */
+    @Transaction
+    default int insertAndTrim(CachedContentEntity content, long maxBytes) {
+        insert(content);
+        long total = 0;
+        int evicted = 0;
+        for (EvictionCandidate candidate : getEvictionCandidates()) {
+            total += candidate.sizeBytes;
+            if (total > maxBytes) {
+                delete(candidate.kind, candidate.contentId);
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+}
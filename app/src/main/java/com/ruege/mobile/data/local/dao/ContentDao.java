@@ -5,11 +5,18 @@ import androidx.room.Dao;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
 import androidx.room.Update;
 
 import com.ruege.mobile.data.local.entity.ContentEntity;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import kotlinx.coroutines.flow.Flow;
 
 @Dao
 public interface ContentDao {
@@ -26,6 +33,16 @@ public interface ContentDao {
     @Query("SELECT * FROM contents WHERE type = :type ORDER BY order_position ASC")
     LiveData<List<ContentEntity>> getContentsByType(String type);
 
+    /**
+     * Группы заданий с признаком скачивания из сводки downloaded_groups.
+     * Признак вычисляется в запросе, поэтому строки contents не переписываются при скачивании
+     */
+    @Query("SELECT c.content_id, c.title, c.description, c.type, c.parent_id, " +
+           "(g.ege_number IS NOT NULL) AS is_downloaded, c.is_new, c.order_position, c.content_url " +
+           "FROM contents c LEFT JOIN downloaded_groups g ON g.ege_number = substr(c.content_id, 12) " +
+           "WHERE c.type = 'task_group' ORDER BY c.order_position ASC")
+    Flow<List<ContentEntity>> getTaskGroupsWithDownloadStatus();
+
     @Query("UPDATE contents SET is_downloaded = :isDownloaded WHERE content_id = :contentId")
     void updateDownloadStatus(String contentId, boolean isDownloaded);
 
@@ -35,6 +52,56 @@ public interface ContentDao {
     @Query("SELECT * FROM contents WHERE content_id = :contentId LIMIT 1")
     ContentEntity getContentByIdSync(String contentId);
 
+    @Query("SELECT * FROM contents WHERE type = :type")
+    List<ContentEntity> getContentsByTypeSync(String type);
+
+    @Query("SELECT COUNT(*) FROM contents WHERE type = :type")
+    int countByType(String type);
+
+    @Query("DELETE FROM contents WHERE type = :type AND is_downloaded = 0 AND content_id NOT IN (:contentIds)")
+    int deleteMissingByType(String type, List<String> contentIds);
+
     @Query("DELETE FROM contents")
     void deleteAll();
+
+    /**
+     * Применяет свежий каталог одного типа: вставляет новые темы, переписывает только
+     * изменившиеся и удаляет исчезнувшие (кроме скачанных). Неизменные строки не трогаются,
+     * поэтому наблюдатели списка не получают лишних обновлений, а признак скачивания сохраняется.
+     * @return количество вставленных, измененных и удаленных строк
+     */
+    @Transaction
+    default int applyCatalog(String type, List<ContentEntity> catalog) {
+        Map<String, ContentEntity> existing = new HashMap<>();
+        for (ContentEntity entity : getContentsByTypeSync(type)) {
+            existing.put(entity.getContentId(), entity);
+        }
+
+        List<ContentEntity> changed = new ArrayList<>();
+        List<String> contentIds = new ArrayList<>();
+        for (ContentEntity entity : catalog) {
+            contentIds.add(entity.getContentId());
+            ContentEntity current = existing.get(entity.getContentId());
+            if (current == null) {
+                changed.add(entity);
+            } else if (!sameCatalogFields(current, entity)) {
+                entity.setDownloaded(current.isDownloaded());
+                changed.add(entity);
+            }
+        }
+        if (!changed.isEmpty()) {
+            insertAll(changed);
+        }
+        int deleted = catalog.isEmpty() ? 0 : deleteMissingByType(type, contentIds);
+        return changed.size() + deleted;
+    }
+
+    static boolean sameCatalogFields(ContentEntity a, ContentEntity b) {
+        return Objects.equals(a.getTitle(), b.getTitle())
+            && Objects.equals(a.getDescription(), b.getDescription())
+            && Objects.equals(a.getParentId(), b.getParentId())
+            && Objects.equals(a.getContentUrl(), b.getContentUrl())
+            && a.isNew() == b.isNew()
+            && a.getOrderPosition() == b.getOrderPosition();
+    }
 }
\ No newline at end of file
@@ -16,6 +16,9 @@ public interface NewsDao {
     @Query("SELECT * FROM news ORDER BY publication_date DESC")
     kotlinx.coroutines.flow.Flow<java.util.List<NewsEntity>> getAllNews(); 
 
+    @Query("SELECT COUNT(*) FROM news")
+    int getNewsCount();
+
     @Query("DELETE FROM news")
     void deleteAll();
 } 
\ No newline at end of file
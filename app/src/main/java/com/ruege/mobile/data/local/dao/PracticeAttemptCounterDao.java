@@ -0,0 +1,43 @@
+package com.ruege.mobile.data.local.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import com.ruege.mobile.data.local.entity.PracticeAttemptCounterEntity;
+
+import java.util.List;
+
+@Dao
+public interface PracticeAttemptCounterDao {
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertAll(List<PracticeAttemptCounterEntity> counters);
+
+    @Query("SELECT * FROM practice_attempt_counters WHERE ege_number IN (:egeNumbers)")
+    List<PracticeAttemptCounterEntity> getCountersByEgeNumbersSync(List<String> egeNumbers);
+
+    @Query("INSERT OR IGNORE INTO practice_attempt_counters (ege_number, device_id, total_increments, total_decrements, correct_increments, correct_decrements) " +
+           "VALUES (:egeNumber, :deviceId, 0, 0, 0, 0)")
+    void createCounterIfNotExists(String egeNumber, String deviceId);
+
+    @Query("UPDATE practice_attempt_counters SET " +
+           "total_increments = total_increments + 1, " +
+           "correct_increments = correct_increments + CASE WHEN :isCorrect THEN 1 ELSE 0 END " +
+           "WHERE ege_number = :egeNumber AND device_id = :deviceId")
+    void incrementCounter(String egeNumber, String deviceId, boolean isCorrect);
+
+    /**
+     * Увеличивает счетчики попыток этого устройства для задания
+     */
+    @Transaction
+    default void recordAttempt(String egeNumber, String deviceId, boolean isCorrect) {
+        createCounterIfNotExists(egeNumber, deviceId);
+        incrementCounter(egeNumber, deviceId, isCorrect);
+    }
+
+    @Query("DELETE FROM practice_attempt_counters")
+    void deleteAll();
+}
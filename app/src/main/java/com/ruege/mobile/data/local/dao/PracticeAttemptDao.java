@@ -1,5 +1,7 @@
 package com.ruege.mobile.data.local.dao;
 
+import androidx.annotation.Nullable;
+import androidx.room.ColumnInfo;
 import androidx.room.Dao;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
@@ -15,6 +17,27 @@ import kotlinx.coroutines.flow.Flow;
 @Dao
 public interface PracticeAttemptDao {
 
+    /**
+     * Строка истории попыток вместе с номером задания из tasks
+     */
+    public static class AttemptHistoryRow {
+        @ColumnInfo(name = "attempt_id")
+        public long attemptId;
+
+        @ColumnInfo(name = "task_id")
+        public int taskId;
+
+        @ColumnInfo(name = "is_correct")
+        public boolean isCorrect;
+
+        @ColumnInfo(name = "attempt_date")
+        public long attemptDate;
+
+        @Nullable
+        @ColumnInfo(name = "ege_number")
+        public String egeNumber;
+    }
+
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     void insert(PracticeAttemptEntity attempt);
 
@@ -33,6 +56,31 @@ public interface PracticeAttemptDao {
     @Query("SELECT COUNT(*) FROM practice_attempts")
     Flow<Integer> getTotalAttempts();
 
+    /**
+     * Первая страница истории, от новых попыток к старым
+     */
+    @Query("SELECT a.attempt_id, a.task_id, a.is_correct, a.attempt_date, t.ege_number " +
+           "FROM practice_attempts a LEFT JOIN tasks t ON t.id = a.task_id " +
+           "ORDER BY a.attempt_date DESC, a.attempt_id DESC LIMIT :limit")
+    List<AttemptHistoryRow> getAttemptHistoryFirstPage(int limit);
+
+    /**
+     * Следующая страница истории после попытки (beforeDate, beforeId): ключ вместо OFFSET,
+     * поэтому стоимость страницы не зависит от глубины прокрутки
+     */
+    @Query("SELECT a.attempt_id, a.task_id, a.is_correct, a.attempt_date, t.ege_number " +
+           "FROM practice_attempts a LEFT JOIN tasks t ON t.id = a.task_id " +
+           "WHERE (a.attempt_date, a.attempt_id) < (:beforeDate, :beforeId) " +
+           "ORDER BY a.attempt_date DESC, a.attempt_id DESC LIMIT :limit")
+    List<AttemptHistoryRow> getAttemptHistoryPageBefore(long beforeDate, long beforeId, int limit);
+
+    /**
+     * Удаляет попытки старше cutoff. Агрегаты в practice_statistics уже учитывают их
+     * @return количество удаленных попыток
+     */
+    @Query("DELETE FROM practice_attempts WHERE attempt_date < :cutoff")
+    int deleteAttemptsBefore(long cutoff);
+
     @Query("DELETE FROM practice_attempts")
     void deleteAll();
 
@@ -0,0 +1,99 @@
+package com.ruege.mobile.data.local.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import com.ruege.mobile.data.local.entity.PracticeAttemptEntity;
+import com.ruege.mobile.data.local.entity.PracticeStatisticsEntity;
+import com.ruege.mobile.data.local.entity.ProgressSyncQueueEntity;
+
+import java.util.List;
+
+/**
+ * Запись ответов на задания одной транзакцией: попытки, агрегат статистики,
+ * счетчики устройства и строка очереди синхронизации фиксируются вместе.
+ */
+@Dao
+public interface PracticeRecordDao {
+
+    /**
+     * Прирост статистики по одному заданию за пакет ответов
+     */
+    public static class StatisticsDelta {
+        public final String egeNumber;
+        public final int attempts;
+        public final int correctAttempts;
+        public final long lastAttemptDate;
+
+        public StatisticsDelta(String egeNumber, int attempts, int correctAttempts, long lastAttemptDate) {
+            this.egeNumber = egeNumber;
+            this.attempts = attempts;
+            this.correctAttempts = correctAttempts;
+            this.lastAttemptDate = lastAttemptDate;
+        }
+    }
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertAttempts(List<PracticeAttemptEntity> attempts);
+
+    @Query("INSERT OR IGNORE INTO practice_statistics (ege_number, total_attempts, correct_attempts, last_attempt_date, kind, task_number) " +
+           "VALUES (:egeNumber, 0, 0, 0, :kind, :taskNumber)")
+    void createStatisticsIfNotExists(String egeNumber, String kind, Integer taskNumber);
+
+    @Query("UPDATE practice_statistics SET " +
+           "total_attempts = total_attempts + :attempts, " +
+           "correct_attempts = correct_attempts + :correctAttempts, " +
+           "last_attempt_date = MAX(last_attempt_date, :lastAttemptDate) " +
+           "WHERE ege_number = :egeNumber")
+    void addToStatistics(String egeNumber, int attempts, int correctAttempts, long lastAttemptDate);
+
+    @Query("INSERT OR IGNORE INTO practice_attempt_counters (ege_number, device_id, total_increments, total_decrements, correct_increments, correct_decrements) " +
+           "VALUES (:egeNumber, :deviceId, 0, 0, 0, 0)")
+    void createCounterIfNotExists(String egeNumber, String deviceId);
+
+    @Query("UPDATE practice_attempt_counters SET " +
+           "total_increments = total_increments + :attempts, " +
+           "correct_increments = correct_increments + :correctAttempts " +
+           "WHERE ege_number = :egeNumber AND device_id = :deviceId")
+    void addToCounter(String egeNumber, String deviceId, int attempts, int correctAttempts);
+
+    @Query("SELECT * FROM progress_and_static_sync_queue WHERE item_id = :itemId")
+    ProgressSyncQueueEntity getQueueItemByItemId(String itemId);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    long insertQueueItem(ProgressSyncQueueEntity item);
+
+    /**
+     * Применяет пакет ответов. SQLite на minSdk 27 не поддерживает
+     * INSERT ... ON CONFLICT DO UPDATE, поэтому агрегат обновляется парой
+     * INSERT OR IGNORE + UPDATE внутри той же транзакции.
+     * @param queueItems строки очереди синхронизации; id и sequence
+     *                   существующей строки для того же item_id переносятся
+     */
+    @Transaction
+    default void recordAttempts(List<PracticeAttemptEntity> attempts, List<StatisticsDelta> deltas,
+                                String deviceId, List<ProgressSyncQueueEntity> queueItems) {
+        if (!attempts.isEmpty()) {
+            insertAttempts(attempts);
+        }
+        for (StatisticsDelta delta : deltas) {
+            createStatisticsIfNotExists(delta.egeNumber,
+                    PracticeStatisticsEntity.kindOf(delta.egeNumber),
+                    PracticeStatisticsEntity.taskNumberOf(delta.egeNumber));
+            addToStatistics(delta.egeNumber, delta.attempts, delta.correctAttempts, delta.lastAttemptDate);
+            createCounterIfNotExists(delta.egeNumber, deviceId);
+            addToCounter(delta.egeNumber, deviceId, delta.attempts, delta.correctAttempts);
+        }
+        for (ProgressSyncQueueEntity item : queueItems) {
+            ProgressSyncQueueEntity existing = getQueueItemByItemId(item.getItemId());
+            if (existing != null) {
+                item.setId(existing.getId());
+                item.setSequence(existing.getSequence() + 1);
+            }
+            insertQueueItem(item);
+        }
+    }
+}
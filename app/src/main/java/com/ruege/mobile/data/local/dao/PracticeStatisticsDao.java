@@ -1,5 +1,6 @@
 package com.ruege.mobile.data.local.dao;
 
+import androidx.annotation.NonNull;
 import androidx.room.Dao;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
@@ -28,6 +29,68 @@ public interface PracticeStatisticsDao {
         }
     }
 
+    /**
+     * Готовая строка вкладки статистики: проценты, подписи и суммы по заданиям варианта
+     * считаются в SQLite
+     */
+    public static class StatisticsTabRow {
+        @NonNull
+        @ColumnInfo(name = "ege_number")
+        public String egeNumber = "";
+
+        @NonNull
+        @ColumnInfo(name = "kind")
+        public String kind = PracticeStatisticsEntity.KIND_TASK;
+
+        @NonNull
+        @ColumnInfo(name = "display_name")
+        public String displayName = "";
+
+        @ColumnInfo(name = "total_attempts")
+        public int totalAttempts;
+
+        @ColumnInfo(name = "correct_attempts")
+        public int correctAttempts;
+
+        @ColumnInfo(name = "success_rate")
+        public float successRate;
+
+        @ColumnInfo(name = "last_attempt_date")
+        public long lastAttemptDate;
+
+        @ColumnInfo(name = "has_details")
+        public boolean hasDetails;
+
+        @ColumnInfo(name = "score")
+        public int score;
+
+        @ColumnInfo(name = "max_score")
+        public int maxScore;
+
+        public boolean isSameContent(@NonNull StatisticsTabRow other) {
+            return egeNumber.equals(other.egeNumber) &&
+                   displayName.equals(other.displayName) &&
+                   totalAttempts == other.totalAttempts &&
+                   correctAttempts == other.correctAttempts &&
+                   lastAttemptDate == other.lastAttemptDate &&
+                   hasDetails == other.hasDetails &&
+                   score == other.score &&
+                   maxScore == other.maxScore;
+        }
+    }
+
+    String TAB_SUCCESS_RATE =
+        "CASE WHEN s.total_attempts > 0 THEN s.correct_attempts * 100.0 / s.total_attempts ELSE 0 END AS success_rate";
+
+    String TAB_HAS_JSON_DETAILS =
+        "(s.variant_data IS NOT NULL AND s.variant_data != '') AS has_details";
+
+    String TASK_TAB_SELECT =
+        "SELECT s.ege_number, s.kind, 'Задание ' || s.ege_number AS display_name, " +
+        "s.total_attempts, s.correct_attempts, " + TAB_SUCCESS_RATE + ", s.last_attempt_date, " +
+        TAB_HAS_JSON_DETAILS + ", s.correct_attempts AS score, s.total_attempts AS max_score " +
+        "FROM practice_statistics s WHERE s.kind = 'task'";
+
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     void insert(PracticeStatisticsEntity statistics);
 
@@ -40,18 +103,12 @@ public interface PracticeStatisticsDao {
     @Query("SELECT * FROM practice_statistics WHERE ege_number = :egeNumber")
     PracticeStatisticsEntity getStatisticsByEgeNumberSync(String egeNumber);
 
-    @Query("SELECT * FROM practice_statistics WHERE total_attempts > 0 AND ege_number NOT LIKE '%#_%' ESCAPE '#'")
-    Flow<List<PracticeStatisticsEntity>> getStatisticsWithAttempts();
-
-    @Query("SELECT * FROM practice_statistics WHERE ege_number NOT LIKE '%#_%' ESCAPE '#' ORDER BY CAST(ege_number AS INTEGER) ASC")
-    Flow<List<PracticeStatisticsEntity>> getAllStatisticsSortedByEgeNumber();
+    @Query("SELECT * FROM practice_statistics WHERE ege_number IN (:egeNumbers)")
+    List<PracticeStatisticsEntity> getStatisticsByEgeNumbersSync(List<String> egeNumbers);
 
     @Query("SELECT SUM(total_attempts) as total_sum_attempts, SUM(correct_attempts) as total_sum_correct_attempts FROM practice_statistics")
     Flow<AggregatedPracticeStatistics> getOverallAggregatedStatistics();
 
-    @Query("SELECT * FROM practice_statistics WHERE ege_number LIKE '%#_%' ESCAPE '#' ORDER BY last_attempt_date DESC")
-    Flow<List<PracticeStatisticsEntity>> getVariantStatistics();
-
     @Query("DELETE FROM practice_statistics")
     void deleteAll();
 
@@ -62,9 +119,15 @@ public interface PracticeStatisticsDao {
            "WHERE ege_number = :egeNumber")
     void updateStatisticsAfterAttempt(String egeNumber, boolean isCorrect, long timestamp);
 
-    @Query("INSERT OR IGNORE INTO practice_statistics (ege_number, total_attempts, correct_attempts, last_attempt_date) " +
-           "VALUES (:egeNumber, 0, 0, 0)")
-    void createStatisticsIfNotExists(String egeNumber);
+    @Query("INSERT OR IGNORE INTO practice_statistics (ege_number, total_attempts, correct_attempts, last_attempt_date, kind, task_number) " +
+           "VALUES (:egeNumber, 0, 0, 0, :kind, :taskNumber)")
+    void createStatisticsIfNotExists(String egeNumber, String kind, Integer taskNumber);
+
+    default void createStatisticsIfNotExists(String egeNumber) {
+        createStatisticsIfNotExists(egeNumber,
+                PracticeStatisticsEntity.kindOf(egeNumber),
+                PracticeStatisticsEntity.taskNumberOf(egeNumber));
+    }
 
     @Transaction
     default void clearAndInsertAll(List<PracticeStatisticsEntity> statisticsList) {
@@ -72,9 +135,33 @@ public interface PracticeStatisticsDao {
         insertAll(statisticsList);
     }
 
+    @Query(TASK_TAB_SELECT + " ORDER BY s.task_number ASC")
+    Flow<List<StatisticsTabRow>> getTaskTabRows();
+
+    @Query(TASK_TAB_SELECT + " AND s.total_attempts > 0 ORDER BY s.task_number ASC")
+    Flow<List<StatisticsTabRow>> getTaskTabRowsWithAttempts();
+
+    /**
+     * Варианты: имя без суффикса "_<время>" (rtrim по всем символам, кроме "_",
+     * отрезает хвост до последнего подчеркивания), баллы - по variant_task_results
+     */
+    @Query("SELECT s.ege_number, s.kind, " +
+           "CASE WHEN instr(s.ege_number, '_') > 0 " +
+           "THEN rtrim(rtrim(s.ege_number, replace(s.ege_number, '_', '')), '_') " +
+           "ELSE s.ege_number END AS display_name, " +
+           "s.total_attempts, s.correct_attempts, " + TAB_SUCCESS_RATE + ", s.last_attempt_date, " +
+           "EXISTS (SELECT 1 FROM variant_task_results r WHERE r.ege_number = s.ege_number) AS has_details, " +
+           "(SELECT COALESCE(SUM(r.is_correct), 0) FROM variant_task_results r WHERE r.ege_number = s.ege_number) AS score, " +
+           "(SELECT COUNT(*) FROM variant_task_results r WHERE r.ege_number = s.ege_number) AS max_score " +
+           "FROM practice_statistics s WHERE s.kind = 'variant' ORDER BY s.last_attempt_date DESC")
+    Flow<List<StatisticsTabRow>> getVariantTabRows();
+
+    @Query("SELECT s.ege_number, s.kind, substr(s.ege_number, 7) AS display_name, " +
+           "s.total_attempts, s.correct_attempts, " + TAB_SUCCESS_RATE + ", s.last_attempt_date, " +
+           TAB_HAS_JSON_DETAILS + ", s.correct_attempts AS score, s.total_attempts AS max_score " +
+           "FROM practice_statistics s WHERE s.kind = 'essay' ORDER BY s.last_attempt_date DESC")
+    Flow<List<StatisticsTabRow>> getEssayTabRows();
+
     @Query("SELECT * FROM practice_statistics ORDER BY last_attempt_date DESC")
     public abstract Flow<List<PracticeStatisticsEntity>> getAllStatisticsSortedByDate();
-
-    @Query("SELECT * FROM practice_statistics WHERE ege_number LIKE 'essay:%' ORDER BY last_attempt_date DESC")
-    public abstract Flow<List<PracticeStatisticsEntity>> getEssayStatistics();
 } 
\ No newline at end of file
@@ -0,0 +1,42 @@
+package com.ruege.mobile.data.local.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import com.ruege.mobile.data.local.entity.ProgressSolvedTaskEntity;
+
+import java.util.List;
+import kotlinx.coroutines.flow.Flow;
+
+@Dao
+public interface ProgressSolvedTaskDao {
+
+    /**
+     * @return rowId новой записи или -1, если задание уже было отмечено решенным
+     */
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    long insertOrIgnore(ProgressSolvedTaskEntity solvedTask);
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insertAllOrIgnore(List<ProgressSolvedTaskEntity> solvedTasks);
+
+    @Query("SELECT COUNT(*) FROM progress_solved_tasks WHERE content_id = :contentId")
+    int getSolvedCountSync(String contentId);
+
+    @Query("SELECT EXISTS(SELECT 1 FROM progress_solved_tasks WHERE content_id = :contentId AND task_id = :taskId)")
+    boolean isTaskSolvedSync(String contentId, String taskId);
+
+    @Query("SELECT task_id FROM progress_solved_tasks WHERE content_id = :contentId")
+    List<String> getSolvedTaskIdsSync(String contentId);
+
+    @Query("SELECT task_id FROM progress_solved_tasks WHERE content_id = :contentId")
+    Flow<List<String>> getSolvedTaskIds(String contentId);
+
+    @Query("SELECT * FROM progress_solved_tasks WHERE content_id IN (:contentIds)")
+    List<ProgressSolvedTaskEntity> getByContentIdsSync(List<String> contentIds);
+
+    @Query("DELETE FROM progress_solved_tasks")
+    void deleteAll();
+}
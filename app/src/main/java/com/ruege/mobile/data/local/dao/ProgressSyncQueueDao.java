@@ -5,14 +5,33 @@ import androidx.room.Dao;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
 import androidx.room.Update;
 import com.ruege.mobile.data.local.entity.ProgressSyncQueueEntity;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Dao
 public interface ProgressSyncQueueDao {
 
+    /**
+     * Параметры повторных попыток отправки записей очереди
+     */
+    class RetryPolicy {
+        public final long baseDelayMs;
+        public final int maxExponent;
+        public final int maxRetries;
+        public final int maxRejectedRetries;
+
+        public RetryPolicy(long baseDelayMs, int maxExponent, int maxRetries, int maxRejectedRetries) {
+            this.baseDelayMs = baseDelayMs;
+            this.maxExponent = maxExponent;
+            this.maxRetries = maxRetries;
+            this.maxRejectedRetries = maxRejectedRetries;
+        }
+    }
+
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     long insert(ProgressSyncQueueEntity item);
 
@@ -28,8 +47,18 @@ public interface ProgressSyncQueueDao {
     @Query("SELECT * FROM progress_and_static_sync_queue WHERE sync_status = :status ORDER BY timestamp ASC LIMIT :limit")
     List<ProgressSyncQueueEntity> getItemsByStatusSync(String status, int limit);
 
-    @Query("SELECT * FROM progress_and_static_sync_queue WHERE sync_status IN (:statuses) ORDER BY timestamp ASC LIMIT :limit")
-    List<ProgressSyncQueueEntity> getItemsByStatusesSync(List<String> statuses, int limit);
+    @Query("SELECT * FROM progress_and_static_sync_queue WHERE sync_status IN (:statuses) AND next_attempt_at <= :now " +
+           "ORDER BY timestamp ASC LIMIT :limit")
+    List<ProgressSyncQueueEntity> getItemsByStatusesSync(List<String> statuses, long now, int limit);
+
+    /**
+     * Постраничное чтение очереди по id: следующая страница начинается после последнего
+     * обработанного id, поэтому записи, оставшиеся FAILED, не читаются повторно в том же проходе.
+     * Записи, время повторной попытки которых еще не наступило, пропускаются.
+     */
+    @Query("SELECT * FROM progress_and_static_sync_queue WHERE sync_status IN (:statuses) AND id > :afterId " +
+           "AND next_attempt_at <= :now ORDER BY id ASC LIMIT :limit")
+    List<ProgressSyncQueueEntity> getItemsByStatusesAfterIdSync(List<String> statuses, long afterId, long now, int limit);
 
     @Query("SELECT COUNT(*) FROM progress_and_static_sync_queue WHERE sync_status = :status")
     LiveData<Integer> getCountByStatus(String status);
@@ -40,15 +69,115 @@ public interface ProgressSyncQueueDao {
     @Query("SELECT * FROM progress_and_static_sync_queue WHERE item_id = :itemId")
     ProgressSyncQueueEntity getItemByItemId(String itemId);
 
+    /**
+     * Подтверждает отправленную запись: она помечается SYNCED и дельта сбрасывается,
+     * только если с момента чтения запись не изменилась (sequence совпадает).
+     */
+    @Query("UPDATE progress_and_static_sync_queue SET sync_status = 'SYNCED', delta_task_ids = '[]', error_message = '', " +
+           "retry_count = 0, next_attempt_at = 0 WHERE id = :id AND sequence = :sequence")
+    int markSyncedIfUnchanged(long id, long sequence);
+
+    /**
+     * Помечает запись FAILED и планирует следующую попытку с экспоненциальной задержкой
+     * и случайным разбросом: next = now + base * 2^min(retry_count, maxExponent) + random(0, base).
+     * Запись, измененная с момента чтения (sequence не совпадает), остается в очереди как есть:
+     * новое изменение не должно получать задержку и расходовать попытки за старую отправку.
+     */
+    @Query("UPDATE progress_and_static_sync_queue SET sync_status = 'FAILED', error_message = :error, " +
+           "last_sync_attempt = :now, retry_count = retry_count + 1, " +
+           "next_attempt_at = :now + (:baseDelayMs << MIN(retry_count, :maxExponent)) + ((RANDOM() & 2147483647) % :baseDelayMs) " +
+           "WHERE id = :id AND sequence = :sequence")
+    int markFailedIfUnchanged(long id, long sequence, String error, long now, long baseDelayMs, int maxExponent);
+
+    /**
+     * Переводит в DEAD_LETTER записи, исчерпавшие бюджет повторных попыток
+     */
+    @Query("UPDATE progress_and_static_sync_queue SET sync_status = 'DEAD_LETTER' " +
+           "WHERE id IN (:ids) AND retry_count >= :maxRetries")
+    int moveToDeadLetter(List<Long> ids, int maxRetries);
+
+    @Query("DELETE FROM progress_and_static_sync_queue WHERE sync_status = 'SYNCED' AND timestamp < :olderThan")
+    int deleteSynced(long olderThan);
+
+    /**
+     * Применяет результат отправки пакета одной транзакцией: подтвержденные записи
+     * переводятся в SYNCED, остальные в FAILED с новой задержкой; в обоих случаях только
+     * если запись не изменилась во время отправки. Отклоненные сервером (4xx) записи
+     * расходуют меньший бюджет попыток.
+     */
+    @Transaction
+    default void applyBatchResult(List<ProgressSyncQueueEntity> acknowledged, List<ProgressSyncQueueEntity> failed,
+                                  List<ProgressSyncQueueEntity> rejected, String error, long now, RetryPolicy retryPolicy) {
+        for (ProgressSyncQueueEntity item : acknowledged) {
+            markSyncedIfUnchanged(item.getId(), item.getSequence());
+        }
+        failIfUnchanged(failed, error, now, retryPolicy, retryPolicy.maxRetries);
+        failIfUnchanged(rejected, error, now, retryPolicy, retryPolicy.maxRejectedRetries);
+    }
+
+    /**
+     * Помечает FAILED неизменившиеся записи и переводит в DEAD_LETTER те из них,
+     * что исчерпали maxRetries
+     */
+    default void failIfUnchanged(List<ProgressSyncQueueEntity> items, String error, long now,
+                                 RetryPolicy retryPolicy, int maxRetries) {
+        List<Long> failedIds = new ArrayList<>();
+        for (ProgressSyncQueueEntity item : items) {
+            if (markFailedIfUnchanged(item.getId(), item.getSequence(), error, now,
+                    retryPolicy.baseDelayMs, retryPolicy.maxExponent) > 0) {
+                failedIds.add(item.getId());
+            }
+        }
+        if (!failedIds.isEmpty()) {
+            moveToDeadLetter(failedIds, maxRetries);
+        }
+    }
+
     @Query("DELETE FROM progress_and_static_sync_queue WHERE sync_status = :status")
     void deleteByStatus(String status);
 
     @Query("DELETE FROM progress_and_static_sync_queue WHERE user_id = :userId")
     void deleteByUserId(long userId);
 
-    @Query("SELECT * FROM progress_and_static_sync_queue ORDER BY timestamp DESC")
-    LiveData<List<ProgressSyncQueueEntity>> getAllItems();
-
-    @Query("SELECT * FROM progress_and_static_sync_queue ORDER BY timestamp DESC")
-    List<ProgressSyncQueueEntity> getAllItemsSync();
+    @Query("SELECT * FROM progress_and_static_sync_queue WHERE sync_status != 'SYNCED' ORDER BY timestamp DESC")
+    LiveData<List<ProgressSyncQueueEntity>> getUnsyncedItems();
+
+    @Query("SELECT COUNT(*) FROM progress_and_static_sync_queue")
+    int getTotalCountSync();
+
+    /**
+     * Наименьший номер операции устройства среди неподтвержденных записей прогресса,
+     * кроме перечисленных; 0 - если таких записей нет
+     */
+    @Query("SELECT COALESCE(MIN(device_sequence), 0) FROM progress_and_static_sync_queue " +
+           "WHERE item_type = 'progress' AND sync_status != 'SYNCED' AND device_sequence > 0 " +
+           "AND id NOT IN (:excludedIds)")
+    long getMinUnackedDeviceSequenceSync(List<Long> excludedIds);
+
+    /**
+     * Помечает оставшуюся запись полной отправкой, если для item_id накопилось несколько
+     * неотправленных записей: их дельты нельзя надежно объединить.
+     */
+    @Query("UPDATE progress_and_static_sync_queue SET delta_task_ids = NULL WHERE id IN (" +
+           "SELECT MAX(id) FROM progress_and_static_sync_queue WHERE sync_status IN ('PENDING', 'FAILED') " +
+           "GROUP BY item_type, item_id HAVING COUNT(*) > 1)")
+    void resetDeltaForDuplicatePending();
+
+    @Query("DELETE FROM progress_and_static_sync_queue WHERE sync_status IN ('PENDING', 'FAILED') AND id NOT IN (" +
+           "SELECT MAX(id) FROM progress_and_static_sync_queue WHERE sync_status IN ('PENDING', 'FAILED') " +
+           "GROUP BY item_type, item_id)")
+    int deleteDuplicatePending();
+
+    /**
+     * Сжимает очередь: удаляет подтвержденные записи старше порога хранения
+     * и оставляет по одной неотправленной записи на каждый item_id.
+     * @return количество удаленных записей
+     */
+    @Transaction
+    default int compact(long syncedOlderThan) {
+        int deleted = deleteSynced(syncedOlderThan);
+        resetDeltaForDuplicatePending();
+        deleted += deleteDuplicatePending();
+        return deleted;
+    }
 } 
\ No newline at end of file
@@ -23,15 +23,30 @@ interface ShpargalkaDao {
     @Query("SELECT * FROM shpargalki_cache")
     suspend fun getAllShpargalkiSync(): List<ShpargalkaEntity>
 
+    @Query("SELECT COUNT(*) FROM shpargalki_cache")
+    suspend fun getCount(): Int
+
     @Query("DELETE FROM shpargalki_cache")
     suspend fun deleteAll()
 
     @Query("UPDATE shpargalki_cache SET isDownloaded = :isDownloaded WHERE id = :id")
     suspend fun updateDownloadStatus(id: Int, isDownloaded: Boolean)
 
+    @Query("DELETE FROM shpargalki_cache WHERE id NOT IN (:ids)")
+    suspend fun deleteMissing(ids: List<Int>): Int
+
+    /**
+     * Применяет свежий список шпаргалок: пишутся только новые и изменившиеся строки,
+     * исчезнувшие с сервера удаляются
+     * @return количество вставленных, измененных и удаленных строк
+     */
     @Transaction
-    suspend fun replaceAll(shpargalki: List<ShpargalkaEntity>) {
-        deleteAll()
-        insertAll(shpargalki)
+    suspend fun applyCatalog(shpargalki: List<ShpargalkaEntity>): Int {
+        val existing = getAllShpargalkiSync().associateBy { it.id }
+        val changed = shpargalki.filter { existing[it.id] != it }
+        if (changed.isNotEmpty()) {
+            insertAll(changed)
+        }
+        return changed.size + deleteMissing(shpargalki.map { it.id })
     }
 } 
\ No newline at end of file
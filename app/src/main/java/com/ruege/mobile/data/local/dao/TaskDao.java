@@ -9,21 +9,45 @@ import androidx.room.Delete;
 import androidx.room.Transaction;
 
 import com.ruege.mobile.data.local.entity.TaskEntity;
+import com.ruege.mobile.data.local.entity.TaskTextEntity;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import kotlinx.coroutines.flow.Flow;
 
 @Dao
 public interface TaskDao {
     @Insert(onConflict = OnConflictStrategy.REPLACE)
-    void insert(TaskEntity task);
+    void insertTask(TaskEntity task);
 
     @Insert(onConflict = OnConflictStrategy.REPLACE)
-    void insertAll(List<TaskEntity> tasks);
+    void insertTasks(List<TaskEntity> tasks);
 
     @Update
     void update(TaskEntity task);
+
+    @Transaction
+    default void insert(TaskEntity task) {
+        insertTask(task);
+        refreshDownloadedGroups(Collections.singletonList(task.getEgeNumber()), System.currentTimeMillis());
+    }
+
+    /**
+     * Вставляет задания и обновляет сводку downloaded_groups в той же транзакции,
+     * поэтому наблюдатели сводки получают одно изменение на весь пакет
+     */
+    @Transaction
+    default void insertAll(List<TaskEntity> tasks) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        insertTasks(tasks);
+        refreshDownloadedGroups(egeNumbersOf(tasks), System.currentTimeMillis());
+    }
     
     @Transaction
     default void insertOrUpdateAll(List<TaskEntity> tasks) {
@@ -32,41 +56,125 @@ public interface TaskDao {
             if (existing != null) {
                 update(task);
             } else {
-                insert(task);
+                insertTask(task);
             }
         }
+        refreshDownloadedGroups(egeNumbersOf(tasks), System.currentTimeMillis());
     }
 
     @Delete
-    void delete(TaskEntity task);
+    void deleteTask(TaskEntity task);
+
+    /**
+     * Удаляет задание и пересчитывает сводку его группы в той же транзакции
+     */
+    @Transaction
+    default void delete(TaskEntity task) {
+        deleteTask(task);
+        recountDownloadedGroup(task.getEgeNumber());
+        deleteEmptyDownloadedGroup(task.getEgeNumber());
+    }
 
     @Query("DELETE FROM tasks WHERE ege_number = :egeNumber")
-    void deleteTasksByEgeNumber(String egeNumber);
+    void deleteTasksOnlyByEgeNumber(String egeNumber);
+
+    @Transaction
+    default void deleteTasksByEgeNumber(String egeNumber) {
+        deleteTasksOnlyByEgeNumber(egeNumber);
+        deleteDownloadedGroup(egeNumber);
+    }
 
     @Transaction
     default void deleteTasksByEgeNumberAndInsert(String egeNumber, List<TaskEntity> tasks) {
-        deleteTasksByEgeNumber(egeNumber);
+        deleteTasksOnlyByEgeNumber(egeNumber);
+        deleteDownloadedGroup(egeNumber);
         insertAll(tasks);
     }
 
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertTaskTexts(List<TaskTextEntity> texts);
+
+    /**
+     * Записывает одну страницу скачиваемой группы: тексты и задания одной транзакцией.
+     * Сводка downloaded_groups здесь не трогается - группа считается скачанной
+     * только после refreshDownloadedGroups по завершении последней страницы
+     */
+    @Transaction
+    default void insertDownloadPage(List<TaskEntity> tasks, List<TaskTextEntity> texts) {
+        if (!texts.isEmpty()) {
+            insertTaskTexts(texts);
+        }
+        if (!tasks.isEmpty()) {
+            insertTasks(tasks);
+        }
+    }
+
+    /**
+     * Удаляет задания группы, оставшиеся от прерванного скачивания (нет строки в downloaded_groups)
+     */
+    @Query("DELETE FROM tasks WHERE ege_number = :egeNumber " +
+           "AND NOT EXISTS (SELECT 1 FROM downloaded_groups WHERE ege_number = :egeNumber)")
+    int deleteIncompleteGroup(String egeNumber);
+
+    /**
+     * Пересчитывает сводку для указанных групп по текущему содержимому tasks
+     */
+    @Query("INSERT OR REPLACE INTO downloaded_groups (ege_number, task_count, downloaded_at) " +
+           "SELECT ege_number, COUNT(*), :downloadedAt FROM tasks " +
+           "WHERE ege_number IN (:egeNumbers) GROUP BY ege_number")
+    void refreshDownloadedGroups(List<String> egeNumbers, long downloadedAt);
+
+    @Query("DELETE FROM downloaded_groups WHERE ege_number = :egeNumber")
+    void deleteDownloadedGroup(String egeNumber);
+
+    /**
+     * Обновляет число заданий уже скачанной группы; группы без строки в сводке не трогает
+     */
+    @Query("UPDATE downloaded_groups SET task_count = (SELECT COUNT(*) FROM tasks WHERE tasks.ege_number = :egeNumber) " +
+           "WHERE ege_number = :egeNumber")
+    void recountDownloadedGroup(String egeNumber);
+
+    @Query("DELETE FROM downloaded_groups WHERE ege_number = :egeNumber AND task_count = 0")
+    void deleteEmptyDownloadedGroup(String egeNumber);
+
+    @Query("DELETE FROM downloaded_groups")
+    void deleteAllDownloadedGroups();
+
     @Query("SELECT * FROM tasks WHERE id = :id")
     TaskEntity getTaskByIdSync(int id);
 
     @Query("SELECT * FROM tasks WHERE ege_number = :egeNumber")
     List<TaskEntity> getTasksByEgeNumberSync(String egeNumber);
 
-    @Query("SELECT COUNT(DISTINCT id) FROM tasks WHERE ege_number = :egeNumber")
+    @Query("SELECT COALESCE((SELECT task_count FROM downloaded_groups WHERE ege_number = :egeNumber), 0)")
     int getTaskCountByEgeNumberSync(String egeNumber);
 
     @Query("SELECT * FROM tasks WHERE id IN (:taskIds)")
     List<TaskEntity> getTasksByIds(List<Integer> taskIds);
 
-    @Query("SELECT DISTINCT ege_number FROM tasks WHERE ege_number IS NOT NULL")
+    /**
+     * Наблюдает только за downloaded_groups: запись в tasks сама по себе не перезапускает запрос
+     */
+    @Query("SELECT ege_number FROM downloaded_groups")
     Flow<List<String>> getDownloadedEgeNumbersStream();
 
     @Query("DELETE FROM tasks")
-    void deleteAll();
+    void deleteAllTasks();
+
+    @Transaction
+    default void deleteAll() {
+        deleteAllTasks();
+        deleteAllDownloadedGroups();
+    }
 
     @Query("SELECT * FROM tasks WHERE ege_number IN (:egeNumbers)")
     List<TaskEntity> getTasksByEgeNumbers(List<String> egeNumbers);
-} 
\ No newline at end of file
+
+    static List<String> egeNumbersOf(List<TaskEntity> tasks) {
+        Set<String> egeNumbers = new LinkedHashSet<>();
+        for (TaskEntity task : tasks) {
+            egeNumbers.add(task.getEgeNumber());
+        }
+        return new ArrayList<>(egeNumbers);
+    }
+}
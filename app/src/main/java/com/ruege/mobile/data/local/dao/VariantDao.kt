@@ -51,6 +51,9 @@ interface VariantDao {
     @Query("UPDATE variants SET is_downloaded = 0, last_accessed_at = NULL")
     suspend fun resetAllDownloadStatuses()
 
+    @Query("SELECT COUNT(*) FROM variants")
+    suspend fun getVariantCount(): Int
+
     @Query("DELETE FROM variants")
     suspend fun deleteAll()
 } 
\ No newline at end of file
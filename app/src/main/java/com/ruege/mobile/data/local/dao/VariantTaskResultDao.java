@@ -0,0 +1,51 @@
+package com.ruege.mobile.data.local.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import com.ruege.mobile.data.local.entity.PracticeStatisticsEntity;
+import com.ruege.mobile.data.local.entity.VariantTaskResultEntity;
+
+import java.util.List;
+
+@Dao
+public interface VariantTaskResultDao {
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertAll(List<VariantTaskResultEntity> results);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertStatistics(PracticeStatisticsEntity statistics);
+
+    @Query("SELECT * FROM variant_task_results WHERE ege_number = :egeNumber ORDER BY position ASC")
+    List<VariantTaskResultEntity> getResultsSync(String egeNumber);
+
+    @Query("DELETE FROM variant_task_results WHERE ege_number = :egeNumber")
+    void deleteByEgeNumber(String egeNumber);
+
+    @Query("DELETE FROM variant_task_results")
+    void deleteAll();
+
+    /**
+     * Заменяет результаты заданий варианта целиком
+     */
+    @Transaction
+    default void replaceResults(String egeNumber, List<VariantTaskResultEntity> results) {
+        deleteByEgeNumber(egeNumber);
+        if (!results.isEmpty()) {
+            insertAll(results);
+        }
+    }
+
+    /**
+     * Сохраняет статистику варианта вместе с результатами заданий
+     */
+    @Transaction
+    default void saveVariant(PracticeStatisticsEntity statistics, List<VariantTaskResultEntity> results) {
+        insertStatistics(statistics);
+        replaceResults(statistics.getEgeNumber(), results);
+    }
+}
@@ -0,0 +1,200 @@
+package com.ruege.mobile.data.local.entity;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.Index;
+
+/**
+ * Тело теории или сочинения, сохраненное при любом открытии (read-through).
+ * В отличие от downloaded_theory, записи вытесняются по размеру, начиная с давно открытых.
+ */
+@Entity(
+    tableName = "content_cache",
+    primaryKeys = {"kind", "content_id"},
+    indices = {
+        @Index(name = "index_content_cache_last_accessed_at", value = "last_accessed_at")
+    }
+)
+public class CachedContentEntity {
+
+    public static final String KIND_THEORY = "theory";
+    public static final String KIND_ESSAY = "essay";
+
+    @NonNull
+    @ColumnInfo(name = "kind")
+    private String kind;
+
+    @NonNull
+    @ColumnInfo(name = "content_id")
+    private String contentId;
+
+    @ColumnInfo(name = "remote_id")
+    private int remoteId;
+
+    @ColumnInfo(name = "ege_number")
+    private int egeNumber;
+
+    @NonNull
+    @ColumnInfo(name = "title")
+    private String title;
+
+    @NonNull
+    @ColumnInfo(name = "body")
+    private String body;
+
+    @NonNull
+    @ColumnInfo(name = "created_at")
+    private String createdAt;
+
+    /** Версия содержимого на сервере */
+    @NonNull
+    @ColumnInfo(name = "updated_at")
+    private String updatedAt;
+
+    @Nullable
+    @ColumnInfo(name = "etag")
+    private String etag;
+
+    @ColumnInfo(name = "fetched_at")
+    private long fetchedAt;
+
+    @ColumnInfo(name = "last_accessed_at")
+    private long lastAccessedAt;
+
+    @ColumnInfo(name = "size_bytes")
+    private int sizeBytes;
+
+    public CachedContentEntity() {
+        this.kind = "";
+        this.contentId = "";
+        this.title = "";
+        this.body = "";
+        this.createdAt = "";
+        this.updatedAt = "";
+    }
+
+    @Ignore
+    public CachedContentEntity(@NonNull String kind, @NonNull String contentId, int remoteId, int egeNumber,
+                               @NonNull String title, @NonNull String body,
+                               @NonNull String createdAt, @NonNull String updatedAt,
+                               @Nullable String etag, long fetchedAt) {
+        this.kind = kind;
+        this.contentId = contentId;
+        this.remoteId = remoteId;
+        this.egeNumber = egeNumber;
+        this.title = title;
+        this.body = body;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+        this.etag = etag;
+        this.fetchedAt = fetchedAt;
+        this.lastAccessedAt = fetchedAt;
+        this.sizeBytes = (title.length() + body.length()) * 2;
+    }
+
+    @NonNull
+    public String getKind() {
+        return kind;
+    }
+
+    public void setKind(@NonNull String kind) {
+        this.kind = kind;
+    }
+
+    @NonNull
+    public String getContentId() {
+        return contentId;
+    }
+
+    public void setContentId(@NonNull String contentId) {
+        this.contentId = contentId;
+    }
+
+    public int getRemoteId() {
+        return remoteId;
+    }
+
+    public void setRemoteId(int remoteId) {
+        this.remoteId = remoteId;
+    }
+
+    public int getEgeNumber() {
+        return egeNumber;
+    }
+
+    public void setEgeNumber(int egeNumber) {
+        this.egeNumber = egeNumber;
+    }
+
+    @NonNull
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(@NonNull String title) {
+        this.title = title;
+    }
+
+    @NonNull
+    public String getBody() {
+        return body;
+    }
+
+    public void setBody(@NonNull String body) {
+        this.body = body;
+    }
+
+    @NonNull
+    public String getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(@NonNull String createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    @NonNull
+    public String getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(@NonNull String updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    @Nullable
+    public String getEtag() {
+        return etag;
+    }
+
+    public void setEtag(@Nullable String etag) {
+        this.etag = etag;
+    }
+
+    public long getFetchedAt() {
+        return fetchedAt;
+    }
+
+    public void setFetchedAt(long fetchedAt) {
+        this.fetchedAt = fetchedAt;
+    }
+
+    public long getLastAccessedAt() {
+        return lastAccessedAt;
+    }
+
+    public void setLastAccessedAt(long lastAccessedAt) {
+        this.lastAccessedAt = lastAccessedAt;
+    }
+
+    public int getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public void setSizeBytes(int sizeBytes) {
+        this.sizeBytes = sizeBytes;
+    }
+}
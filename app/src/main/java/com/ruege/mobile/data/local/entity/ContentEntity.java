@@ -21,7 +21,8 @@ import androidx.room.Ignore;
         )
     },
     indices = {
-        @Index(name = "index_contents_parent_id", value = "parent_id")
+        @Index(name = "index_contents_parent_id", value = "parent_id"),
+        @Index(name = "index_contents_type_order_position", value = {"type", "order_position"})
     }
 )
 public class ContentEntity {
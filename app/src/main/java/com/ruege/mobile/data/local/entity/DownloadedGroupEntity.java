@@ -0,0 +1,44 @@
+package com.ruege.mobile.data.local.entity;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * Сводка по скачанной группе заданий. Ведется в TaskDao в одной транзакции
+ * с записью в tasks, чтобы списки тем не перечитывали всю таблицу tasks.
+ */
+@Entity(tableName = "downloaded_groups")
+public class DownloadedGroupEntity {
+
+    @PrimaryKey
+    @NonNull
+    @ColumnInfo(name = "ege_number")
+    private String egeNumber;
+
+    @ColumnInfo(name = "task_count")
+    private int taskCount;
+
+    @ColumnInfo(name = "downloaded_at")
+    private long downloadedAt;
+
+    public DownloadedGroupEntity(@NonNull String egeNumber, int taskCount, long downloadedAt) {
+        this.egeNumber = egeNumber;
+        this.taskCount = taskCount;
+        this.downloadedAt = downloadedAt;
+    }
+
+    @NonNull
+    public String getEgeNumber() {
+        return egeNumber;
+    }
+
+    public int getTaskCount() {
+        return taskCount;
+    }
+
+    public long getDownloadedAt() {
+        return downloadedAt;
+    }
+}
@@ -0,0 +1,104 @@
+package com.ruege.mobile.data.local.entity;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+
+/**
+ * Вклад одного устройства в счетчики попыток по заданию (компоненты PN-счетчика).
+ * Итоговые total_attempts/correct_attempts в practice_statistics - сумма по всем устройствам.
+ */
+@Entity(
+    tableName = "practice_attempt_counters",
+    primaryKeys = {"ege_number", "device_id"}
+)
+public class PracticeAttemptCounterEntity {
+
+    @NonNull
+    @ColumnInfo(name = "ege_number")
+    private String egeNumber;
+
+    @NonNull
+    @ColumnInfo(name = "device_id")
+    private String deviceId;
+
+    @ColumnInfo(name = "total_increments", defaultValue = "0")
+    private long totalIncrements;
+
+    @ColumnInfo(name = "total_decrements", defaultValue = "0")
+    private long totalDecrements;
+
+    @ColumnInfo(name = "correct_increments", defaultValue = "0")
+    private long correctIncrements;
+
+    @ColumnInfo(name = "correct_decrements", defaultValue = "0")
+    private long correctDecrements;
+
+    public PracticeAttemptCounterEntity() {
+        this.egeNumber = "";
+        this.deviceId = "";
+    }
+
+    @Ignore
+    public PracticeAttemptCounterEntity(@NonNull String egeNumber, @NonNull String deviceId,
+                                        long totalIncrements, long totalDecrements,
+                                        long correctIncrements, long correctDecrements) {
+        this.egeNumber = egeNumber;
+        this.deviceId = deviceId;
+        this.totalIncrements = totalIncrements;
+        this.totalDecrements = totalDecrements;
+        this.correctIncrements = correctIncrements;
+        this.correctDecrements = correctDecrements;
+    }
+
+    @NonNull
+    public String getEgeNumber() {
+        return egeNumber;
+    }
+
+    public void setEgeNumber(@NonNull String egeNumber) {
+        this.egeNumber = egeNumber;
+    }
+
+    @NonNull
+    public String getDeviceId() {
+        return deviceId;
+    }
+
+    public void setDeviceId(@NonNull String deviceId) {
+        this.deviceId = deviceId;
+    }
+
+    public long getTotalIncrements() {
+        return totalIncrements;
+    }
+
+    public void setTotalIncrements(long totalIncrements) {
+        this.totalIncrements = totalIncrements;
+    }
+
+    public long getTotalDecrements() {
+        return totalDecrements;
+    }
+
+    public void setTotalDecrements(long totalDecrements) {
+        this.totalDecrements = totalDecrements;
+    }
+
+    public long getCorrectIncrements() {
+        return correctIncrements;
+    }
+
+    public void setCorrectIncrements(long correctIncrements) {
+        this.correctIncrements = correctIncrements;
+    }
+
+    public long getCorrectDecrements() {
+        return correctDecrements;
+    }
+
+    public void setCorrectDecrements(long correctDecrements) {
+        this.correctDecrements = correctDecrements;
+    }
+}
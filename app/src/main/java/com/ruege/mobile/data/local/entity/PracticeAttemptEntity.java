@@ -9,7 +9,8 @@ import androidx.room.PrimaryKey;
 @Entity(
     tableName = "practice_attempts",
     indices = {
-        @Index(name = "index_practice_attempts_task_id", value = "task_id")
+        @Index(name = "index_practice_attempts_task_id", value = "task_id"),
+        @Index(name = "index_practice_attempts_attempt_date", value = "attempt_date")
     }
 )
 public class PracticeAttemptEntity {
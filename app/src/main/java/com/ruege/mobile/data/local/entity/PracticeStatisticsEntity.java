@@ -5,11 +5,22 @@ import androidx.annotation.Nullable;
 import androidx.room.ColumnInfo;
 import androidx.room.Entity;
 import androidx.room.Ignore;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
-@Entity(tableName = "practice_statistics")
+import java.util.Locale;
+
+@Entity(tableName = "practice_statistics",
+        indices = {
+            @Index(value = {"kind", "task_number"}),
+            @Index(value = {"kind", "last_attempt_date"})
+        })
 public class PracticeStatisticsEntity {
 
+    public static final String KIND_TASK = "task";
+    public static final String KIND_VARIANT = "variant";
+    public static final String KIND_ESSAY = "essay";
+
     @PrimaryKey
     @NonNull
     @ColumnInfo(name = "ege_number")
@@ -28,6 +39,21 @@ public class PracticeStatisticsEntity {
     @ColumnInfo(name = "variant_data")
     private String variantData;
 
+    /**
+     * Вид статистики: задание, вариант или сочинение.
+     * Выводится из ege_number, хранится отдельно ради индекса
+     */
+    @NonNull
+    @ColumnInfo(name = "kind", defaultValue = "'task'")
+    private String kind = KIND_TASK;
+
+    /**
+     * Номер задания для сортировки, только для kind = task
+     */
+    @Nullable
+    @ColumnInfo(name = "task_number")
+    private Integer taskNumber;
+
     public PracticeStatisticsEntity() {
     }
 
@@ -39,6 +65,7 @@ public class PracticeStatisticsEntity {
         this.correctAttempts = correctAttempts;
         this.lastAttemptDate = lastAttemptDate;
         this.variantData = null;
+        applyKind(egeNumber);
     }
     
     @Ignore
@@ -49,6 +76,41 @@ public class PracticeStatisticsEntity {
         this.correctAttempts = correctAttempts;
         this.lastAttemptDate = lastAttemptDate;
         this.variantData = variantData;
+        applyKind(egeNumber);
+    }
+
+    /**
+     * Вид статистики по ege_number, по тем же правилам, что и миграция 31 -> 32:
+     * "essay:..." - сочинение, ключ с '_' (имя_время) - вариант, остальное - задание
+     */
+    @NonNull
+    public static String kindOf(@Nullable String egeNumber) {
+        if (egeNumber == null) return KIND_TASK;
+        if (egeNumber.toLowerCase(Locale.ROOT).startsWith("essay:")) return KIND_ESSAY;
+        if (egeNumber.indexOf('_') >= 0) return KIND_VARIANT;
+        return KIND_TASK;
+    }
+
+    /**
+     * Номер задания для сортировки или null, если ege_number не число или это не задание
+     */
+    @Nullable
+    public static Integer taskNumberOf(@Nullable String egeNumber) {
+        if (egeNumber == null || egeNumber.isEmpty() || !KIND_TASK.equals(kindOf(egeNumber))) return null;
+        for (int i = 0; i < egeNumber.length(); i++) {
+            char c = egeNumber.charAt(i);
+            if (c < '0' || c > '9') return null;
+        }
+        try {
+            return Integer.valueOf(egeNumber);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void applyKind(@Nullable String egeNumber) {
+        this.kind = kindOf(egeNumber);
+        this.taskNumber = taskNumberOf(egeNumber);
     }
 
     @NonNull
@@ -73,8 +135,27 @@ public class PracticeStatisticsEntity {
         return variantData;
     }
 
+    @NonNull
+    public String getKind() {
+        return kind;
+    }
+
+    @Nullable
+    public Integer getTaskNumber() {
+        return taskNumber;
+    }
+
     public void setEgeNumber(@NonNull String egeNumber) {
         this.egeNumber = egeNumber;
+        applyKind(egeNumber);
+    }
+
+    public void setKind(@NonNull String kind) {
+        this.kind = kind;
+    }
+
+    public void setTaskNumber(@Nullable Integer taskNumber) {
+        this.taskNumber = taskNumber;
     }
 
     public void setTotalAttempts(int totalAttempts) {
@@ -8,9 +8,6 @@ import androidx.room.Ignore;
 import androidx.room.Index;
 import androidx.room.PrimaryKey;
 import org.json.JSONArray;
-import org.json.JSONException;
-import timber.log.Timber;
-import java.util.ArrayList;
 import java.util.List;
 
 @Entity(
@@ -48,13 +45,15 @@ public class ProgressEntity {
     @ColumnInfo(name = "user_id")
     private long userId;
     
+    /**
+     * Устаревшее JSON-представление решенных заданий. Источник истины - таблица
+     * progress_solved_tasks; колонку читает только миграция 30 -> 31, новые записи
+     * хранят в ней "[]".
+     */
     @Nullable
     @ColumnInfo(name = "solved_task_ids")
     private String solvedTaskIds;
 
-    @Ignore
-    private List<String> solvedTaskIdsCache = null;
-
     public ProgressEntity() {
     }
 
@@ -170,7 +169,6 @@ public class ProgressEntity {
     
     public void setSolvedTaskIds(@Nullable String solvedTaskIds) {
         this.solvedTaskIds = solvedTaskIds;
-        this.solvedTaskIdsCache = null;
     }
 
     /**
@@ -194,41 +192,6 @@ public class ProgressEntity {
         }
     }
     
-    /**
-     * Возвращает список ID решенных заданий
-     */
-    public List<String> getSolvedTaskIdsList() {
-        if (solvedTaskIdsCache != null) {
-            return solvedTaskIdsCache;
-        }
-        
-        List<String> taskIds = new ArrayList<>();
-        
-        if (solvedTaskIds == null || solvedTaskIds.isEmpty() || solvedTaskIds.equals("[]")) {
-            solvedTaskIdsCache = taskIds;
-            return taskIds;
-        }
-        
-        try {
-            JSONArray jsonArray = new JSONArray(solvedTaskIds);
-            for (int i = 0; i < jsonArray.length(); i++) {
-                taskIds.add(jsonArray.getString(i));
-            }
-            solvedTaskIdsCache = taskIds;
-        } catch (JSONException e) {
-            Timber.d("Ошибка при парсинге списка решенных заданий", e);
-        }
-        
-        return taskIds;
-    }
-    
-    /**
-     * Проверяет, решено ли задание с указанным ID
-     */
-    public boolean isTaskSolved(String taskId) {
-        return getSolvedTaskIdsList().contains(taskId);
-    }
-    
     /**
      * Преобразует список ID заданий в JSON-строку
      */
@@ -0,0 +1,66 @@
+package com.ruege.mobile.data.local.entity;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+
+/**
+ * Решенное задание внутри группы прогресса. Составной первичный ключ
+ * (content_id, task_id) служит индексом и для подсчета, и для проверки "решено ли".
+ */
+@Entity(
+    tableName = "progress_solved_tasks",
+    primaryKeys = {"content_id", "task_id"}
+)
+public class ProgressSolvedTaskEntity {
+
+    @NonNull
+    @ColumnInfo(name = "content_id")
+    private String contentId;
+
+    @NonNull
+    @ColumnInfo(name = "task_id")
+    private String taskId;
+
+    @ColumnInfo(name = "solved_at")
+    private long solvedAt;
+
+    public ProgressSolvedTaskEntity() {
+        this.contentId = "";
+        this.taskId = "";
+    }
+
+    @Ignore
+    public ProgressSolvedTaskEntity(@NonNull String contentId, @NonNull String taskId, long solvedAt) {
+        this.contentId = contentId;
+        this.taskId = taskId;
+        this.solvedAt = solvedAt;
+    }
+
+    @NonNull
+    public String getContentId() {
+        return contentId;
+    }
+
+    public void setContentId(@NonNull String contentId) {
+        this.contentId = contentId;
+    }
+
+    @NonNull
+    public String getTaskId() {
+        return taskId;
+    }
+
+    public void setTaskId(@NonNull String taskId) {
+        this.taskId = taskId;
+    }
+
+    public long getSolvedAt() {
+        return solvedAt;
+    }
+
+    public void setSolvedAt(long solvedAt) {
+        this.solvedAt = solvedAt;
+    }
+}
@@ -1,18 +1,26 @@
 package com.ruege.mobile.data.local.entity;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.room.ColumnInfo;
 import androidx.room.Entity;
 import androidx.room.PrimaryKey;
 import androidx.room.TypeConverters;
 import androidx.room.Ignore;
+import androidx.room.Index;
 import com.ruege.mobile.data.local.converter.SyncStatusConverter;
 
 /**
  * Сущность очереди синхронизации прогресса и статистики.
  * Используется для хранения изменений, которые необходимо синхронизировать с сервером.
  */
-@Entity(tableName = "progress_and_static_sync_queue")
+@Entity(
+    tableName = "progress_and_static_sync_queue",
+    indices = {
+        @Index(value = {"sync_status", "timestamp"}),
+        @Index(value = "item_id")
+    }
+)
 @TypeConverters(SyncStatusConverter.class)
 public class ProgressSyncQueueEntity {
 
@@ -55,9 +63,47 @@ public class ProgressSyncQueueEntity {
     @ColumnInfo(name = "error_message")
     private String errorMessage;
 
+    /**
+     * Время, раньше которого запись не будет повторно отправляться (экспоненциальная задержка)
+     */
+    @ColumnInfo(name = "next_attempt_at", defaultValue = "0")
+    private long nextAttemptAt;
+
+    /**
+     * Устаревшая колонка, новые записи хранят "[]". Полный список для отправки
+     * читается из progress_solved_tasks.
+     */
     @ColumnInfo(name = "solved_task_ids")
     private String solvedTaskIds;
 
+    /**
+     * JSON-массив ID заданий, решенных после последней подтвержденной сервером синхронизации.
+     * null означает, что для записи требуется полная отправка списка solved_task_ids.
+     */
+    @Nullable
+    @ColumnInfo(name = "delta_task_ids")
+    private String deltaTaskIds;
+
+    /**
+     * Порядковый номер изменения записи, увеличивается при каждом обновлении в очереди.
+     */
+    @ColumnInfo(name = "sequence", defaultValue = "0")
+    private long sequence;
+
+    /**
+     * Идентификатор операции, генерируется клиентом при каждом изменении записи.
+     * Сервер использует его, чтобы не применять повторно уже обработанное изменение.
+     */
+    @Nullable
+    @ColumnInfo(name = "operation_id")
+    private String operationId;
+
+    /**
+     * Монотонно растущий номер операции в пределах устройства
+     */
+    @ColumnInfo(name = "device_sequence", defaultValue = "0")
+    private long deviceSequence;
+
     /**
      * Конструктор по умолчанию, требуется для Room
      */
@@ -80,6 +126,7 @@ public class ProgressSyncQueueEntity {
         this.retryCount = 0;
         this.lastSyncAttempt = 0;
         this.errorMessage = "";
+        this.nextAttemptAt = 0;
         this.solvedTaskIds = solvedTaskIds;
     }
 
@@ -173,6 +220,14 @@ public class ProgressSyncQueueEntity {
         this.errorMessage = errorMessage;
     }
 
+    public long getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(long nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
     public String getSolvedTaskIds() {
         return solvedTaskIds;
     }
@@ -180,4 +235,45 @@ public class ProgressSyncQueueEntity {
     public void setSolvedTaskIds(String solvedTaskIds) {
         this.solvedTaskIds = solvedTaskIds;
     }
+
+    @Nullable
+    public String getDeltaTaskIds() {
+        return deltaTaskIds;
+    }
+
+    public void setDeltaTaskIds(@Nullable String deltaTaskIds) {
+        this.deltaTaskIds = deltaTaskIds;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    @Nullable
+    public String getOperationId() {
+        return operationId;
+    }
+
+    public void setOperationId(@Nullable String operationId) {
+        this.operationId = operationId;
+    }
+
+    public long getDeviceSequence() {
+        return deviceSequence;
+    }
+
+    public void setDeviceSequence(long deviceSequence) {
+        this.deviceSequence = deviceSequence;
+    }
+
+    /**
+     * Можно ли отправить запись в delta-режиме (только новые решенные задания)
+     */
+    public boolean hasDelta() {
+        return deltaTaskIds != null;
+    }
 } 
\ No newline at end of file
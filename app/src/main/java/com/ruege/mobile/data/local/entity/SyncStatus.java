@@ -15,7 +15,13 @@ public enum SyncStatus {
 
     FAILED("FAILED"),
     
-    CONFLICT("CONFLICT");
+    CONFLICT("CONFLICT"),
+
+    /**
+     * Запись исчерпала лимит повторных попыток (например, сервер стабильно отвечает 4xx)
+     * и больше не отправляется автоматически
+     */
+    DEAD_LETTER("DEAD_LETTER");
 
     private final String value;
 
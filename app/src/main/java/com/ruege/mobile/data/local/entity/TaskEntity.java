@@ -2,13 +2,19 @@ package com.ruege.mobile.data.local.entity;
 
 import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import com.ruege.mobile.model.AnswerType;
 import com.ruege.mobile.model.TaskItem;
 
-@Entity(tableName = "tasks")
+@Entity(
+    tableName = "tasks",
+    indices = {
+        @Index(name = "index_tasks_ege_number", value = "ege_number")
+    }
+)
 public class TaskEntity {
 
     @PrimaryKey
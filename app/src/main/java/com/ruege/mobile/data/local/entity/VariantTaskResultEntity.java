@@ -0,0 +1,110 @@
+package com.ruege.mobile.data.local.entity;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+
+/**
+ * Результат одного задания в пройденном варианте. Строки принадлежат записи
+ * practice_statistics с тем же ege_number (kind = variant) и заменяют разбор
+ * JSON из variant_data при показе статистики.
+ */
+@Entity(
+    tableName = "variant_task_results",
+    primaryKeys = {"ege_number", "position"}
+)
+public class VariantTaskResultEntity {
+
+    @NonNull
+    @ColumnInfo(name = "ege_number")
+    private String egeNumber;
+
+    @ColumnInfo(name = "position")
+    private int position;
+
+    @NonNull
+    @ColumnInfo(name = "task_id")
+    private String taskId;
+
+    @NonNull
+    @ColumnInfo(name = "user_answer")
+    private String userAnswer;
+
+    @NonNull
+    @ColumnInfo(name = "correct_answer")
+    private String correctAnswer;
+
+    @ColumnInfo(name = "is_correct")
+    private boolean isCorrect;
+
+    public VariantTaskResultEntity() {
+        this.egeNumber = "";
+        this.taskId = "";
+        this.userAnswer = "";
+        this.correctAnswer = "";
+    }
+
+    @Ignore
+    public VariantTaskResultEntity(@NonNull String egeNumber, int position, @NonNull String taskId,
+                                   @NonNull String userAnswer, @NonNull String correctAnswer, boolean isCorrect) {
+        this.egeNumber = egeNumber;
+        this.position = position;
+        this.taskId = taskId;
+        this.userAnswer = userAnswer;
+        this.correctAnswer = correctAnswer;
+        this.isCorrect = isCorrect;
+    }
+
+    @NonNull
+    public String getEgeNumber() {
+        return egeNumber;
+    }
+
+    public void setEgeNumber(@NonNull String egeNumber) {
+        this.egeNumber = egeNumber;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public void setPosition(int position) {
+        this.position = position;
+    }
+
+    @NonNull
+    public String getTaskId() {
+        return taskId;
+    }
+
+    public void setTaskId(@NonNull String taskId) {
+        this.taskId = taskId;
+    }
+
+    @NonNull
+    public String getUserAnswer() {
+        return userAnswer;
+    }
+
+    public void setUserAnswer(@NonNull String userAnswer) {
+        this.userAnswer = userAnswer;
+    }
+
+    @NonNull
+    public String getCorrectAnswer() {
+        return correctAnswer;
+    }
+
+    public void setCorrectAnswer(@NonNull String correctAnswer) {
+        this.correctAnswer = correctAnswer;
+    }
+
+    public boolean isCorrect() {
+        return isCorrect;
+    }
+
+    public void setCorrect(boolean correct) {
+        isCorrect = correct;
+    }
+}
@@ -0,0 +1,236 @@
+package com.ruege.mobile.data.local.metrics
+
+import android.content.Context
+import android.content.SharedPreferences
+import org.json.JSONArray
+import org.json.JSONObject
+import timber.log.Timber
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Накопленная статистика одного SQL-запроса с момента запуска процесса
+ */
+class QueryStat(val sql: String, val caller: String) {
+    var count: Long = 0
+        private set
+    var totalMs: Double = 0.0
+        private set
+    var maxMs: Double = 0.0
+        private set
+    var totalRows: Long = 0
+        private set
+
+    /** Число выполнений по корзинам QueryMetrics.BUCKET_BOUNDS_MS, последняя - все, что дольше */
+    val buckets = LongArray(QueryMetrics.BUCKET_BOUNDS_MS.size + 1)
+
+    @Synchronized
+    internal fun add(durationMs: Double, rows: Int) {
+        count++
+        totalMs += durationMs
+        totalRows += rows
+        if (durationMs > maxMs) maxMs = durationMs
+        val bucket = QueryMetrics.BUCKET_BOUNDS_MS.indexOfFirst { durationMs < it }
+        buckets[if (bucket == -1) buckets.size - 1 else bucket]++
+    }
+
+    val avgMs: Double get() = if (count == 0L) 0.0 else totalMs / count
+}
+
+/**
+ * Запись журнала медленных запросов
+ */
+data class SlowQueryRecord(
+    val timestamp: Long,
+    val sql: String,
+    val caller: String,
+    val durationMs: Double,
+    val rows: Int,
+    val thread: String
+) {
+    fun toJson(): JSONObject {
+        return JSONObject()
+            .put("timestamp", timestamp)
+            .put("sql", sql)
+            .put("caller", caller)
+            .put("durationMs", durationMs)
+            .put("rows", rows)
+            .put("thread", thread)
+    }
+
+    companion object {
+        fun fromJson(json: JSONObject): SlowQueryRecord {
+            return SlowQueryRecord(
+                timestamp = json.optLong("timestamp"),
+                sql = json.optString("sql"),
+                caller = json.optString("caller"),
+                durationMs = json.optDouble("durationMs"),
+                rows = json.optInt("rows"),
+                thread = json.optString("thread")
+            )
+        }
+    }
+}
+
+/**
+ * Измерения запросов к базе: гистограмма времени по каждому SQL (в памяти)
+ * и кольцевой журнал запросов дольше SLOW_QUERY_THRESHOLD_MS, который хранится локально.
+ * Заполняется TimingOpenHelperFactory (только в отладочной сборке), просматривается
+ * на экране диагностики.
+ */
+object QueryMetrics {
+
+    const val SLOW_QUERY_THRESHOLD_MS = 50.0
+    const val MAX_SLOW_RECORDS = 100
+    /** Предел числа разных запросов в статистике; сверх него все учитывается в OVERFLOW_KEY */
+    const val MAX_STATS = 200
+    const val OVERFLOW_KEY = "(прочие запросы)"
+    @JvmField
+    val BUCKET_BOUNDS_MS = doubleArrayOf(1.0, 4.0, 16.0, 64.0, 256.0)
+
+    private const val PREFS_NAME = "QueryMetricsPrefs"
+    private const val KEY_SLOW_QUERIES = "slow_queries"
+    /** Журнал пишется в SharedPreferences не чаще раза в интервал или после пачки записей */
+    private const val PERSIST_INTERVAL_MS = 30_000L
+    private const val PERSIST_BATCH = 10
+
+    /** Списки параметров IN (?, ?, ...) любой длины сводятся к одному ключу */
+    private val IN_LIST_PLACEHOLDERS = Regex("\\?(\\s*,\\s*\\?)+")
+
+    private val stats = ConcurrentHashMap<String, QueryStat>()
+    private var sharedPreferences: SharedPreferences? = null
+    private var slowQueries: ArrayDeque<SlowQueryRecord>? = null
+    private var pendingSlowWrites = 0
+    private var lastPersistAt = 0L
+
+    @JvmStatic
+    fun init(context: Context) {
+        if (sharedPreferences == null) {
+            sharedPreferences = context.applicationContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+        }
+    }
+
+    /**
+     * Учитывает одно выполнение запроса. Вызывающий метод DAO определяется по стеку
+     * только при первом выполнении данного SQL и для медленных запросов.
+     */
+    fun record(sql: String, durationMs: Double, rows: Int) {
+        val key = normalize(sql)
+        val stat = stats[key] ?: if (stats.size < MAX_STATS) {
+            stats.getOrPut(key) { QueryStat(key, findCaller()) }
+        } else {
+            stats.getOrPut(OVERFLOW_KEY) { QueryStat(OVERFLOW_KEY, "?") }
+        }
+        stat.add(durationMs, rows)
+        if (durationMs >= SLOW_QUERY_THRESHOLD_MS) {
+            val record = SlowQueryRecord(
+                System.currentTimeMillis(),
+                key,
+                findCaller(),
+                durationMs,
+                rows,
+                Thread.currentThread().name
+            )
+            Timber.w("QueryMetrics: медленный запрос %.1f мс (%s): %s", durationMs, record.caller, key)
+            recordSlow(record)
+        }
+    }
+
+    /**
+     * Статистика запросов, от самых затратных по суммарному времени
+     */
+    fun getStats(): List<QueryStat> = stats.values.sortedByDescending { it.totalMs }
+
+    /**
+     * Последние медленные запросы, от новых к старым
+     */
+    @Synchronized
+    fun getSlowQueries(): List<SlowQueryRecord> {
+        if (pendingSlowWrites > 0) persistSlowQueries()
+        return loadSlowQueries().reversed()
+    }
+
+    @Synchronized
+    fun clear() {
+        stats.clear()
+        slowQueries = ArrayDeque()
+        pendingSlowWrites = 0
+        sharedPreferences?.edit()?.remove(KEY_SLOW_QUERIES)?.apply()
+    }
+
+    /**
+     * Текстовый отчет для выгрузки с экрана диагностики
+     */
+    fun export(): String {
+        val builder = StringBuilder()
+        builder.append("calls\ttotal_ms\tavg_ms\tmax_ms\trows\t")
+        builder.append(BUCKET_BOUNDS_MS.joinToString("\t") { "<${it.toInt()}ms" })
+        builder.append("\t>=${BUCKET_BOUNDS_MS.last().toInt()}ms\tcaller\tsql\n")
+        for (stat in getStats()) {
+            synchronized(stat) {
+                builder.append(stat.count).append('\t')
+                    .append("%.1f".format(stat.totalMs)).append('\t')
+                    .append("%.2f".format(stat.avgMs)).append('\t')
+                    .append("%.1f".format(stat.maxMs)).append('\t')
+                    .append(stat.totalRows).append('\t')
+                    .append(stat.buckets.joinToString("\t")).append('\t')
+                    .append(stat.caller).append('\t')
+                    .append(stat.sql.replace('\n', ' ')).append('\n')
+            }
+        }
+        builder.append("\nslow queries (>= ${SLOW_QUERY_THRESHOLD_MS} ms)\n")
+        builder.append(JSONArray().apply { getSlowQueries().forEach { put(it.toJson()) } }.toString(2))
+        return builder.toString()
+    }
+
+    @Synchronized
+    private fun recordSlow(record: SlowQueryRecord) {
+        val buffer = loadSlowQueries()
+        buffer.addLast(record)
+        while (buffer.size > MAX_SLOW_RECORDS) {
+            buffer.removeFirst()
+        }
+        pendingSlowWrites++
+        if (pendingSlowWrites >= PERSIST_BATCH || record.timestamp - lastPersistAt >= PERSIST_INTERVAL_MS) {
+            persistSlowQueries()
+        }
+    }
+
+    private fun persistSlowQueries() {
+        val prefs = sharedPreferences ?: return
+        val json = JSONArray()
+        loadSlowQueries().forEach { json.put(it.toJson()) }
+        prefs.edit().putString(KEY_SLOW_QUERIES, json.toString()).apply()
+        pendingSlowWrites = 0
+        lastPersistAt = System.currentTimeMillis()
+    }
+
+    /**
+     * Ключ статистики: SQL без различий в длине списков параметров IN
+     */
+    internal fun normalize(sql: String): String = IN_LIST_PLACEHOLDERS.replace(sql, "?, ...")
+
+    private fun loadSlowQueries(): ArrayDeque<SlowQueryRecord> {
+        slowQueries?.let { return it }
+        val loaded = ArrayDeque<SlowQueryRecord>()
+        try {
+            val json = JSONArray(sharedPreferences?.getString(KEY_SLOW_QUERIES, "[]") ?: "[]")
+            for (i in 0 until json.length()) {
+                loaded.addLast(SlowQueryRecord.fromJson(json.getJSONObject(i)))
+            }
+        } catch (e: Exception) {
+            Timber.w(e, "QueryMetrics: не удалось прочитать журнал медленных запросов")
+        }
+        slowQueries = loaded
+        return loaded
+    }
+
+    /**
+     * Ближайший к запросу кадр сгенерированного Room класса (*Dao_Impl),
+     * например TaskDao_Impl.getTasksByEgeNumberSync или TaskDao_Impl$7.call для Flow
+     */
+    private fun findCaller(): String {
+        val frame = Thread.currentThread().stackTrace.firstOrNull { it.className.contains("Dao_Impl") }
+            ?: return "?"
+        return frame.className.substringAfterLast('.') + "." + frame.methodName
+    }
+}
@@ -0,0 +1,130 @@
+package com.ruege.mobile.data.local.metrics
+
+import android.database.Cursor
+import android.os.CancellationSignal
+import android.os.SystemClock
+import androidx.sqlite.db.SupportSQLiteDatabase
+import androidx.sqlite.db.SupportSQLiteOpenHelper
+import androidx.sqlite.db.SupportSQLiteQuery
+import androidx.sqlite.db.SupportSQLiteStatement
+
+/**
+ * Обертка над фабрикой SQLite, замеряющая каждый запрос Room и передающая
+ * время и число строк в QueryMetrics. Для SELECT в замер входит cursor.count:
+ * выборка выполняется только при первом обращении к курсору, а сгенерированный
+ * Room код все равно запрашивает count для размера списка.
+ * Подключается только в отладочной сборке (AppDatabase.getInstance).
+ */
+class TimingOpenHelperFactory(
+    private val delegate: SupportSQLiteOpenHelper.Factory
+) : SupportSQLiteOpenHelper.Factory {
+
+    override fun create(configuration: SupportSQLiteOpenHelper.Configuration): SupportSQLiteOpenHelper {
+        return TimingOpenHelper(delegate.create(configuration))
+    }
+}
+
+private class TimingOpenHelper(
+    private val delegate: SupportSQLiteOpenHelper
+) : SupportSQLiteOpenHelper by delegate {
+
+    @Volatile
+    private var wrapped: TimingDatabase? = null
+
+    override val writableDatabase: SupportSQLiteDatabase
+        get() = wrap(delegate.writableDatabase)
+
+    override val readableDatabase: SupportSQLiteDatabase
+        get() = wrap(delegate.readableDatabase)
+
+    private fun wrap(database: SupportSQLiteDatabase): SupportSQLiteDatabase {
+        wrapped?.let { if (it.delegate === database) return it }
+        return TimingDatabase(database).also { wrapped = it }
+    }
+}
+
+private class TimingDatabase(
+    val delegate: SupportSQLiteDatabase
+) : SupportSQLiteDatabase by delegate {
+
+    override fun query(query: String): Cursor =
+        timedQuery(query) { delegate.query(query) }
+
+    override fun query(query: String, bindArgs: Array<out Any?>): Cursor =
+        timedQuery(query) { delegate.query(query, bindArgs) }
+
+    override fun query(query: SupportSQLiteQuery): Cursor =
+        timedQuery(query.sql) { delegate.query(query) }
+
+    override fun query(query: SupportSQLiteQuery, cancellationSignal: CancellationSignal?): Cursor =
+        timedQuery(query.sql) { delegate.query(query, cancellationSignal) }
+
+    override fun execSQL(sql: String) {
+        timed(sql) { delegate.execSQL(sql); 0 }
+    }
+
+    override fun execSQL(sql: String, bindArgs: Array<out Any?>) {
+        timed(sql) { delegate.execSQL(sql, bindArgs); 0 }
+    }
+
+    override fun compileStatement(sql: String): SupportSQLiteStatement {
+        return TimingStatement(delegate.compileStatement(sql), sql)
+    }
+
+    private inline fun timedQuery(sql: String, block: () -> Cursor): Cursor {
+        val start = SystemClock.elapsedRealtimeNanos()
+        val cursor = block()
+        val rows = cursor.count
+        QueryMetrics.record(sql, elapsedMs(start), rows)
+        return cursor
+    }
+}
+
+private class TimingStatement(
+    private val delegate: SupportSQLiteStatement,
+    private val sql: String
+) : SupportSQLiteStatement by delegate {
+
+    override fun execute() {
+        timed(sql) { delegate.execute(); 0 }
+    }
+
+    override fun executeUpdateDelete(): Int {
+        var affected = 0
+        timed(sql) { delegate.executeUpdateDelete().also { affected = it } }
+        return affected
+    }
+
+    override fun executeInsert(): Long {
+        var rowId = -1L
+        timed(sql) {
+            rowId = delegate.executeInsert()
+            if (rowId == -1L) 0 else 1
+        }
+        return rowId
+    }
+
+    override fun simpleQueryForLong(): Long {
+        var value = 0L
+        timed(sql) { value = delegate.simpleQueryForLong(); 1 }
+        return value
+    }
+
+    override fun simpleQueryForString(): String? {
+        var value: String? = null
+        timed(sql) { value = delegate.simpleQueryForString(); 1 }
+        return value
+    }
+}
+
+/**
+ * Выполняет block и учитывает его время; block возвращает число затронутых строк
+ */
+private inline fun timed(sql: String, block: () -> Int) {
+    val start = SystemClock.elapsedRealtimeNanos()
+    val rows = block()
+    QueryMetrics.record(sql, elapsedMs(start), rows)
+}
+
+private fun elapsedMs(startNanos: Long): Double =
+    (SystemClock.elapsedRealtimeNanos() - startNanos) / 1_000_000.0
@@ -0,0 +1,279 @@
+package com.ruege.mobile.data.local.migration;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.annotation.NonNull;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import timber.log.Timber;
+
+/**
+ * Миграции схемы AppDatabase. Каждая миграция переводит базу ровно на одну версию
+ * и должна повторять DDL, который Room генерирует для сущностей (см. app/schemas).
+ */
+public final class DatabaseMigrations {
+
+    private DatabaseMigrations() {
+    }
+
+    /**
+     * 25 -> 26: delta-синхронизация прогресса (дельта решенных заданий и номер изменения записи).
+     * Для существующих записей delta_task_ids = NULL, то есть они отправятся полным списком.
+     */
+    public static final Migration MIGRATION_25_26 = new Migration(25, 26) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `progress_and_static_sync_queue` ADD COLUMN `delta_task_ids` TEXT");
+            db.execSQL("ALTER TABLE `progress_and_static_sync_queue` ADD COLUMN `sequence` INTEGER NOT NULL DEFAULT 0");
+        }
+    };
+
+    /**
+     * 26 -> 27: индексы очереди синхронизации по статусу/времени и по item_id
+     */
+    public static final Migration MIGRATION_26_27 = new Migration(26, 27) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_progress_and_static_sync_queue_sync_status_timestamp` " +
+                "ON `progress_and_static_sync_queue` (`sync_status`, `timestamp`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_progress_and_static_sync_queue_item_id` " +
+                "ON `progress_and_static_sync_queue` (`item_id`)");
+        }
+    };
+
+    /**
+     * 27 -> 28: время следующей попытки отправки для экспоненциальной задержки
+     */
+    public static final Migration MIGRATION_27_28 = new Migration(27, 28) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `progress_and_static_sync_queue` ADD COLUMN `next_attempt_at` INTEGER NOT NULL DEFAULT 0");
+        }
+    };
+
+    /**
+     * 28 -> 29: идентификатор операции и номер операции устройства для идемпотентной отправки
+     */
+    public static final Migration MIGRATION_28_29 = new Migration(28, 29) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `progress_and_static_sync_queue` ADD COLUMN `operation_id` TEXT");
+            db.execSQL("ALTER TABLE `progress_and_static_sync_queue` ADD COLUMN `device_sequence` INTEGER NOT NULL DEFAULT 0");
+        }
+    };
+
+    /**
+     * 29 -> 30: счетчики попыток по устройствам (PN-счетчики)
+     */
+    public static final Migration MIGRATION_29_30 = new Migration(29, 30) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `practice_attempt_counters` (" +
+                "`ege_number` TEXT NOT NULL, " +
+                "`device_id` TEXT NOT NULL, " +
+                "`total_increments` INTEGER NOT NULL DEFAULT 0, " +
+                "`total_decrements` INTEGER NOT NULL DEFAULT 0, " +
+                "`correct_increments` INTEGER NOT NULL DEFAULT 0, " +
+                "`correct_decrements` INTEGER NOT NULL DEFAULT 0, " +
+                "PRIMARY KEY(`ege_number`, `device_id`))");
+        }
+    };
+
+    /**
+     * 30 -> 31: решенные задания переезжают из JSON-колонки progress.solved_task_ids
+     * в таблицу progress_solved_tasks
+     */
+    public static final Migration MIGRATION_30_31 = new Migration(30, 31) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `progress_solved_tasks` (" +
+                "`content_id` TEXT NOT NULL, " +
+                "`task_id` TEXT NOT NULL, " +
+                "`solved_at` INTEGER NOT NULL, " +
+                "PRIMARY KEY(`content_id`, `task_id`))");
+            backfillSolvedTasks(db);
+        }
+    };
+
+    /**
+     * 31 -> 32: индексы под частые выборки и вид статистики отдельной колонкой
+     * вместо разбора ege_number через LIKE
+     */
+    public static final Migration MIGRATION_31_32 = new Migration(31, 32) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_tasks_ege_number` ON `tasks` (`ege_number`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_contents_type_order_position` ON `contents` (`type`, `order_position`)");
+
+            db.execSQL("ALTER TABLE `practice_statistics` ADD COLUMN `kind` TEXT NOT NULL DEFAULT 'task'");
+            db.execSQL("ALTER TABLE `practice_statistics` ADD COLUMN `task_number` INTEGER");
+            db.execSQL("UPDATE `practice_statistics` SET `kind` = CASE " +
+                "WHEN `ege_number` LIKE 'essay:%' THEN 'essay' " +
+                "WHEN `ege_number` LIKE '%#_%' ESCAPE '#' THEN 'variant' " +
+                "ELSE 'task' END");
+            db.execSQL("UPDATE `practice_statistics` SET `task_number` = CAST(`ege_number` AS INTEGER) " +
+                "WHERE `kind` = 'task' AND `ege_number` != '' AND `ege_number` NOT GLOB '*[^0-9]*'");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_practice_statistics_kind_task_number` ON `practice_statistics` (`kind`, `task_number`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_practice_statistics_kind_last_attempt_date` ON `practice_statistics` (`kind`, `last_attempt_date`)");
+        }
+    };
+
+    /**
+     * 32 -> 33: сводка скачанных групп заданий, заполняется из текущих tasks
+     */
+    public static final Migration MIGRATION_32_33 = new Migration(32, 33) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `downloaded_groups` (" +
+                "`ege_number` TEXT NOT NULL, " +
+                "`task_count` INTEGER NOT NULL, " +
+                "`downloaded_at` INTEGER NOT NULL, " +
+                "PRIMARY KEY(`ege_number`))");
+            db.execSQL("INSERT OR REPLACE INTO `downloaded_groups` (`ege_number`, `task_count`, `downloaded_at`) " +
+                "SELECT `ege_number`, COUNT(*), CAST(strftime('%s', 'now') AS INTEGER) * 1000 FROM `tasks` " +
+                "WHERE `ege_number` IS NOT NULL GROUP BY `ege_number`");
+        }
+    };
+
+    /**
+     * 33 -> 34: индекс для постраничной истории попыток
+     */
+    public static final Migration MIGRATION_33_34 = new Migration(33, 34) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_practice_attempts_attempt_date` ON `practice_attempts` (`attempt_date`)");
+        }
+    };
+
+    /**
+     * 34 -> 35: результаты заданий варианта в отдельной таблице вместо JSON в variant_data
+     */
+    public static final Migration MIGRATION_34_35 = new Migration(34, 35) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `variant_task_results` (" +
+                "`ege_number` TEXT NOT NULL, " +
+                "`position` INTEGER NOT NULL, " +
+                "`task_id` TEXT NOT NULL, " +
+                "`user_answer` TEXT NOT NULL, " +
+                "`correct_answer` TEXT NOT NULL, " +
+                "`is_correct` INTEGER NOT NULL, " +
+                "PRIMARY KEY(`ege_number`, `position`))");
+            backfillVariantTaskResults(db);
+        }
+    };
+
+    /**
+     * 35 -> 36: постоянное хранилище тел теории и сочинений content_cache
+     * с вытеснением по last_accessed_at; заполняется при первом открытии
+     */
+    public static final Migration MIGRATION_35_36 = new Migration(35, 36) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `content_cache` (" +
+                "`kind` TEXT NOT NULL, " +
+                "`content_id` TEXT NOT NULL, " +
+                "`remote_id` INTEGER NOT NULL, " +
+                "`ege_number` INTEGER NOT NULL, " +
+                "`title` TEXT NOT NULL, " +
+                "`body` TEXT NOT NULL, " +
+                "`created_at` TEXT NOT NULL, " +
+                "`updated_at` TEXT NOT NULL, " +
+                "`etag` TEXT, " +
+                "`fetched_at` INTEGER NOT NULL, " +
+                "`last_accessed_at` INTEGER NOT NULL, " +
+                "`size_bytes` INTEGER NOT NULL, " +
+                "PRIMARY KEY(`kind`, `content_id`))");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_content_cache_last_accessed_at` " +
+                "ON `content_cache` (`last_accessed_at`)");
+        }
+    };
+
+    /**
+     * Все миграции по порядку версий
+     */
+    public static final Migration[] ALL = {
+        MIGRATION_25_26,
+        MIGRATION_26_27,
+        MIGRATION_27_28,
+        MIGRATION_28_29,
+        MIGRATION_29_30,
+        MIGRATION_30_31,
+        MIGRATION_31_32,
+        MIGRATION_32_33,
+        MIGRATION_33_34,
+        MIGRATION_34_35,
+        MIGRATION_35_36
+    };
+
+    /**
+     * Версии, с которых пути миграции нет: такие базы пересоздаются
+     */
+    public static final int[] DESTRUCTIVE_FROM_VERSIONS = {
+        1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23, 24
+    };
+
+    private static void backfillSolvedTasks(SupportSQLiteDatabase db) {
+        int inserted = 0;
+        try (Cursor cursor = db.query("SELECT content_id, solved_task_ids, last_accessed FROM progress " +
+            "WHERE solved_task_ids IS NOT NULL AND solved_task_ids != '' AND solved_task_ids != '[]'")) {
+            while (cursor.moveToNext()) {
+                String contentId = cursor.getString(0);
+                String json = cursor.getString(1);
+                long solvedAt = cursor.getLong(2);
+                try {
+                    JSONArray taskIds = new JSONArray(json);
+                    for (int i = 0; i < taskIds.length(); i++) {
+                        ContentValues values = new ContentValues();
+                        values.put("content_id", contentId);
+                        values.put("task_id", taskIds.getString(i));
+                        values.put("solved_at", solvedAt);
+                        if (db.insert("progress_solved_tasks", SQLiteDatabase.CONFLICT_IGNORE, values) != -1) {
+                            inserted++;
+                        }
+                    }
+                } catch (JSONException e) {
+                    Timber.w(e, "Миграция 30->31: не удалось разобрать solved_task_ids для %s", contentId);
+                }
+            }
+        }
+        Timber.d("Миграция 30->31: перенесено решенных заданий: %d", inserted);
+    }
+
+    private static void backfillVariantTaskResults(SupportSQLiteDatabase db) {
+        int inserted = 0;
+        try (Cursor cursor = db.query("SELECT ege_number, variant_data FROM practice_statistics " +
+            "WHERE kind = 'variant' AND variant_data IS NOT NULL AND variant_data != ''")) {
+            while (cursor.moveToNext()) {
+                String egeNumber = cursor.getString(0);
+                String json = cursor.getString(1);
+                try {
+                    JSONArray tasks = new JSONArray(json);
+                    for (int i = 0; i < tasks.length(); i++) {
+                        JSONObject task = tasks.getJSONObject(i);
+                        ContentValues values = new ContentValues();
+                        values.put("ege_number", egeNumber);
+                        values.put("position", i);
+                        values.put("task_id", task.optString("task_id", ""));
+                        values.put("user_answer", task.optString("ответ", ""));
+                        values.put("correct_answer", task.optString("верный ответ", ""));
+                        values.put("is_correct", task.optBoolean("статус", false) ? 1 : 0);
+                        if (db.insert("variant_task_results", SQLiteDatabase.CONFLICT_REPLACE, values) != -1) {
+                            inserted++;
+                        }
+                    }
+                } catch (JSONException e) {
+                    Timber.w(e, "Миграция 34->35: не удалось разобрать variant_data для %s", egeNumber);
+                }
+            }
+        }
+        Timber.d("Миграция 34->35: перенесено результатов заданий вариантов: %d", inserted);
+    }
+}
@@ -0,0 +1,51 @@
+@file:JvmName("AttemptCounterMapper")
+package com.ruege.mobile.data.mapper
+
+import com.ruege.mobile.data.local.entity.PracticeAttemptCounterEntity
+import com.ruege.mobile.data.network.dto.request.AttemptCounterDto
+import com.ruege.mobile.data.sync.PNCounter
+
+/**
+ * Преобразует вклад устройства в DTO для отправки на сервер
+ */
+fun PracticeAttemptCounterEntity.toAttemptCounterDto(): AttemptCounterDto {
+    return AttemptCounterDto(
+        deviceId = getDeviceId(),
+        totalIncrements = getTotalIncrements(),
+        totalDecrements = getTotalDecrements(),
+        correctIncrements = getCorrectIncrements(),
+        correctDecrements = getCorrectDecrements()
+    )
+}
+
+/**
+ * Собирает PN-счетчики всех попыток и верных попыток из вкладов устройств
+ */
+fun List<AttemptCounterDto>.toPNCounters(): Pair<PNCounter, PNCounter> {
+    val total = PNCounter(
+        increments = associate { it.deviceId to it.totalIncrements },
+        decrements = associate { it.deviceId to it.totalDecrements }
+    )
+    val correct = PNCounter(
+        increments = associate { it.deviceId to it.correctIncrements },
+        decrements = associate { it.deviceId to it.correctDecrements }
+    )
+    return total to correct
+}
+
+/**
+ * Раскладывает PN-счетчики обратно на строки по устройствам
+ */
+fun toAttemptCounterEntities(egeNumber: String, total: PNCounter, correct: PNCounter): List<PracticeAttemptCounterEntity> {
+    val deviceIds = total.increments.keys + total.decrements.keys + correct.increments.keys + correct.decrements.keys
+    return deviceIds.map { deviceId ->
+        PracticeAttemptCounterEntity(
+            egeNumber,
+            deviceId,
+            total.increments[deviceId] ?: 0L,
+            total.decrements[deviceId] ?: 0L,
+            correct.increments[deviceId] ?: 0L,
+            correct.decrements[deviceId] ?: 0L
+        )
+    }
+}
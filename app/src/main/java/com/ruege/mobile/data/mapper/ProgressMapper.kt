@@ -3,6 +3,8 @@ package com.ruege.mobile.data.mapper
 
 import timber.log.Timber
 import com.ruege.mobile.data.local.entity.ProgressEntity
+import com.ruege.mobile.data.local.entity.ProgressSyncQueueEntity
+import com.ruege.mobile.data.network.dto.ProgressDeltaRequest
 import com.ruege.mobile.data.network.dto.ProgressUpdateRequest
 import com.ruege.mobile.data.network.dto.response.ProgressSyncItemDto
 import org.json.JSONArray
@@ -45,12 +47,8 @@ fun ProgressSyncItemDto.toProgressEntity(): ProgressEntity? {
         }
         
         entity.setDescription("")
-        
-        if (this.solvedTaskIds != null && this.solvedTaskIds.isNotEmpty()) {
-            entity.setSolvedTaskIds(ProgressEntity.listToJsonString(this.solvedTaskIds))
-        } else {
-            entity.setSolvedTaskIds("[]")
-        }
+        // Решенные задания с сервера кладутся в progress_solved_tasks, JSON-колонка не заполняется
+        entity.setSolvedTaskIds("[]")
         
         return entity
     } catch (e: Exception) {
@@ -61,19 +59,65 @@ fun ProgressSyncItemDto.toProgressEntity(): ProgressEntity? {
 
 /**
  * Преобразует сущность прогресса в DTO для обновления на сервере
+ * @param solvedTaskIds решенные задания из progress_solved_tasks
  */
-fun toProgressUpdateDto(progressEntity: ProgressEntity): ProgressUpdateRequest {
-    val solvedTaskIds = progressEntity.getSolvedTaskIdsList().takeIf { it.isNotEmpty() }
+fun toProgressUpdateDto(progressEntity: ProgressEntity, solvedTaskIds: List<String>): ProgressUpdateRequest {
+    val taskIds = solvedTaskIds.takeIf { it.isNotEmpty() }
     
     return ProgressUpdateRequest(
         contentId = progressEntity.getContentId(),
         percentage = progressEntity.getPercentage(),
         completed = progressEntity.isCompleted(),
         timestamp = progressEntity.getLastAccessed(),
-        solvedTaskIds = solvedTaskIds
+        solvedTaskIds = taskIds
+    )
+}
+
+/**
+ * Преобразует элемент очереди в delta-запрос. Возвращает null, если для элемента
+ * требуется полная отправка списка решенных заданий
+ */
+fun toProgressDeltaDto(item: ProgressSyncQueueEntity): ProgressDeltaRequest? {
+    if (!item.hasDelta()) {
+        return null
+    }
+
+    return ProgressDeltaRequest(
+        contentId = item.itemId,
+        percentage = item.percentage,
+        completed = item.isCompleted(),
+        timestamp = item.timestamp,
+        addedTaskIds = parseJsonSolvedTaskIds(item.deltaTaskIds) ?: emptyList(),
+        sequence = item.sequence,
+        operationId = item.operationId,
+        deviceSequence = item.deviceSequence.takeIf { it > 0 }
     )
 }
 
+/**
+ * Строит ключ идемпотентности пакета из идентификаторов операций его элементов:
+ * повторная отправка тех же изменений дает тот же ключ
+ */
+fun batchIdempotencyKey(items: List<ProgressSyncQueueEntity>): String {
+    val source = items.map { it.operationId ?: "${it.itemId}:${it.sequence}" }.sorted().joinToString(",")
+    return java.util.UUID.nameUUIDFromBytes(source.toByteArray(Charsets.UTF_8)).toString()
+}
+
+/**
+ * Объединяет еще не подтвержденную дельту из очереди с новыми решенными заданиями.
+ * Если какая-либо из сторон требует полной отправки (null), результат тоже null
+ */
+fun mergeDeltaTaskIds(pendingDeltaJson: String?, addedTaskIds: List<String>?): String? {
+    if (pendingDeltaJson == null || addedTaskIds == null) {
+        return null
+    }
+
+    val merged = LinkedHashSet<String>()
+    parseJsonSolvedTaskIds(pendingDeltaJson)?.let { merged.addAll(it) }
+    merged.addAll(addedTaskIds)
+    return ProgressEntity.listToJsonString(merged.toList())
+}
+
 /**
  * Преобразует JSON-строку с решенными заданиями в список строк
  * Используется только для элементов из очереди синхронизации
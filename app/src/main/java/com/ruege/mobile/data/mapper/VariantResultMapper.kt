@@ -0,0 +1,43 @@
+@file:JvmName("VariantResultMapper")
+package com.ruege.mobile.data.mapper
+
+import com.ruege.mobile.data.local.entity.VariantTaskResultEntity
+import com.ruege.mobile.model.VariantResult
+
+/**
+ * Раскладывает результаты варианта по строкам variant_task_results
+ */
+fun VariantResult.toTaskResultEntities(egeNumber: String): List<VariantTaskResultEntity> {
+    return tasks.mapIndexed { index, answer ->
+        VariantTaskResultEntity(
+            egeNumber,
+            index,
+            answer.taskId,
+            answer.userAnswer,
+            answer.correctAnswer,
+            answer.isCorrect
+        )
+    }
+}
+
+/**
+ * Собирает результаты варианта из строк variant_task_results
+ */
+fun List<VariantTaskResultEntity>.toVariantResult(variantId: String, timestamp: Long): VariantResult {
+    val answers = map {
+        VariantResult.TaskAnswer(
+            taskId = it.taskId,
+            userAnswer = it.userAnswer,
+            correctAnswer = it.correctAnswer,
+            isCorrect = it.isCorrect
+        )
+    }
+    return VariantResult(
+        variantId = variantId,
+        tasks = answers,
+        score = answers.count { it.isCorrect },
+        maxScore = answers.size,
+        completionTime = 0,
+        timestamp = timestamp
+    )
+}
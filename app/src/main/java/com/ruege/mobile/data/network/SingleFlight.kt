@@ -0,0 +1,56 @@
+package com.ruege.mobile.data.network
+
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.CoroutineStart
+import kotlinx.coroutines.Deferred
+import kotlinx.coroutines.async
+import javax.inject.Inject
+import javax.inject.Singleton
+
+/**
+ * Объединяет одновременные вызовы с одинаковым ключом: первый вызов запускает block,
+ * остальные ждут тот же Deferred. Запрос выполняется в scope, поэтому отмена одного
+ * из ожидающих не отменяет его для остальных. После завершения ключ освобождается,
+ * повторный вызов выполнит block заново - кэширование результата остается за вызывающим.
+ */
+class SingleFlight<K : Any, V>(private val scope: CoroutineScope) {
+
+    private val inFlight = HashMap<K, Deferred<V>>()
+
+    suspend fun run(key: K, block: suspend () -> V): V {
+        val deferred = synchronized(inFlight) {
+            inFlight[key] ?: scope.async(start = CoroutineStart.LAZY) { block() }.also { created ->
+                inFlight[key] = created
+                created.invokeOnCompletion {
+                    synchronized(inFlight) {
+                        if (inFlight[key] === created) {
+                            inFlight.remove(key)
+                        }
+                    }
+                }
+            }
+        }
+        deferred.start()
+        return deferred.await()
+    }
+
+    /**
+     * Количество запросов, выполняющихся сейчас
+     */
+    fun inFlightCount(): Int = synchronized(inFlight) { inFlight.size }
+}
+
+/**
+ * Общий для репозиториев контента SingleFlight: ключ - эндпоинт и идентификатор,
+ * так что одинаковые запросы с разных экранов уходят в сеть один раз
+ */
+@Singleton
+class RequestCoalescer @Inject constructor(externalScope: CoroutineScope) {
+
+    private val singleFlight = SingleFlight<String, Any?>(externalScope)
+
+    suspend fun <T> coalesce(endpoint: String, id: Any, block: suspend () -> T): T {
+        @Suppress("UNCHECKED_CAST")
+        return singleFlight.run("$endpoint/$id") { block() } as T
+    }
+}
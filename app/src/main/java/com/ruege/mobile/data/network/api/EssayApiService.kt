@@ -7,6 +7,7 @@ import com.ruege.mobile.data.network.dto.response.EssayCheckAccepted
 import com.ruege.mobile.data.network.dto.response.EssayCheckResult
 import retrofit2.Response
 import retrofit2.http.GET
+import retrofit2.http.Header
 import retrofit2.http.POST
 import retrofit2.http.Path
 import retrofit2.http.Body
@@ -24,9 +25,13 @@ interface EssayApiService {
     /**
      * Получает полное содержимое сочинения по ID.
      * @param contentId ID сочинения
+     * @param ifNoneMatch ETag сохраненной версии; при совпадении сервер отвечает 304
      */
     @GET("essay/{contentId}") 
-    suspend fun getEssayContent(@Path("contentId") contentId: String): Response<EssayContentDto>
+    suspend fun getEssayContent(
+        @Path("contentId") contentId: String,
+        @Header("If-None-Match") ifNoneMatch: String? = null
+    ): Response<EssayContentDto>
 
     /**
      * Отправляет сочинение на проверку.
@@ -3,6 +3,7 @@ package com.ruege.mobile.data.network.api
 import com.ruege.mobile.data.network.dto.request.PracticeStatisticsBranchRequest
 import com.ruege.mobile.data.network.dto.response.PracticeStatisticsBranchResponse
 import com.ruege.mobile.data.network.dto.response.PracticeStatisticsGetResponse
+import com.ruege.mobile.data.network.encoding.GzipBody
 import retrofit2.Response
 import retrofit2.http.Body
 import retrofit2.http.GET
@@ -25,6 +26,7 @@ interface PracticeApiService {
      * Отправляет только измененные/новые локальные данные.
      * Сервер решает, как их смержить.
      */
+    @GzipBody
     @POST("practiceStatistics/branch")
     suspend fun updatePracticeStatistics(
         @Body practiceSyncRequest: PracticeStatisticsBranchRequest
@@ -1,12 +1,17 @@
 package com.ruege.mobile.data.network.api
 
+import com.ruege.mobile.data.network.dto.ProgressDeltaRequest
 import com.ruege.mobile.data.network.dto.ProgressSyncResponse
 import com.ruege.mobile.data.network.dto.ProgressUpdateRequest
 import com.ruege.mobile.data.local.entity.ProgressEntity
 import com.ruege.mobile.data.network.dto.response.ProgressSyncItemDto
+import com.ruege.mobile.data.network.encoding.GzipBody
+import com.ruege.mobile.data.network.encoding.NegotiatingConverterFactory
 import retrofit2.Response
 import retrofit2.http.Body
 import retrofit2.http.GET
+import retrofit2.http.Headers
+import retrofit2.http.Header
 import retrofit2.http.POST
 import retrofit2.http.Query
 
@@ -25,18 +30,45 @@ interface ProgressApiService {
     /**
      * Отправляет пакет запросов на обновление прогресса
      * @param updates список запросов на обновление прогресса
+     * @param idempotencyKey ключ пакета; повторная отправка с тем же ключом не применяется повторно
      * @return список ответов от сервера
      */
+    @GzipBody
+    @Headers(NegotiatingConverterFactory.ACCEPT_COMPACT)
     @POST("progress/batch")
-    suspend fun updateProgressBatch(@Body updates: List<ProgressUpdateRequest>): Response<List<ProgressSyncResponse>>
+    suspend fun updateProgressBatch(
+        @Body updates: List<ProgressUpdateRequest>,
+        @Header("Idempotency-Key") idempotencyKey: String? = null
+    ): Response<List<ProgressSyncResponse>>
+    
+    /**
+     * Отправляет пакет delta-обновлений прогресса: только задания, решенные
+     * после последней подтвержденной синхронизации. Сервер объединяет их с уже сохраненными.
+     * @param deltas список delta-обновлений
+     * @param idempotencyKey ключ пакета; повторная отправка с тем же ключом не применяется повторно
+     * @return список ответов от сервера
+     */
+    @GzipBody
+    @Headers(NegotiatingConverterFactory.ACCEPT_COMPACT)
+    @POST("progress/batch/delta")
+    suspend fun updateProgressDeltaBatch(
+        @Body deltas: List<ProgressDeltaRequest>,
+        @Header("Idempotency-Key") idempotencyKey: String? = null
+    ): Response<List<ProgressSyncResponse>>
     
     /**
      * Запрашивает синхронизацию прогресса с сервера
      * @param timestamp временная метка последней синхронизации
+     * @param limit максимальный размер страницы
+     * @param afterProgressId курсор: вернуть записи с progress_id больше указанного
      * @return список актуального прогресса
      */
     @GET("progress/sync")
-    suspend fun syncProgress(@Query("timestamp") timestamp: Long?): Response<List<ProgressSyncItemDto>>
+    suspend fun syncProgress(
+        @Query("timestamp") timestamp: Long?,
+        @Query("limit") limit: Int? = null,
+        @Query("after_id") afterProgressId: Int? = null
+    ): Response<List<ProgressSyncItemDto>>
     
     /**
      * Получает прогресс для определенного контента
@@ -9,9 +9,11 @@ import com.ruege.mobile.model.AnswerCheckResult
 import com.ruege.mobile.data.network.dto.response.TextDataDto
 import com.ruege.mobile.data.network.dto.response.SolutionDto
 import com.ruege.mobile.data.network.dto.response.TasksWithTextsResponseDto
+import com.ruege.mobile.data.network.encoding.NegotiatingConverterFactory
 import retrofit2.Response
 import retrofit2.http.Body
 import retrofit2.http.GET
+import retrofit2.http.Headers
 import retrofit2.http.POST
 import retrofit2.http.Path
 import retrofit2.http.Query
@@ -38,7 +40,9 @@ interface TaskApiService {
     
     /**
      * Получает задания для конкретной EGE категории с поддержкой пагинации.
+     * Ответ может прийти в CBOR, если сервер его поддерживает.
      */
+    @Headers(NegotiatingConverterFactory.ACCEPT_COMPACT)
     @GET("tasks/by-ege/{ege_number}")
     suspend fun getTasksByEgeNumberPaginated(
         @Path("ege_number") egeNumber: String,
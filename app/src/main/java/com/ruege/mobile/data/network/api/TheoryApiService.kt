@@ -4,6 +4,7 @@ import com.ruege.mobile.data.network.dto.response.TheorySummaryDto
 import com.ruege.mobile.data.network.dto.response.TheoryContentDto
 import retrofit2.Response
 import retrofit2.http.GET
+import retrofit2.http.Header
 import retrofit2.http.Path
 
 /**
@@ -19,7 +20,11 @@ interface TheoryApiService {
     /**
      * Получает полное содержимое теории по ID.
      * @param contentId ID теории
+     * @param ifNoneMatch ETag сохраненной версии; при совпадении сервер отвечает 304
      */
     @GET("theory/content/{contentId}")
-    suspend fun getTheoryContent(@Path("contentId") contentId: String): Response<TheoryContentDto>
+    suspend fun getTheoryContent(
+        @Path("contentId") contentId: String,
+        @Header("If-None-Match") ifNoneMatch: String? = null
+    ): Response<TheoryContentDto>
 } 
\ No newline at end of file
@@ -4,9 +4,11 @@ import com.ruege.mobile.data.network.dto.VariantDetailDto
 import com.ruege.mobile.data.network.dto.VariantListItemDto
 import com.ruege.mobile.data.network.dto.UserAnswerPayloadDto
 import com.ruege.mobile.data.network.dto.UserAnswerResponseItemDto
+import com.ruege.mobile.data.network.encoding.NegotiatingConverterFactory
 import retrofit2.Response
 import retrofit2.http.Body
 import retrofit2.http.GET
+import retrofit2.http.Headers
 import retrofit2.http.POST
 import retrofit2.http.Path
 
@@ -15,6 +17,7 @@ interface VariantApiService {
     @GET("variants/")
     suspend fun getVariants(): Response<List<VariantListItemDto>>
 
+    @Headers(NegotiatingConverterFactory.ACCEPT_COMPACT)
     @GET("variants/{variant_id}")
     suspend fun getVariantById(@Path("variant_id") variantId: Int): Response<VariantDetailDto>
 
@@ -0,0 +1,52 @@
+package com.ruege.mobile.data.network.cache
+
+import okhttp3.Interceptor
+import okhttp3.Response
+import timber.log.Timber
+
+/**
+ * Сетевой интерцептор для каталогов (списки тем, вариантов, шпаргалок, последние новости).
+ * Если сервер отдал ETag или Last-Modified, ответ помечается как "no-cache":
+ * okhttp3.Cache сохраняет его на диск и при следующем запросе сам отправляет
+ * If-None-Match / If-Modified-Since. На 304 приложение получает тело из кэша,
+ * а Response.isNotModified() позволяет репозиторию не переписывать таблицы.
+ */
+class CatalogCacheInterceptor : Interceptor {
+
+    companion object {
+        /** Пути относительно базового URL API */
+        private val CATALOG_PATHS = setOf(
+            "tasks",
+            "theory",
+            "essay",
+            "variants/",
+            "news/latest",
+            "shpargalki/groups"
+        )
+        private const val API_PREFIX = "/api/v1/"
+    }
+
+    override fun intercept(chain: Interceptor.Chain): Response {
+        val request = chain.request()
+        val response = chain.proceed(request)
+        if (request.method != "GET" || !isCatalogPath(request.url.encodedPath)) {
+            return response
+        }
+        if (response.code == 304) {
+            Timber.d("CatalogCacheInterceptor: ${request.url.encodedPath} не изменился")
+            return response
+        }
+        if (!response.isSuccessful || (response.header("ETag") == null && response.header("Last-Modified") == null)) {
+            return response
+        }
+        return response.newBuilder()
+            .header("Cache-Control", "no-cache")
+            .removeHeader("Pragma")
+            .removeHeader("Expires")
+            .build()
+    }
+
+    private fun isCatalogPath(encodedPath: String): Boolean {
+        return CATALOG_PATHS.contains(encodedPath.substringAfter(API_PREFIX, encodedPath))
+    }
+}
@@ -0,0 +1,9 @@
+package com.ruege.mobile.data.network.cache
+
+import retrofit2.Response
+
+/**
+ * Сервер ответил 304 на условный запрос: тело взято из HTTP-кэша и совпадает
+ * с тем, что уже было получено ранее
+ */
+fun Response<*>.isNotModified(): Boolean = raw().networkResponse?.code == 304
@@ -21,7 +21,44 @@ data class ProgressUpdateRequest(
     val timestamp: Long,
     
     @Json(name = "solved_task_ids") 
-    val solvedTaskIds: List<String>? = null
+    val solvedTaskIds: List<String>? = null,
+    
+    @Json(name = "operation_id") 
+    val operationId: String? = null,
+    
+    @Json(name = "device_sequence") 
+    val deviceSequence: Long? = null
+)
+
+/**
+ * DTO для delta-синхронизации прогресса: вместо полного списка решенных заданий
+ * передаются только задания, решенные после последней подтвержденной синхронизации
+ */
+@JsonClass(generateAdapter = true)
+data class ProgressDeltaRequest(
+    @Json(name = "content_id") 
+    val contentId: String,
+    
+    @Json(name = "percentage") 
+    val percentage: Int,
+    
+    @Json(name = "completed") 
+    val completed: Boolean,
+    
+    @Json(name = "timestamp") 
+    val timestamp: Long,
+    
+    @Json(name = "added_task_ids") 
+    val addedTaskIds: List<String>,
+    
+    @Json(name = "sequence") 
+    val sequence: Long,
+    
+    @Json(name = "operation_id") 
+    val operationId: String? = null,
+    
+    @Json(name = "device_sequence") 
+    val deviceSequence: Long? = null
 )
 
 /**
@@ -39,5 +76,8 @@ data class ProgressSyncResponse(
     val contentId: String? = null,
     
     @Json(name = "timestamp") 
-    val timestamp: String? = null
+    val timestamp: String? = null,
+    
+    @Json(name = "applied_device_sequence") 
+    val appliedDeviceSequence: Long? = null
 ) 
\ No newline at end of file
@@ -1,7 +1,9 @@
 package com.ruege.mobile.data.network.dto
 
 import com.squareup.moshi.Json
+import com.squareup.moshi.JsonClass
 
+@JsonClass(generateAdapter = true)
 data class UserAnswerPayloadDto(
     @Json(name = "variant_task_id")
     val variantTaskId: Int,
@@ -1,11 +1,13 @@
 package com.ruege.mobile.data.network.dto
 
 import com.squareup.moshi.Json
+import com.squareup.moshi.JsonClass
 
 /**
  * DTO для ответа от сервера при отправке ответов пользователя.
  * Соответствует схеме UserAnswerResponseItem на сервере.
  */
+@JsonClass(generateAdapter = true)
 data class UserAnswerResponseItemDto(
     @Json(name = "variant_task_option_id")
     val variantTaskOptionId: Int,
@@ -17,5 +17,24 @@ data class PracticeStatisticSyncDto(
     @field:Json(name = "last_attempt_date")
     val lastAttemptDate: Long,
     @field:Json(name = "new_variant_data")
-    val variantData: String?
+    val variantData: String?,
+    @field:Json(name = "attempt_counters")
+    val attemptCounters: List<AttemptCounterDto>? = null
+)
+
+/**
+ * Вклад одного устройства в счетчики попыток (компоненты PN-счетчика).
+ */
+@JsonClass(generateAdapter = true)
+data class AttemptCounterDto(
+    @field:Json(name = "device_id")
+    val deviceId: String,
+    @field:Json(name = "total_increments")
+    val totalIncrements: Long,
+    @field:Json(name = "total_decrements")
+    val totalDecrements: Long = 0,
+    @field:Json(name = "correct_increments")
+    val correctIncrements: Long,
+    @field:Json(name = "correct_decrements")
+    val correctDecrements: Long = 0
 ) 
\ No newline at end of file
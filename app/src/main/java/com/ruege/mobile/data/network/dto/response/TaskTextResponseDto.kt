@@ -1,5 +1,8 @@
 package com.ruege.mobile.data.network.dto.response
 
+import com.squareup.moshi.JsonClass
+
+@JsonClass(generateAdapter = true)
 data class TaskTextResponseDto(
     val content: String?,
     val id: Int,
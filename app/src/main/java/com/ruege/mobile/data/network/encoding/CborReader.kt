@@ -0,0 +1,162 @@
+package com.ruege.mobile.data.network.encoding
+
+import okio.Buffer
+import okio.BufferedSource
+import okio.ByteString
+import java.io.IOException
+
+/**
+ * Декодер CBOR (RFC 8949) в дерево значений Moshi: Map<String, Any?>, List<Any?>,
+ * String, Long, Double, Boolean, null. Дерево читается сгенерированными адаптерами
+ * через JsonAdapter.fromJsonValue, поэтому для CBOR не нужны отдельные DTO.
+ * Байтовые строки возвращаются в base64, как их отдает JSON-версия API; теги пропускаются.
+ */
+class CborReader(private val source: BufferedSource) {
+
+    companion object {
+        private const val MAJOR_UNSIGNED = 0
+        private const val MAJOR_NEGATIVE = 1
+        private const val MAJOR_BYTES = 2
+        private const val MAJOR_TEXT = 3
+        private const val MAJOR_ARRAY = 4
+        private const val MAJOR_MAP = 5
+        private const val MAJOR_TAG = 6
+        private const val MAJOR_SIMPLE = 7
+
+        private const val INDEFINITE = -1L
+        private const val BREAK = 0xFF
+        private const val MAX_DEPTH = 64
+    }
+
+    private object Break
+
+    fun read(): Any? {
+        val value = readItem(0)
+        if (value === Break) throw IOException("CBOR: неожиданный break")
+        return value
+    }
+
+    private fun readItem(depth: Int): Any? {
+        if (depth > MAX_DEPTH) throw IOException("CBOR: слишком глубокая вложенность")
+        val initial = source.readByte().toInt() and 0xFF
+        if (initial == BREAK) return Break
+        val major = initial ushr 5
+        val info = initial and 0x1F
+        return when (major) {
+            MAJOR_UNSIGNED -> readDefinite(info)
+            MAJOR_NEGATIVE -> -1L - readDefinite(info)
+            MAJOR_BYTES -> readBytes(info, MAJOR_BYTES).base64()
+            MAJOR_TEXT -> readBytes(info, MAJOR_TEXT).utf8()
+            MAJOR_ARRAY -> readArray(readArgument(info), depth)
+            MAJOR_MAP -> readMap(readArgument(info), depth)
+            MAJOR_TAG -> {
+                readArgument(info)
+                readItem(depth + 1)
+            }
+            MAJOR_SIMPLE -> readSimple(info)
+            else -> throw IOException("CBOR: неизвестный тип $major")
+        }
+    }
+
+    /**
+     * Аргумент заголовка: значение, длина или INDEFINITE для info = 31
+     */
+    private fun readArgument(info: Int): Long {
+        return when {
+            info < 24 -> info.toLong()
+            info == 24 -> (source.readByte().toInt() and 0xFF).toLong()
+            info == 25 -> (source.readShort().toInt() and 0xFFFF).toLong()
+            info == 26 -> source.readInt().toLong() and 0xFFFFFFFFL
+            info == 27 -> source.readLong().also {
+                // Аргументы больше Long.MAX_VALUE не поддерживаются
+                if (it < 0) throw IOException("CBOR: значение вне диапазона Long")
+            }
+            info == 31 -> INDEFINITE
+            else -> throw IOException("CBOR: некорректный аргумент $info")
+        }
+    }
+
+    private fun readBytes(info: Int, major: Int): ByteString {
+        val length = readArgument(info)
+        if (length != INDEFINITE) {
+            return source.readByteString(length)
+        }
+        val buffer = Buffer()
+        while (true) {
+            val chunkInitial = source.readByte().toInt() and 0xFF
+            if (chunkInitial == BREAK) break
+            if (chunkInitial ushr 5 != major) throw IOException("CBOR: некорректный фрагмент строки")
+            source.readFully(buffer, readDefinite(chunkInitial and 0x1F))
+        }
+        return buffer.readByteString()
+    }
+
+    private fun readArray(length: Long, depth: Int): List<Any?> {
+        if (length == INDEFINITE) {
+            val items = ArrayList<Any?>()
+            while (true) {
+                val item = readItem(depth + 1)
+                if (item === Break) return items
+                items.add(item)
+            }
+        }
+        val items = ArrayList<Any?>(minOf(length, 1024L).toInt())
+        for (i in 0 until length) {
+            items.add(readValue(depth))
+        }
+        return items
+    }
+
+    private fun readMap(length: Long, depth: Int): Map<String, Any?> {
+        val map = LinkedHashMap<String, Any?>()
+        var remaining = length
+        while (remaining == INDEFINITE || remaining-- > 0) {
+            val key = readItem(depth + 1)
+            if (key === Break) {
+                if (length == INDEFINITE) return map
+                throw IOException("CBOR: неожиданный break")
+            }
+            map[key.toString()] = readValue(depth)
+        }
+        return map
+    }
+
+    private fun readValue(depth: Int): Any? {
+        val value = readItem(depth + 1)
+        if (value === Break) throw IOException("CBOR: неожиданный break")
+        return value
+    }
+
+    private fun readSimple(info: Int): Any? {
+        return when (info) {
+            20 -> false
+            21 -> true
+            22, 23 -> null
+            24 -> {
+                source.readByte()
+                null
+            }
+            25 -> halfToDouble(source.readShort().toInt() and 0xFFFF)
+            26 -> Float.fromBits(source.readInt()).toDouble()
+            27 -> Double.fromBits(source.readLong())
+            else -> if (info < 20) null else throw IOException("CBOR: некорректное простое значение $info")
+        }
+    }
+
+    private fun halfToDouble(half: Int): Double {
+        val exponent = (half ushr 10) and 0x1F
+        val mantissa = half and 0x3FF
+        val magnitude = when (exponent) {
+            0 -> mantissa * Math.pow(2.0, -24.0)
+            31 -> if (mantissa == 0) Double.POSITIVE_INFINITY else Double.NaN
+            else -> (mantissa + 1024) * Math.pow(2.0, (exponent - 25).toDouble())
+        }
+        return if (half and 0x8000 != 0) -magnitude else magnitude
+    }
+
+    private fun readDefinite(info: Int): Long {
+        val value = readArgument(info)
+        if (value == INDEFINITE) throw IOException("CBOR: неопределенная длина недопустима")
+        return value
+    }
+}
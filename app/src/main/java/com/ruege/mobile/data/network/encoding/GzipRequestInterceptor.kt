@@ -0,0 +1,62 @@
+package com.ruege.mobile.data.network.encoding
+
+import okhttp3.Interceptor
+import okhttp3.RequestBody
+import okhttp3.RequestBody.Companion.toRequestBody
+import okhttp3.Response
+import okio.Buffer
+import okio.GzipSink
+import okio.buffer
+import retrofit2.Invocation
+import timber.log.Timber
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * Помечает метод API, тело запроса которого отправляется сжатым gzip (пакетные выгрузки)
+ */
+@Target(AnnotationTarget.FUNCTION)
+@Retention(AnnotationRetention.RUNTIME)
+annotation class GzipBody
+
+/**
+ * Сжимает тела запросов методов с [GzipBody] и ставит Content-Encoding: gzip.
+ * Если сервер отвечает 415, запрос повторяется без сжатия, и до перезапуска
+ * процесса тела больше не сжимаются.
+ */
+class GzipRequestInterceptor : Interceptor {
+
+    private val serverRejectsGzip = AtomicBoolean(false)
+
+    override fun intercept(chain: Interceptor.Chain): Response {
+        val request = chain.request()
+        val body = request.body
+        val gzipRequested = request.tag(Invocation::class.java)?.method()?.isAnnotationPresent(GzipBody::class.java) == true
+        if (!gzipRequested || body == null || serverRejectsGzip.get() || request.header("Content-Encoding") != null) {
+            return chain.proceed(request)
+        }
+
+        val compressed = request.newBuilder()
+            .header("Content-Encoding", "gzip")
+            .method(request.method, gzip(body))
+            .build()
+        val response = chain.proceed(compressed)
+        if (response.code != 415) {
+            return response
+        }
+
+        Timber.w("GzipRequestInterceptor: сервер не принимает gzip для ${request.url.encodedPath}, отправка без сжатия")
+        serverRejectsGzip.set(true)
+        response.close()
+        return chain.proceed(request)
+    }
+
+    /**
+     * Сжимает тело целиком в память: пакеты выгрузки ограничены по размеру, а известная
+     * длина дает Content-Length вместо chunked и честный размер отправленного в метриках
+     */
+    private fun gzip(body: RequestBody): RequestBody {
+        val compressed = Buffer()
+        GzipSink(compressed).buffer().use { body.writeTo(it) }
+        return compressed.readByteString().toRequestBody(body.contentType())
+    }
+}
@@ -0,0 +1,60 @@
+package com.ruege.mobile.data.network.encoding
+
+import com.squareup.moshi.Moshi
+import okhttp3.RequestBody
+import okhttp3.ResponseBody
+import retrofit2.Converter
+import retrofit2.Retrofit
+import retrofit2.converter.moshi.MoshiConverterFactory
+import java.lang.reflect.Type
+
+/**
+ * Конвертер Retrofit с выбором формата по Content-Type ответа: application/cbor
+ * декодируется CborReader и передается тому же адаптеру Moshi, что и JSON,
+ * остальные ответы и все тела запросов обрабатывает MoshiConverterFactory.
+ * CBOR запрашивается только эндпоинтами с заголовком [ACCEPT_COMPACT].
+ *
+ * Декодирование CBOR проходит в два шага (дерево значений, затем fromJsonValue) и по CPU
+ * и памяти не дешевле потокового JSON: выигрыш этого пути - только байты в сети.
+ */
+class NegotiatingConverterFactory private constructor(
+    private val moshi: Moshi,
+    private val jsonFactory: MoshiConverterFactory
+) : Converter.Factory() {
+
+    companion object {
+        const val CBOR_SUBTYPE = "cbor"
+
+        /** Для @Headers: CBOR предпочтительнее, JSON - если сервер его не поддерживает */
+        const val ACCEPT_COMPACT = "Accept: application/cbor, application/json;q=0.9"
+
+        fun create(moshi: Moshi): NegotiatingConverterFactory {
+            return NegotiatingConverterFactory(moshi, MoshiConverterFactory.create(moshi))
+        }
+    }
+
+    override fun responseBodyConverter(
+        type: Type,
+        annotations: Array<out Annotation>,
+        retrofit: Retrofit
+    ): Converter<ResponseBody, *>? {
+        val jsonConverter = jsonFactory.responseBodyConverter(type, annotations, retrofit) ?: return null
+        val adapter = moshi.adapter<Any>(type)
+        return Converter<ResponseBody, Any?> { body ->
+            if (body.contentType()?.subtype == CBOR_SUBTYPE) {
+                body.use { adapter.fromJsonValue(CborReader(it.source()).read()) }
+            } else {
+                jsonConverter.convert(body)
+            }
+        }
+    }
+
+    override fun requestBodyConverter(
+        type: Type,
+        parameterAnnotations: Array<out Annotation>,
+        methodAnnotations: Array<out Annotation>,
+        retrofit: Retrofit
+    ): Converter<*, RequestBody>? {
+        return jsonFactory.requestBodyConverter(type, parameterAnnotations, methodAnnotations, retrofit)
+    }
+}
@@ -0,0 +1,101 @@
+package com.ruege.mobile.data.repository
+
+import com.ruege.mobile.data.local.dao.CachedContentDao
+import com.ruege.mobile.data.local.entity.CachedContentEntity
+import com.ruege.mobile.data.network.RequestCoalescer
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
+import timber.log.Timber
+import java.util.concurrent.TimeUnit
+import javax.inject.Inject
+import javax.inject.Singleton
+
+/**
+ * Результат сетевого запроса тела контента
+ */
+sealed class ContentFetchResult {
+    data class Loaded(val content: CachedContentEntity) : ContentFetchResult()
+    object NotModified : ContentFetchResult()
+    object Failed : ContentFetchResult()
+}
+
+/**
+ * Постоянное хранилище тел теории и сочинений (content_cache) со схемой stale-while-revalidate:
+ * сохраненная запись отдается сразу, а если она старше FRESH_FOR_MS, в фоне выполняется
+ * условный запрос с ETag. Сеть без сохраненной записи - только при первом открытии.
+ * Размер хранилища ограничен MAX_STORE_BYTES, скачанные пользователем материалы не вытесняются.
+ */
+@Singleton
+class ContentStore @Inject constructor(
+    private val cachedContentDao: CachedContentDao,
+    private val externalScope: CoroutineScope,
+    private val requestCoalescer: RequestCoalescer
+) {
+
+    companion object {
+        const val MAX_STORE_BYTES = 20L * 1024 * 1024
+        val FRESH_FOR_MS = TimeUnit.HOURS.toMillis(12)
+    }
+
+    /**
+     * @param fetch сетевой запрос; получает ETag сохраненной версии или null
+     * @param onRefreshed вызывается, если фоновая проверка принесла новую версию
+     * @return сохраненная или только что загруженная запись, null - если ее нет и сеть недоступна
+     */
+    suspend fun read(
+        kind: String,
+        contentId: String,
+        onRefreshed: (CachedContentEntity) -> Unit = {},
+        fetch: suspend (etag: String?) -> ContentFetchResult
+    ): CachedContentEntity? {
+        val now = System.currentTimeMillis()
+        val stored = withContext(Dispatchers.IO) {
+            cachedContentDao.get(kind, contentId)?.also { cachedContentDao.touch(kind, contentId, now) }
+        }
+        if (stored == null) {
+            return revalidate(kind, contentId, null, fetch)
+        }
+        if (now - stored.fetchedAt > FRESH_FOR_MS) {
+            externalScope.launch {
+                revalidate(kind, contentId, stored.etag, fetch)?.let(onRefreshed)
+            }
+        }
+        return stored
+    }
+
+    suspend fun clear(kind: String) {
+        withContext(Dispatchers.IO) { cachedContentDao.deleteByKind(kind) }
+    }
+
+    /**
+     * @return новая версия записи или null, если версия не изменилась или запрос не удался
+     */
+    private suspend fun revalidate(
+        kind: String,
+        contentId: String,
+        etag: String?,
+        fetch: suspend (etag: String?) -> ContentFetchResult
+    ): CachedContentEntity? {
+        return requestCoalescer.coalesce("content_store/$kind", contentId) {
+            when (val result = fetch(etag)) {
+                is ContentFetchResult.Loaded -> {
+                    val evicted = withContext(Dispatchers.IO) {
+                        cachedContentDao.insertAndTrim(result.content, MAX_STORE_BYTES)
+                    }
+                    Timber.d("ContentStore: сохранен $kind/$contentId, вытеснено записей: $evicted")
+                    result.content
+                }
+                ContentFetchResult.NotModified -> {
+                    withContext(Dispatchers.IO) {
+                        cachedContentDao.markRevalidated(kind, contentId, System.currentTimeMillis())
+                    }
+                    Timber.d("ContentStore: $kind/$contentId не изменился")
+                    null
+                }
+                ContentFetchResult.Failed -> null
+            }
+        }
+    }
+}
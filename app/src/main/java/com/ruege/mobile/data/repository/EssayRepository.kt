@@ -3,7 +3,11 @@ package com.ruege.mobile.data.repository
 import androidx.lifecycle.asFlow
 import com.ruege.mobile.data.local.dao.ContentDao
 import com.ruege.mobile.data.local.dao.UserDao
+import com.ruege.mobile.data.local.entity.CachedContentEntity
 import com.ruege.mobile.data.local.entity.ContentEntity
+import com.ruege.mobile.data.cache.ContentCache
+import com.ruege.mobile.data.cache.ContentCacheManager
+import com.ruege.mobile.data.network.RequestCoalescer
 import com.ruege.mobile.data.network.api.EssayApiService
 import com.ruege.mobile.data.network.dto.response.EssayContentDto
 import kotlinx.coroutines.CoroutineScope
@@ -14,6 +18,7 @@ import kotlinx.coroutines.flow.StateFlow
 import kotlinx.coroutines.flow.asStateFlow
 import kotlinx.coroutines.launch
 import kotlinx.coroutines.withContext
+import com.ruege.mobile.data.network.cache.isNotModified
 import timber.log.Timber
 import javax.inject.Inject
 import javax.inject.Singleton
@@ -30,7 +35,10 @@ class EssayRepository @Inject constructor(
     private val externalScope: CoroutineScope,
     private val userDao: UserDao,
     private val userEssayDao: UserEssayDao,
-    private val practiceStatisticsRepository: PracticeStatisticsRepository
+    private val practiceStatisticsRepository: PracticeStatisticsRepository,
+    private val requestCoalescer: RequestCoalescer,
+    private val contentStore: ContentStore,
+    contentCacheManager: ContentCacheManager
 ) {
     private val TAG = "EssayRepository"
 
@@ -47,7 +55,9 @@ class EssayRepository @Inject constructor(
         }
     }
 
-    private val essayContentCache = mutableMapOf<String, EssayContentDto>()
+    private val essayContentCache = contentCacheManager.create<String, EssayContentDto>("essay", 0.2f) { _, dto ->
+        ContentCache.sizeOf(dto.content) + ContentCache.sizeOf(dto.title) + ContentCache.ENTRY_OVERHEAD_BYTES
+    }
 
     fun getEssayTopicsStream(): Flow<List<ContentEntity>> {
         Timber.d("Getting essay topics stream from DAO")
@@ -60,7 +70,9 @@ class EssayRepository @Inject constructor(
                 Timber.d("LOG_CHAIN: EssayRepository.refreshEssayTopics - Начало.")
                 val response = essayApiService.getAllEssayTopics()
 
-                if (response.isSuccessful && response.body() != null) {
+                if (response.isNotModified() && contentDao.countByType("essay") > 0) {
+                    Timber.d("LOG_CHAIN: EssayRepository.refreshEssayTopics - Каталог не изменился (304).")
+                } else if (response.isSuccessful && response.body() != null) {
                     val essaySummaries = response.body()!!
                     
                     val allContentEntities = essaySummaries.map { dto -> 
@@ -69,8 +81,9 @@ class EssayRepository @Inject constructor(
                         entity
                     }
                     
-                    contentDao.insertAll(allContentEntities)
-                    Timber.d("LOG_CHAIN: EssayRepository.refreshEssayTopics - Успешно. Загружено ${allContentEntities.size} тем.")
+                    val changed = allContentEntities.groupBy { it.type }
+                        .entries.sumOf { (type, entities) -> contentDao.applyCatalog(type, entities) }
+                    Timber.d("LOG_CHAIN: EssayRepository.refreshEssayTopics - Успешно. Получено ${allContentEntities.size} тем, изменено $changed.")
                 } else {
                     Timber.w("LOG_CHAIN: EssayRepository.refreshEssayTopics - Ошибка. Код: ${response.code()}.")
                 }
@@ -84,32 +97,73 @@ class EssayRepository @Inject constructor(
     }
 
     suspend fun getEssayContentById(contentId: String): EssayContentDto? {
-        if (essayContentCache.containsKey(contentId)) {
+        essayContentCache[contentId]?.let {
             Timber.d("Getting essay content from memory cache for ID: $contentId")
-            return essayContentCache[contentId]
+            return it
         }
 
+        return requestCoalescer.coalesce("essay", contentId) { loadEssayContent(contentId) }
+    }
+
+    /**
+     * Читает сочинение из content_cache (устаревшая запись проверяется в фоне по ETag),
+     * при отсутствии записи - загружает из сети
+     */
+    private suspend fun loadEssayContent(contentId: String): EssayContentDto? {
+        val stored = contentStore.read(
+            CachedContentEntity.KIND_ESSAY,
+            contentId,
+            onRefreshed = { essayContentCache[contentId] = it.toEssayContentDto() }
+        ) { etag -> fetchEssayContent(contentId, etag) }
+        return stored?.toEssayContentDto()?.also { essayContentCache[contentId] = it }
+    }
+
+    private suspend fun fetchEssayContent(contentId: String, etag: String?): ContentFetchResult {
         return withContext(Dispatchers.IO) {
             try {
                 Timber.d("Getting essay content from network for ID: $contentId")
-                val response = essayApiService.getEssayContent(contentId)
-                
+                val response = essayApiService.getEssayContent(contentId, etag)
+
+                if (response.isNotModified()) {
+                    return@withContext ContentFetchResult.NotModified
+                }
                 if (response.isSuccessful && response.body() != null) {
                     val essayContent = response.body()!!
                     Timber.d("Successfully loaded essay content from network, caching result.")
-                    essayContentCache[contentId] = essayContent
-                    return@withContext essayContent
+                    return@withContext ContentFetchResult.Loaded(
+                        CachedContentEntity(
+                            CachedContentEntity.KIND_ESSAY,
+                            contentId,
+                            essayContent.id,
+                            essayContent.egeNumber,
+                            essayContent.title,
+                            essayContent.content,
+                            essayContent.createdAt,
+                            essayContent.updatedAt,
+                            response.headers()["ETag"],
+                            System.currentTimeMillis()
+                        )
+                    )
                 } else {
                     Timber.w("Failed to load essay content from network. Code: ${response.code()}")
-                    return@withContext null
+                    return@withContext ContentFetchResult.Failed
                 }
             } catch (e: Exception) {
                 Timber.e(e, "Error loading essay content", e)
-                return@withContext null
+                return@withContext ContentFetchResult.Failed
             }
         }
     }
 
+    private fun CachedContentEntity.toEssayContentDto() = EssayContentDto(
+        id = remoteId,
+        egeNumber = egeNumber,
+        title = title,
+        content = body,
+        createdAt = createdAt,
+        updatedAt = updatedAt
+    )
+
     suspend fun checkEssay(
         essayContent: String,
         taskId: Int? = null,
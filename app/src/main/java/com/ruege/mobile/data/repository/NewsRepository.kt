@@ -7,6 +7,7 @@ import com.ruege.mobile.utils.Resource
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.withContext
+import com.ruege.mobile.data.network.cache.isNotModified
 import timber.log.Timber
 import javax.inject.Inject
 import javax.inject.Singleton
@@ -28,7 +29,10 @@ class NewsRepository @Inject constructor(
                 Timber.d("Refreshing latest news data from network...")
                 val response = newsApiService.getLatestNews(limit)
                 
-                if (response.isSuccessful && response.body() != null) {
+                if (response.isNotModified() && newsDao.getNewsCount() > 0) {
+                    Timber.d("Latest news not modified (304), keeping local copy")
+                    Resource.Success(Unit)
+                } else if (response.isSuccessful && response.body() != null) {
                     val newsDtos = response.body()!!
                     val newsEntities = newsDtos.map { it.toEntity() }
                     
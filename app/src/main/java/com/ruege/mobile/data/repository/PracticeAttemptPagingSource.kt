@@ -0,0 +1,67 @@
+package com.ruege.mobile.data.repository
+
+import androidx.paging.PagingSource
+import androidx.paging.PagingState
+import androidx.room.InvalidationTracker
+import com.ruege.mobile.data.local.dao.PracticeAttemptDao
+import com.ruege.mobile.data.local.dao.PracticeAttemptDao.AttemptHistoryRow
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.withContext
+import timber.log.Timber
+
+/**
+ * Ключ страницы: последняя попытка предыдущей страницы
+ */
+data class PracticeAttemptPageKey(val attemptDate: Long, val attemptId: Long)
+
+/**
+ * История попыток с пагинацией по ключу (attempt_date, attempt_id).
+ * Источник инвалидируется при любом изменении practice_attempts.
+ * PagingSource из room-paging здесь не подходит: он строится на LIMIT/OFFSET,
+ * и стоимость страницы снова росла бы с глубиной прокрутки.
+ */
+class PracticeAttemptPagingSource(
+    private val practiceAttemptDao: PracticeAttemptDao,
+    private val invalidationTracker: InvalidationTracker
+) : PagingSource<PracticeAttemptPageKey, AttemptHistoryRow>() {
+
+    private val observer = object : InvalidationTracker.Observer("practice_attempts") {
+        override fun onInvalidated(tables: Set<String>) {
+            invalidate()
+        }
+    }
+
+    init {
+        invalidationTracker.addObserver(observer)
+        registerInvalidatedCallback {
+            invalidationTracker.removeObserver(observer)
+        }
+    }
+
+    override suspend fun load(params: LoadParams<PracticeAttemptPageKey>): LoadResult<PracticeAttemptPageKey, AttemptHistoryRow> {
+        return try {
+            val key = params.key
+            val rows = withContext(Dispatchers.IO) {
+                if (key == null) {
+                    practiceAttemptDao.getAttemptHistoryFirstPage(params.loadSize)
+                } else {
+                    practiceAttemptDao.getAttemptHistoryPageBefore(key.attemptDate, key.attemptId, params.loadSize)
+                }
+            }
+            val nextKey = if (rows.size < params.loadSize) {
+                null
+            } else {
+                rows.last().let { PracticeAttemptPageKey(it.attemptDate, it.attemptId) }
+            }
+            LoadResult.Page(data = rows, prevKey = null, nextKey = nextKey)
+        } catch (e: Exception) {
+            Timber.e(e, "PracticeAttemptPagingSource: ошибка загрузки страницы")
+            LoadResult.Error(e)
+        }
+    }
+
+    /**
+     * История читается только вперед, после инвалидации список загружается с начала
+     */
+    override fun getRefreshKey(state: PagingState<PracticeAttemptPageKey, AttemptHistoryRow>): PracticeAttemptPageKey? = null
+}
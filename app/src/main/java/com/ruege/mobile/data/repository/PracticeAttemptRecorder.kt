@@ -0,0 +1,158 @@
+package com.ruege.mobile.data.repository
+
+import com.ruege.mobile.data.local.dao.PracticeRecordDao
+import com.ruege.mobile.data.local.dao.UserDao
+import com.ruege.mobile.data.local.entity.PracticeAttemptEntity
+import com.ruege.mobile.data.local.entity.ProgressSyncQueueEntity
+import com.ruege.mobile.data.local.entity.SyncStatus
+import com.ruege.mobile.data.sync.SyncScheduler
+import com.ruege.mobile.data.sync.SyncSequenceStore
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import kotlinx.coroutines.withContext
+import timber.log.Timber
+import javax.inject.Inject
+import javax.inject.Singleton
+
+/**
+ * Буфер ответов на задания. Ответы, пришедшие подряд, записываются одной транзакцией
+ * PracticeRecordDao.recordAttempts: через COALESCE_WINDOW_MS после первого ответа
+ * в буфере или сразу, когда набралось MAX_BUFFERED_ATTEMPTS.
+ * record() возвращается только после фиксации транзакции, в которую попал ответ.
+ */
+@Singleton
+class PracticeAttemptRecorder @Inject constructor(
+    private val practiceRecordDao: PracticeRecordDao,
+    private val userDao: UserDao,
+    private val syncSequenceStore: SyncSequenceStore,
+    private val syncScheduler: SyncScheduler,
+    private val externalScope: CoroutineScope
+) {
+
+    companion object {
+        const val COALESCE_WINDOW_MS = 250L
+        const val MAX_BUFFERED_ATTEMPTS = 50
+    }
+
+    private data class PendingAttempt(
+        val taskId: Int,
+        val egeNumber: String,
+        val isCorrect: Boolean,
+        val timestamp: Long
+    )
+
+    private class Batch {
+        val attempts = mutableListOf<PendingAttempt>()
+        val done = CompletableDeferred<Unit>()
+    }
+
+    private val lock = Any()
+    private val writeMutex = Mutex()
+    private var current = Batch()
+
+    /**
+     * Добавляет ответ в буфер и ждет его записи
+     * @param egeNumber номер задания для статистики; пустой - записывается только попытка
+     */
+    suspend fun record(taskId: Int, egeNumber: String, isCorrect: Boolean, timestamp: Long) {
+        val batch: Batch
+        val isFull: Boolean
+        synchronized(lock) {
+            batch = current
+            batch.attempts.add(PendingAttempt(taskId, egeNumber, isCorrect, timestamp))
+            isFull = batch.attempts.size >= MAX_BUFFERED_ATTEMPTS
+            if (batch.attempts.size == 1 && !isFull) {
+                externalScope.launch {
+                    delay(COALESCE_WINDOW_MS)
+                    flush()
+                }
+            }
+        }
+        if (isFull) {
+            flush()
+        }
+        batch.done.await()
+    }
+
+    /**
+     * Записывает накопленные ответы, не дожидаясь окна
+     */
+    suspend fun flush() {
+        writeMutex.withLock {
+            val batch = synchronized(lock) {
+                val drained = current
+                current = Batch()
+                drained
+            }
+            if (batch.attempts.isEmpty()) {
+                batch.done.complete(Unit)
+                return
+            }
+            try {
+                val queued = withContext(Dispatchers.IO) { write(batch.attempts) }
+                batch.done.complete(Unit)
+                if (queued > 0) {
+                    syncScheduler.onItemsQueued(items = queued)
+                }
+                Timber.d("PracticeAttemptRecorder: записано ответов ${batch.attempts.size}, в очередь синхронизации $queued")
+            } catch (e: Exception) {
+                Timber.e(e, "PracticeAttemptRecorder: не удалось записать ${batch.attempts.size} ответов")
+                batch.done.completeExceptionally(e)
+            }
+        }
+    }
+
+    /**
+     * @return количество строк, поставленных в очередь синхронизации
+     */
+    private fun write(attempts: List<PendingAttempt>): Int {
+        val now = System.currentTimeMillis()
+        val userId = userDao.getFirstUser()?.getUserId() ?: -1L
+        val deviceId = syncSequenceStore.getDeviceId()
+
+        val attemptEntities = attempts.map { PracticeAttemptEntity(it.taskId, it.isCorrect, it.timestamp) }
+        val deltas = attempts
+            .filter { it.egeNumber.isNotEmpty() }
+            .groupBy { it.egeNumber }
+            .map { (egeNumber, items) ->
+                PracticeRecordDao.StatisticsDelta(
+                    egeNumber,
+                    items.size,
+                    items.count { it.isCorrect },
+                    items.maxOf { it.timestamp }
+                )
+            }
+
+        val queueItems = if (userId == -1L) {
+            Timber.d("PracticeAttemptRecorder: нет пользователя, статистика не ставится в очередь")
+            emptyList()
+        } else if (deltas.isEmpty()) {
+            emptyList()
+        } else {
+            val sequences = syncSequenceStore.nextDeviceSequences(deltas.size)
+            deltas.zip(sequences) { delta, sequence ->
+                ProgressSyncQueueEntity(
+                    delta.egeNumber,
+                    ProgressSyncQueueEntity.ITEM_TYPE_STATISTICS,
+                    0,
+                    false,
+                    now,
+                    userId,
+                    SyncStatus.PENDING,
+                    "[]"
+                ).apply {
+                    setOperationId(syncSequenceStore.newOperationId())
+                    setDeviceSequence(sequence)
+                }
+            }
+        }
+
+        practiceRecordDao.recordAttempts(attemptEntities, deltas, deviceId, queueItems)
+        return queueItems.size
+    }
+}
@@ -5,9 +5,9 @@ import androidx.lifecycle.liveData
 import androidx.lifecycle.asLiveData
 import com.ruege.mobile.data.local.dao.PracticeAttemptDao
 import com.ruege.mobile.data.local.dao.PracticeStatisticsDao
+import com.ruege.mobile.data.local.dao.PracticeStatisticsDao.StatisticsTabRow
 import com.ruege.mobile.data.local.dao.TaskDao
 import com.ruege.mobile.data.local.entity.PracticeAttemptEntity
-import com.ruege.mobile.data.local.entity.PracticeStatisticsEntity
 import com.ruege.mobile.data.local.entity.TaskEntity
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.flow.Flow
@@ -17,7 +17,8 @@ import kotlinx.coroutines.withContext
 class PracticeRepository(
     private val practiceAttemptDao: PracticeAttemptDao,
     private val practiceStatisticsDao: PracticeStatisticsDao,
-    private val taskDao: TaskDao
+    private val taskDao: TaskDao,
+    private val practiceAttemptRecorder: PracticeAttemptRecorder
 ) {
 
     fun getRecentAttempts(limit: Int): Flow<List<PracticeAttemptEntity>> {
@@ -37,37 +38,19 @@ class PracticeRepository(
     }
 
     suspend fun saveAttempt(task: TaskEntity, isCorrect: Boolean, source: String, taskType: String, textId: String) {
-        withContext(Dispatchers.IO) {
-            val currentTime = System.currentTimeMillis()
-
-            val attempt = PracticeAttemptEntity(
-                task.id,
-                isCorrect,
-                currentTime
-            )
-            practiceAttemptDao.insert(attempt)
-            
-            task.egeNumber?.let { egeNum ->
-                practiceStatisticsDao.createStatisticsIfNotExists(egeNum)
-                practiceStatisticsDao.updateStatisticsAfterAttempt(
-                    egeNum,
-                    isCorrect,
-                    currentTime
-                )
-            }
-        }
+        practiceAttemptRecorder.record(task.id, task.egeNumber ?: "", isCorrect, System.currentTimeMillis())
     }
 
-    fun getStatisticsWithAttempts(): LiveData<List<PracticeStatisticsEntity>> {
-        return practiceStatisticsDao.getStatisticsWithAttempts().asLiveData()
+    fun getStatisticsWithAttempts(): LiveData<List<StatisticsTabRow>> {
+        return practiceStatisticsDao.getTaskTabRowsWithAttempts().asLiveData()
     }
 
-    fun getEssayStatistics(): LiveData<List<PracticeStatisticsEntity>> {
-        return practiceStatisticsDao.getEssayStatistics().asLiveData()
+    fun getEssayStatistics(): LiveData<List<StatisticsTabRow>> {
+        return practiceStatisticsDao.getEssayTabRows().asLiveData()
     }
 
-    fun getVariantStatistics(): LiveData<List<PracticeStatisticsEntity>> {
-        return practiceStatisticsDao.getVariantStatistics().asLiveData()
+    fun getVariantStatistics(): LiveData<List<StatisticsTabRow>> {
+        return practiceStatisticsDao.getVariantTabRows().asLiveData()
     }
 
     /**
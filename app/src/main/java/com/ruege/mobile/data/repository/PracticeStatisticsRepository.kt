@@ -1,10 +1,13 @@
 package com.ruege.mobile.data.repository
 
 import timber.log.Timber
-import com.ruege.mobile.data.local.dao.PracticeAttemptDao
+import com.ruege.mobile.data.local.dao.PracticeAttemptCounterDao
 import com.ruege.mobile.data.local.dao.PracticeStatisticsDao
-import com.ruege.mobile.data.local.entity.PracticeAttemptEntity
+import com.ruege.mobile.data.local.dao.VariantTaskResultDao
 import com.ruege.mobile.data.local.entity.PracticeStatisticsEntity
+import com.ruege.mobile.data.mapper.toTaskResultEntities
+import com.ruege.mobile.data.mapper.toVariantResult
+import com.ruege.mobile.data.sync.SyncSequenceStore
 import com.ruege.mobile.model.TaskItem
 import com.ruege.mobile.model.VariantResult
 import com.ruege.mobile.model.EssayResultData
@@ -16,13 +19,18 @@ import javax.inject.Singleton
 
 @Singleton
 class PracticeStatisticsRepository @Inject constructor(
-    private val practiceAttemptDao: PracticeAttemptDao,
     private val practiceStatisticsDao: PracticeStatisticsDao,
-    private val progressSyncRepository: ProgressSyncRepository
+    private val progressSyncRepository: ProgressSyncRepository,
+    private val practiceAttemptCounterDao: PracticeAttemptCounterDao,
+    private val syncSequenceStore: SyncSequenceStore,
+    private val practiceAttemptRecorder: PracticeAttemptRecorder,
+    private val variantTaskResultDao: VariantTaskResultDao
 ) {
 
     /**
      * Записывает новую попытку решения задачи и обновляет статистику.
+     * Запись идет через PracticeAttemptRecorder: попытка, агрегат и очередь
+     * синхронизации фиксируются одной транзакцией вместе с соседними ответами.
      */
     suspend fun recordAttempt(taskItem: TaskItem, isCorrect: Boolean, timestamp: Long) {
         val taskLocalDbId = taskItem.taskId.toIntOrNull()
@@ -33,34 +41,11 @@ class PracticeStatisticsRepository @Inject constructor(
             return
         }
 
-        withContext(Dispatchers.IO) {
-            val attempt = PracticeAttemptEntity(
-                taskLocalDbId,
-                isCorrect,
-                timestamp
-            )
-            practiceAttemptDao.insert(attempt)
-            Timber.d("PracticeStatsRepo", "Attempt recorded for taskId: $taskLocalDbId, isCorrect: $isCorrect.")
-
-            if (egeNumberForStats.isNotEmpty()) {
-                practiceStatisticsDao.createStatisticsIfNotExists(egeNumberForStats)
-                
-                practiceStatisticsDao.updateStatisticsAfterAttempt(
-                    egeNumberForStats,
-                    isCorrect,
-                    timestamp
-                )
-                Timber.d("PracticeStatsRepo", "PracticeStatisticsEntity for egeNumber: $egeNumberForStats updated after attempt.")
-
-                val updatedStats = practiceStatisticsDao.getStatisticsByEgeNumberSync(egeNumberForStats)
-                updatedStats?.let {
-                    progressSyncRepository.queueStatisticsUpdate(it, false)
-                }
-
-            } else {
-                Timber.w("PracticeStatsRepo", "egeNumberForStats is empty for taskId: $taskLocalDbId. Cannot update PracticeStatisticsEntity.")
-            }
+        if (egeNumberForStats.isEmpty()) {
+            Timber.w("PracticeStatsRepo", "egeNumberForStats is empty for taskId: $taskLocalDbId. Cannot update PracticeStatisticsEntity.")
         }
+        practiceAttemptRecorder.record(taskLocalDbId, egeNumberForStats, isCorrect, timestamp)
+        Timber.d("PracticeStatsRepo", "Attempt recorded for taskId: $taskLocalDbId, isCorrect: $isCorrect.")
     }
 
     /**
@@ -79,6 +64,7 @@ class PracticeStatisticsRepository @Inject constructor(
             existingStats.variantData = EssayResultData(essayContent, result).toJsonString()
 
             practiceStatisticsDao.update(existingStats)
+            practiceAttemptCounterDao.recordAttempt(egeNumberForStats, syncSequenceStore.getDeviceId(), true)
             
             progressSyncRepository.queueStatisticsUpdate(existingStats, false)
             Timber.d("PracticeStatsRepo", "Essay stats for '$title' updated.")
@@ -86,11 +72,12 @@ class PracticeStatisticsRepository @Inject constructor(
     }
 
     /**
-     * Сохраняет статистику по варианту.
+     * Сохраняет статистику по варианту вместе с результатами его заданий.
+     * variant_data остается для обмена с сервером, экраны читают variant_task_results.
      */
-    suspend fun saveVariantStatistics(statistics: PracticeStatisticsEntity) {
+    suspend fun saveVariantStatistics(statistics: PracticeStatisticsEntity, variantResult: VariantResult) {
         withContext(Dispatchers.IO) {
-            practiceStatisticsDao.insert(statistics)
+            variantTaskResultDao.saveVariant(statistics, variantResult.toTaskResultEntities(statistics.egeNumber))
             progressSyncRepository.queueStatisticsUpdate(statistics, false)
             Timber.d("PracticeStatsRepo", "Saved variant statistics for ${statistics.egeNumber} and queued for sync")
         }
@@ -112,6 +99,7 @@ class PracticeStatisticsRepository @Inject constructor(
                     currentStats.variantData = variantDataJson
                     
                     practiceStatisticsDao.update(currentStats)
+                    variantTaskResultDao.replaceResults(egeNumber, variantResult.toTaskResultEntities(egeNumber))
                     
                     Timber.d("PracticeStatsRepo", "Variant data updated for egeNumber: $egeNumber")
                     
@@ -133,7 +121,10 @@ class PracticeStatisticsRepository @Inject constructor(
         return withContext(Dispatchers.IO) {
             try {
                 val stats = practiceStatisticsDao.getStatisticsByEgeNumberSync(egeNumber)
-                if (stats != null && !stats.variantData.isNullOrEmpty()) {
+                val results = variantTaskResultDao.getResultsSync(egeNumber)
+                if (stats != null && results.isNotEmpty()) {
+                    results.toVariantResult("", stats.lastAttemptDate)
+                } else if (stats != null && !stats.variantData.isNullOrEmpty()) {
                     VariantResult.fromJsonString(
                         stats.variantData!!,
                         "", 
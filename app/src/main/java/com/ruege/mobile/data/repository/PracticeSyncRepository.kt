@@ -1,14 +1,25 @@
 package com.ruege.mobile.data.repository
 
+import androidx.room.withTransaction
+import com.ruege.mobile.data.local.AppDatabase
+import com.ruege.mobile.data.local.dao.PracticeAttemptCounterDao
 import com.ruege.mobile.data.local.dao.PracticeStatisticsDao
+import com.ruege.mobile.data.local.dao.VariantTaskResultDao
+import com.ruege.mobile.data.local.entity.PracticeAttemptCounterEntity
 import com.ruege.mobile.data.local.entity.PracticeAttemptEntity
 import com.ruege.mobile.data.local.entity.PracticeStatisticsEntity
+import com.ruege.mobile.data.mapper.toAttemptCounterDto
+import com.ruege.mobile.data.mapper.toAttemptCounterEntities
+import com.ruege.mobile.data.mapper.toPNCounters
+import com.ruege.mobile.data.mapper.toTaskResultEntities
 import com.ruege.mobile.data.network.api.PracticeApiService
 import com.ruege.mobile.data.network.dto.response.PracticeAttemptSyncResponseDto
 import com.ruege.mobile.data.network.dto.request.PracticeStatisticSyncDto
 import com.ruege.mobile.data.network.dto.response.PracticeStatisticsGetResponse
+import com.ruege.mobile.data.sync.MaxValuePolicy
+import com.ruege.mobile.data.sync.PNCounterPolicy
+import com.ruege.mobile.model.VariantResult
 import kotlinx.coroutines.Dispatchers
-import kotlinx.coroutines.flow.first
 import kotlinx.coroutines.withContext
 import timber.log.Timber
 import javax.inject.Inject
@@ -18,6 +29,9 @@ import javax.inject.Singleton
 class PracticeSyncRepository @Inject constructor(
     private val practiceApiService: PracticeApiService,
     private val practiceStatisticsDao: PracticeStatisticsDao,
+    private val practiceAttemptCounterDao: PracticeAttemptCounterDao,
+    private val appDatabase: AppDatabase,
+    private val variantTaskResultDao: VariantTaskResultDao
 ) {
 
     suspend fun performFullSync(timestamp: Long?): Result<PracticeStatisticsGetResponse> = withContext(Dispatchers.IO) {
@@ -31,34 +45,9 @@ class PracticeSyncRepository @Inject constructor(
                 Timber.d("Сервер ответил, начинаем обновление локальной БД...")
                 Timber.d("Raw DTOs from Moshi: ${syncResponse.statistics}")
 
-                val serverStats = syncResponse.statistics.map { it.toEntity() }
-                Timber.d("Entities after mapping: ${serverStats.joinToString { stat -> "[egeNumber=${stat.egeNumber}]" }}")
-                
                 try {
-                    val localStatsMap = practiceStatisticsDao.getAllStatisticsSortedByEgeNumber().first().associateBy { it.egeNumber }
-                    val statsToUpdate = mutableListOf<PracticeStatisticsEntity>()
-
-                    for (serverStat in serverStats) {
-                        val localStat = localStatsMap[serverStat.egeNumber]
-                        if (localStat == null) {
-                            statsToUpdate.add(serverStat)
-                        } else {
-                            if (serverStat.lastAttemptDate > localStat.lastAttemptDate) {
-                                statsToUpdate.add(serverStat)
-                            }
-                        }
-                    }
-
-                    Timber.d("Содержимое списка statsToUpdate перед вставкой в БД (${statsToUpdate.size} элементов):")
-                    statsToUpdate.forEachIndexed { index, stat ->
-                        Timber.d("  [$index]: egeNumber='${stat.egeNumber}', totalAttempts=${stat.totalAttempts}, correctAttempts=${stat.correctAttempts}, lastAttemptDate=${stat.lastAttemptDate}, variantData=${stat.variantData?.length ?: "null"} chars")
-                    }
-
-                    if (statsToUpdate.isNotEmpty()) {
-                        practiceStatisticsDao.insertAll(statsToUpdate)
-                        Timber.d("Вставлено/обновлено ${statsToUpdate.size} записей статистики.")
-                    }
-
+                    val applied = mergeServerStatistics(syncResponse.statistics)
+                    Timber.d("Вставлено/обновлено $applied записей статистики.")
                 } catch (e: Exception) {
                     Timber.e(e, "Ошибка при слиянии данных статистики")
                 }
@@ -76,6 +65,91 @@ class PracticeSyncRepository @Inject constructor(
         }
     }
 
+    /**
+     * Объединяет серверную статистику с локальной в одной транзакции.
+     * Счетчики попыток сливаются как PN-счетчики по устройствам, поэтому попытки,
+     * сделанные локально после серверного снимка, не теряются.
+     * Для вариантов с новыми variant_data пересобираются строки variant_task_results.
+     * @return количество измененных записей статистики
+     */
+    private suspend fun mergeServerStatistics(serverStats: List<PracticeStatisticSyncDto>): Int {
+        if (serverStats.isEmpty()) {
+            return 0
+        }
+
+        return appDatabase.withTransaction {
+            val egeNumbers = serverStats.map { it.egeNumber }
+            val localStatsMap = practiceStatisticsDao.getStatisticsByEgeNumbersSync(egeNumbers).associateBy { it.egeNumber }
+            val localCountersMap = practiceAttemptCounterDao.getCountersByEgeNumbersSync(egeNumbers).groupBy { it.egeNumber }
+
+            val statsToUpdate = mutableListOf<PracticeStatisticsEntity>()
+            val countersToUpdate = mutableListOf<PracticeAttemptCounterEntity>()
+
+            for (serverDto in serverStats) {
+                val serverStat = serverDto.toEntity()
+                val localStat = localStatsMap[serverStat.egeNumber]
+                val (localTotal, localCorrect) = localCountersMap[serverStat.egeNumber].orEmpty()
+                    .map { it.toAttemptCounterDto() }
+                    .toPNCounters()
+                val (serverTotal, serverCorrect) = serverDto.attemptCounters.orEmpty().toPNCounters()
+
+                val mergedTotal = PNCounterPolicy.merge(localTotal, serverTotal)
+                val mergedCorrect = PNCounterPolicy.merge(localCorrect, serverCorrect)
+                if (mergedTotal != localTotal || mergedCorrect != localCorrect) {
+                    countersToUpdate.addAll(toAttemptCounterEntities(serverStat.egeNumber, mergedTotal, mergedCorrect))
+                }
+
+                // Попытки, учтенные до появления счетчиков по устройствам, есть только в агрегатах:
+                // для них агрегаты сливаются как счетчик одной реплики (максимум)
+                val merged = PracticeStatisticsEntity(
+                    serverStat.egeNumber,
+                    maxOf(mergedTotal.value, (localStat?.totalAttempts ?: 0).toLong(), serverStat.totalAttempts.toLong()).toInt(),
+                    maxOf(mergedCorrect.value, (localStat?.correctAttempts ?: 0).toLong(), serverStat.correctAttempts.toLong()).toInt(),
+                    MaxValuePolicy.merge(localStat?.lastAttemptDate ?: 0L, serverStat.lastAttemptDate),
+                    if (localStat == null || serverStat.lastAttemptDate > localStat.lastAttemptDate) {
+                        serverStat.variantData ?: localStat?.variantData
+                    } else {
+                        localStat.variantData ?: serverStat.variantData
+                    }
+                )
+
+                if (localStat == null || !isSameStatistics(localStat, merged)) {
+                    statsToUpdate.add(merged)
+                }
+            }
+
+            if (countersToUpdate.isNotEmpty()) {
+                practiceAttemptCounterDao.insertAll(countersToUpdate)
+            }
+            if (statsToUpdate.isNotEmpty()) {
+                practiceStatisticsDao.insertAll(statsToUpdate)
+            }
+            // Результаты заданий пересобираются, если изменился JSON варианта или локальная
+            // строка была сохранена без kind = variant и дочерних строк у нее нет
+            for (stat in statsToUpdate) {
+                val variantData = stat.variantData
+                val localStat = localStatsMap[stat.egeNumber]
+                if (stat.kind == PracticeStatisticsEntity.KIND_VARIANT && !variantData.isNullOrEmpty() &&
+                    (variantData != localStat?.variantData || localStat?.kind != PracticeStatisticsEntity.KIND_VARIANT)
+                ) {
+                    val variantResult = VariantResult.fromJsonString(variantData, "", stat.lastAttemptDate)
+                    if (variantResult != null) {
+                        variantTaskResultDao.replaceResults(stat.egeNumber, variantResult.toTaskResultEntities(stat.egeNumber))
+                    }
+                }
+            }
+            statsToUpdate.size
+        }
+    }
+
+    private fun isSameStatistics(a: PracticeStatisticsEntity, b: PracticeStatisticsEntity): Boolean {
+        return a.totalAttempts == b.totalAttempts &&
+            a.correctAttempts == b.correctAttempts &&
+            a.lastAttemptDate == b.lastAttemptDate &&
+            a.variantData == b.variantData &&
+            a.kind == b.kind
+    }
+
     private fun PracticeStatisticSyncDto.toEntity(): PracticeStatisticsEntity {
         return PracticeStatisticsEntity().apply {
             egeNumber = this@toEntity.egeNumber
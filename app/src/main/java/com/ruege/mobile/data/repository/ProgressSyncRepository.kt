@@ -3,14 +3,18 @@ package com.ruege.mobile.data.repository
 import android.content.Context
 import timber.log.Timber
 import androidx.lifecycle.LiveData
+import androidx.room.withTransaction
+import com.ruege.mobile.data.local.AppDatabase
 import com.ruege.mobile.data.local.dao.ContentDao
 import com.ruege.mobile.data.local.dao.ProgressDao
+import com.ruege.mobile.data.local.dao.ProgressSolvedTaskDao
 import com.ruege.mobile.data.local.dao.ProgressSyncQueueDao
 import com.ruege.mobile.data.local.entity.ProgressEntity
+import com.ruege.mobile.data.local.entity.ProgressSolvedTaskEntity
 import com.ruege.mobile.data.local.entity.ProgressSyncQueueEntity
 import com.ruege.mobile.data.local.entity.SyncStatus
 import com.ruege.mobile.data.network.api.ProgressApiService
-import com.ruege.mobile.data.network.dto.ProgressUpdateRequest
+import com.ruege.mobile.data.network.dto.response.ProgressSyncItemDto
 import com.ruege.mobile.utils.NetworkUtils
 import com.ruege.mobile.worker.ProgressSyncWorker
 import dagger.hilt.android.qualifiers.ApplicationContext
@@ -21,18 +25,18 @@ import javax.inject.Inject
 import javax.inject.Singleton
 import com.ruege.mobile.data.mapper.toProgressEntity
 import android.content.SharedPreferences
-import com.ruege.mobile.data.mapper.parseJsonSolvedTaskIds
-import kotlinx.coroutines.flow.map
-import androidx.lifecycle.asFlow
+import com.ruege.mobile.data.mapper.mergeDeltaTaskIds
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.SupervisorJob
 import com.ruege.mobile.data.local.dao.UserDao
 import com.ruege.mobile.data.local.entity.PracticeStatisticsEntity
-import com.ruege.mobile.data.local.dao.PracticeStatisticsDao
-import com.ruege.mobile.data.network.api.PracticeApiService
-import com.ruege.mobile.data.network.dto.request.PracticeStatisticSyncDto
-import com.ruege.mobile.data.network.dto.request.PracticeStatisticsBranchRequest
 import com.ruege.mobile.data.local.dao.TaskDao
+import com.ruege.mobile.data.sync.GrowOnlySetPolicy
+import com.ruege.mobile.data.sync.MaxValuePolicy
+import com.ruege.mobile.data.sync.MergePolicy
+import com.ruege.mobile.data.sync.SyncEngine
+import com.ruege.mobile.data.sync.SyncScheduler
+import com.ruege.mobile.data.sync.SyncSequenceStore
 
 /**
  * Репозиторий для управления синхронизацией прогресса между локальной базой данных и сервером
@@ -43,19 +47,24 @@ class ProgressSyncRepository @Inject constructor(
     private val progressDao: ProgressDao,
     private val progressSyncQueueDao: ProgressSyncQueueDao,
     private val progressApiService: ProgressApiService,
-    private val practiceApiService: PracticeApiService,
     private val contentDao: ContentDao,
     private val userDao: UserDao,
-    private val practiceStatisticsDao: PracticeStatisticsDao,
     private val practiceSyncRepository: PracticeSyncRepository,
-    private val taskDao: TaskDao
+    private val taskDao: TaskDao,
+    private val syncEngine: SyncEngine,
+    private val syncSequenceStore: SyncSequenceStore,
+    private val appDatabase: AppDatabase,
+    private val syncScheduler: SyncScheduler,
+    private val progressSolvedTaskDao: ProgressSolvedTaskDao
 ) {
     private val TAG = "ProgressSyncRepository"
     private val PREFS_NAME = "ProgressSyncPrefs"
     private val KEY_LAST_SYNC_TIMESTAMP = "lastSyncTimestamp"
-    private val KEY_LAST_STATS_SYNC_TIMESTAMP = "lastStatsSyncTimestamp"
-    private val KEY_COMPLETED_TASKS_COUNTER = "completedTasksCounter"
-    private val TASKS_THRESHOLD_FOR_SYNC = 20
+    private val KEY_PULL_CURSOR = "pullCursor"
+    private val KEY_PULL_MAX_TIMESTAMP = "pullMaxTimestamp"
+    private val PULL_PAGE_SIZE = 200
+    private val MAX_PULL_PAGES = 50
+    private val solvedTasksMergePolicy: MergePolicy<Set<String>> = GrowOnlySetPolicy
 
     private val repositoryScope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
 
@@ -72,99 +81,44 @@ class ProgressSyncRepository @Inject constructor(
         sharedPreferences.edit().putLong(KEY_LAST_SYNC_TIMESTAMP, timestamp).apply()
     }
 
-    private fun getLastStatsSyncTimestamp(): Long? {
-        val timestamp = sharedPreferences.getLong(KEY_LAST_STATS_SYNC_TIMESTAMP, -1L)
-        return if (timestamp == -1L) null else timestamp
+    /**
+     * Курсор незавершенной загрузки для текущего окна lastSyncTimestamp и наибольшая
+     * метка времени из уже примененных страниц; null - загрузка начинается с начала
+     */
+    private fun getPullCheckpoint(): Pair<Int, Long?>? {
+        val cursor = sharedPreferences.getInt(KEY_PULL_CURSOR, -1)
+        if (cursor == -1) return null
+        val maxTimestamp = sharedPreferences.getLong(KEY_PULL_MAX_TIMESTAMP, -1L)
+        return cursor to maxTimestamp.takeIf { it != -1L }
     }
 
-    private fun saveLastStatsSyncTimestamp(timestamp: Long) {
-        sharedPreferences.edit().putLong(KEY_LAST_STATS_SYNC_TIMESTAMP, timestamp).apply()
-    }
-    
-    private fun getCompletedTasksCounter(): Int {
-        return sharedPreferences.getInt(KEY_COMPLETED_TASKS_COUNTER, 0)
+    private fun savePullCheckpoint(cursor: Int, maxTimestamp: Long?) {
+        sharedPreferences.edit()
+            .putInt(KEY_PULL_CURSOR, cursor)
+            .putLong(KEY_PULL_MAX_TIMESTAMP, maxTimestamp ?: -1L)
+            .apply()
     }
-    
-    private fun incrementCompletedTasksCounter() {
-        val currentCount = getCompletedTasksCounter()
-        sharedPreferences.edit().putInt(KEY_COMPLETED_TASKS_COUNTER, currentCount + 1).apply()
-        
-        if ((currentCount + 1) >= TASKS_THRESHOLD_FOR_SYNC) {
-            Timber.d("Достигнут порог в $TASKS_THRESHOLD_FOR_SYNC выполненных заданий, запускаем синхронизацию")
-            
-            syncNow(true)
-            
-            repositoryScope.launch {
-                try {
-                    Timber.d("Пороговая синхронизация: отправка прямого запроса на синхронизацию с сервером после $TASKS_THRESHOLD_FOR_SYNC заданий")
-                    
-                    val pendingItems = progressSyncQueueDao.getItemsByStatusSync(SyncStatus.PENDING.getValue(), 100)
-                    
-                    if (pendingItems.isNotEmpty()) {
-                        Timber.d("Пороговая синхронизация: найдено ${pendingItems.size} записей для синхронизации")
-                        
-                        pendingItems.forEach { item ->
-                            try {
-                                val updateRequest = ProgressUpdateRequest(
-                                    contentId = item.itemId,
-                                    percentage = item.percentage,
-                                    completed = item.isCompleted(),
-                                    timestamp = item.timestamp,
-                                    solvedTaskIds = parseJsonSolvedTaskIds(item.getSolvedTaskIds())
-                                )
-                                
-                                val response = progressApiService.updateProgress(updateRequest)
-                                
-                                if (response.isSuccessful) {
-                                    item.syncStatus = SyncStatus.SYNCED
-                                    progressSyncQueueDao.update(item)
-                                    Timber.d("Пороговая синхронизация: успешно синхронизирован ${item.itemId}")
-                                } else {
-                                    item.syncStatus = SyncStatus.FAILED
-                                    progressSyncQueueDao.update(item)
-                                    Timber.d("Пороговая синхронизация: ошибка синхронизации ${item.itemId}, код ${response.code()}")
-                                }
-                            } catch (e: Exception) {
-                                Timber.d("Пороговая синхронизация: исключение при синхронизации ${item.itemId}", e)
-                                item.syncStatus = SyncStatus.FAILED
-                                progressSyncQueueDao.update(item)
-                            }
-                        }
-                        
-                        forceSyncWithServer()
-                    } else {
-                        Timber.d("Пороговая синхронизация: нет записей для синхронизации, запрашиваем актуальный прогресс с сервера")
-                        
-                        forceSyncWithServer()
-                    }
-                } catch (e: Exception) {
-                    Timber.d("Пороговая синхронизация: ошибка при выполнении прямой синхронизации", e)
-                }
-            }
-            
-            resetCompletedTasksCounter()
-        } else {
-            Timber.d("Счетчик заданий увеличен до ${currentCount + 1}, порог для синхронизации: $TASKS_THRESHOLD_FOR_SYNC")
-        }
+
+    private fun clearPullCheckpoint() {
+        sharedPreferences.edit().remove(KEY_PULL_CURSOR).remove(KEY_PULL_MAX_TIMESTAMP).apply()
     }
     
-    private fun resetCompletedTasksCounter() {
-        sharedPreferences.edit().putInt(KEY_COMPLETED_TASKS_COUNTER, 0).apply()
-        Timber.d("Счетчик выполненных заданий сброшен в 0")
-    }
-
     /**
      * Добавляет запись об обновлении прогресса в очередь синхронизации
      * @param progress объект с данными о прогрессе
-     * @param syncImmediately нужно ли запустить синхронизацию немедленно
+     * @param syncImmediately сократить окно накопления изменений до минимального
+     * @param addedTaskIds ID заданий, решенных в рамках этого обновления; null означает,
+     * что изменения нельзя выразить дельтой и серверу нужно отправить полный список
      * @return id добавленной записи
      */
-    suspend fun queueProgressUpdate(progress: ProgressEntity, syncImmediately: Boolean = false): Long = withContext(Dispatchers.IO) {
+    suspend fun queueProgressUpdate(
+        progress: ProgressEntity,
+        syncImmediately: Boolean = false,
+        addedTaskIds: List<String>? = null
+    ): Long = withContext(Dispatchers.IO) {
         val timestamp = System.currentTimeMillis()
         val userId = progress.getUserId()
         
-        val solvedTaskIds = progress.getSolvedTaskIds()
-        
         Timber.d("🔄 Добавление в очередь синхронизации: itemId=${progress.getContentId()}, percentage=${progress.getPercentage()}, completed=${progress.isCompleted()}, syncImmediately=$syncImmediately")
         
         val syncQueueEntity = ProgressSyncQueueEntity(
@@ -175,41 +129,31 @@ class ProgressSyncRepository @Inject constructor(
             timestamp,
             userId,
             SyncStatus.PENDING,
-            solvedTaskIds
+            "[]"
         )
+        syncQueueEntity.setOperationId(syncSequenceStore.newOperationId())
+        syncQueueEntity.setDeviceSequence(syncSequenceStore.nextDeviceSequence())
         
         val existingItem = progressSyncQueueDao.getItemByItemId(progress.getContentId())
         
         if (existingItem != null) {
             syncQueueEntity.setId(existingItem.id)
+            syncQueueEntity.setSequence(existingItem.sequence + 1)
+            if (existingItem.syncStatus == SyncStatus.SYNCED) {
+                syncQueueEntity.setDeltaTaskIds(addedTaskIds?.let { ProgressEntity.listToJsonString(it) })
+            } else {
+                syncQueueEntity.setDeltaTaskIds(mergeDeltaTaskIds(existingItem.deltaTaskIds, addedTaskIds))
+            }
             Timber.d("🔄 Обновляем существующую запись в очереди: itemId=${progress.getContentId()}, id=${existingItem.id}")
+        } else {
+            syncQueueEntity.setSequence(1)
+            syncQueueEntity.setDeltaTaskIds(addedTaskIds?.let { ProgressEntity.listToJsonString(it) })
         }
         
         val id = progressSyncQueueDao.insert(syncQueueEntity)
-        Timber.d("🔄 Добавлен прогресс в очередь синхронизации: itemId=${progress.getContentId()}, id=$id")
+        Timber.d("🔄 Добавлен прогресс в очередь синхронизации: itemId=${progress.getContentId()}, id=$id, delta=${syncQueueEntity.deltaTaskIds}")
         
-        if (progress.isCompleted() && progress.contentId.startsWith("task_group_")) {
-            incrementCompletedTasksCounter()
-            Timber.d("🔄 Увеличен счетчик выполненных заданий для: ${progress.getContentId()}")
-        }
-        
-        if (syncImmediately && NetworkUtils.isNetworkAvailable(context)) {
-            Timber.d("🔄 Запрошена принудительная синхронизация для ${progress.getContentId()}, запускаем немедленно")
-            ProgressSyncWorker.startOneTimeSync(context, true)
-            syncNow(true, false)
-            Timber.d("🔄 Прямой вызов syncNow для немедленной синхронизации contentId=${progress.getContentId()}")
-        } else {
-            Timber.d("🔄 Синхронизация для ${progress.getContentId()} добавлена в очередь (syncImmediately=$syncImmediately, сеть: ${NetworkUtils.isNetworkAvailable(context)})")
-            
-            val completedCount = getCompletedTasksCounter()
-            Timber.d("🔄 Текущий счетчик выполненных заданий: $completedCount")
-            
-            if (completedCount >= TASKS_THRESHOLD_FOR_SYNC && NetworkUtils.isNetworkAvailable(context)) {
-                Timber.d("🔄 Достигнут порог заданий ($completedCount >= $TASKS_THRESHOLD_FOR_SYNC), запускаем синхронизацию")
-                resetCompletedTasksCounter()
-                syncNow(true, false)
-            }
-        }
+        syncScheduler.onItemsQueued(urgent = syncImmediately)
         
         return@withContext id
     }
@@ -252,17 +196,17 @@ class ProgressSyncRepository @Inject constructor(
             ProgressSyncWorker.startOneTimeSync(context, expedited = false, isExitSync = true)
             Timber.d("Exit sync has been scheduled using WorkManager.")
         } else {
-            ProgressSyncWorker.startOneTimeSync(context, expedited = expedited, isExitSync = false)
+            syncScheduler.flushNow(expedited)
             Timber.d("One-time sync has been scheduled using WorkManager.")
         }
     }
     
     /**
-     * Возвращает LiveData для наблюдения за всеми элементами очереди синхронизации
-     * @return LiveData со списком всех элементов очереди
+     * Возвращает LiveData для наблюдения за неотправленными элементами очереди синхронизации
+     * @return LiveData со списком элементов очереди, еще не подтвержденных сервером
      */
-    fun getAllSyncItems(): LiveData<List<ProgressSyncQueueEntity>> {
-        return progressSyncQueueDao.getAllItems()
+    fun getUnsyncedItems(): LiveData<List<ProgressSyncQueueEntity>> {
+        return progressSyncQueueDao.getUnsyncedItems()
     }
     
     /**
@@ -276,7 +220,7 @@ class ProgressSyncRepository @Inject constructor(
             repositoryScope.launch {
                 val pendingCount = progressSyncQueueDao.getCountByStatusSync(SyncStatus.PENDING.getValue())
                 val failedCount = progressSyncQueueDao.getCountByStatusSync(SyncStatus.FAILED.getValue())
-                val totalCount = progressSyncQueueDao.getAllItemsSync().size
+                val totalCount = progressSyncQueueDao.getTotalCountSync()
                 
                 Timber.d("🚀 Статистика очереди синхронизации: pending=$pendingCount, failed=$failedCount, всего=$totalCount")
                 
@@ -310,116 +254,15 @@ class ProgressSyncRepository @Inject constructor(
                 return@withContext false
             }
             
-            val statusesToSync = listOf(SyncStatus.PENDING.getValue(), SyncStatus.FAILED.getValue())
-            val pendingItems = progressSyncQueueDao.getItemsByStatusesSync(statusesToSync, 100)
-            if (pendingItems.isNotEmpty()) {
-                Timber.d("🔄 Найдено ${pendingItems.size} элементов в очереди (PENDING или FAILED), отправляем перед запросом синхронизации")
-                val syncSuccess = processSyncItems(pendingItems)
-                if (!syncSuccess) {
-                    Timber.d("⚠️ Не удалось отправить элементы из очереди")
-                }
+            val flushResult = syncEngine.flush()
+            if (!flushResult.success) {
+                Timber.d("⚠️ Не удалось отправить часть элементов из очереди (${flushResult.totalItems} обработано)")
             } else {
-                Timber.d("ℹ️ Очередь синхронизации пуста, нечего отправлять")
+                Timber.d("🔄 Очередь синхронизации отправлена, обработано элементов: ${flushResult.totalItems}")
             }
             
-            val lastTimestamp = getLastSyncTimestamp()
-            Timber.d("🕒 Запрашиваем синхронизацию прогресса с timestamp: $lastTimestamp")
-            
             try {
-                val response = progressApiService.syncProgress(lastTimestamp)
-                
-                if (response.isSuccessful) {
-                    val serverProgressDtoList = response.body()
-                    
-                    if (serverProgressDtoList != null) {
-                        if (serverProgressDtoList.isNotEmpty()) {
-                            Timber.d("✅ Получено ${serverProgressDtoList.size} записей прогресса с сервера")
-                            
-                            val entitiesToInsert = serverProgressDtoList.mapNotNull { dto ->
-                                dto.toProgressEntity()
-                            }
-                            
-                            if (entitiesToInsert.isNotEmpty()) {
-                                val existingProgressMap = progressDao.getAllProgressListSync().associateBy { it.getContentId() }
-
-                                val toUpdate = mutableListOf<ProgressEntity>()
-                                val toInsert = mutableListOf<ProgressEntity>()
-                                val toQueueForSync = mutableListOf<ProgressEntity>()
-
-                                for (serverEntity in entitiesToInsert) {
-                                    val localEntity = existingProgressMap[serverEntity.getContentId()]
-
-                                    if (localEntity != null) {
-                                        if (serverEntity.getLastAccessed() > localEntity.getLastAccessed()) {
-                                            val localSolvedIds = localEntity.getSolvedTaskIdsList().toMutableSet()
-                                            val serverSolvedIds = serverEntity.getSolvedTaskIdsList()
-                                            localSolvedIds.addAll(serverSolvedIds)
-                                            
-                                            val mergedEntity = serverEntity
-                                            mergedEntity.setSolvedTaskIds(ProgressEntity.listToJsonString(localSolvedIds.toList()))
-                                            val totalTasks = getTotalTasksCount(mergedEntity.getContentId())
-                                            val newPercentage = calculatePercentage(localSolvedIds.size, totalTasks)
-                                            mergedEntity.setPercentage(newPercentage)
-                                            mergedEntity.setCompleted(newPercentage >= 100)                                           
-                                            mergedEntity.setLastAccessed(maxOf(serverEntity.getLastAccessed(), localEntity.getLastAccessed()))
-                                            toUpdate.add(mergedEntity)
-                                            Timber.d("✅ Обновление с объединением для ${serverEntity.getContentId()}, сервер новее. Сервер: ${serverEntity.getLastAccessed()}, Локально: ${localEntity.getLastAccessed()}. Объединенные ID: ${localSolvedIds.size}")
-                                        } else if (localEntity.getLastAccessed() > serverEntity.getLastAccessed()) {
-                                            toQueueForSync.add(localEntity)
-                                            Timber.d("✅ Локальные данные для ${localEntity.getContentId()} новее серверных. Сервер: ${serverEntity.getLastAccessed()}, Локально: ${localEntity.getLastAccessed()}. Будет добавлено в очередь.")
-                                        }
-                                    } else {
-                                        toInsert.add(serverEntity)
-                                        Timber.d("✅ Новая запись с сервера для ${serverEntity.getContentId()}")
-                                    }
-                                }
-                                
-                                if (toUpdate.isNotEmpty()) {
-                                    progressDao.updateAll(toUpdate)
-                                    Timber.d("✅ Успешно обновлено ${toUpdate.size} существующих записей прогресса после объединения")
-                                }
-                                
-                                if (toInsert.isNotEmpty()) {
-                                    progressDao.insertAll(toInsert)
-                                    Timber.d("✅ Успешно добавлено ${toInsert.size} новых записей прогресса")
-                                }
-
-                                if (toQueueForSync.isNotEmpty()) {
-                                    for (entityToSync in toQueueForSync) {
-                                        queueProgressUpdate(entityToSync, true)
-                                    }
-                                    Timber.d("✅ Добавлено в очередь на синхронизацию ${toQueueForSync.size} локально обновленных записей")
-                                }
-                                
-                                Timber.d("✅ Всего обработано ${entitiesToInsert.size} записей прогресса (обновлено с объединением: ${toUpdate.size}, новых: ${toInsert.size}, поставлено в очередь: ${toQueueForSync.size})")
-                            }
-                            
-                            val maxTimestamp = serverProgressDtoList.mapNotNull { it.timestamp }.maxOrNull() ?: System.currentTimeMillis()
-                            saveLastSyncTimestamp(maxTimestamp)
-                            Timber.d("🕒 Сохранена новая метка времени синхронизации: $maxTimestamp")
-                        } else {
-                            Timber.d("ℹ️ Сервер вернул пустой список прогресса")
-                            
-                            if (lastTimestamp == null) {
-                                val currentTime = System.currentTimeMillis()
-                                saveLastSyncTimestamp(currentTime)
-                                Timber.d("🕒 Сохранена текущая метка времени: $currentTime")
-                            }
-                        }
-                        return@withContext true
-                    } else {
-                        Timber.d("⚠️ Сервер вернул null вместо списка прогресса")
-                    }
-                } else {
-                    Timber.d("🚫 Ошибка при запросе прогресса: ${response.code()} ${response.message()}")
-                    if (response.errorBody() != null) {
-                        try {
-                            Timber.d("🚫 Тело ошибки: ${response.errorBody()?.string()}")
-                        } catch (e: Exception) {
-                            Timber.d("🚫 Не удалось прочитать тело ошибки", e)
-                        }
-                    }
-                }
+                return@withContext pullProgressFromServer()
             } catch (e: Exception) {
                 Timber.d("🚫 Ошибка сети при синхронизации прогресса", e)
                 e.printStackTrace()
@@ -434,178 +277,181 @@ class ProgressSyncRepository @Inject constructor(
     }
 
     /**
-     * Обрабатывает элементы очереди синхронизации пакетом
-     * @param items список элементов для синхронизации
-     * @return true, если синхронизация прошла успешно
+     * Загружает изменения прогресса с сервера постранично и объединяет их с локальными.
+     * Из базы читаются только записи, пришедшие в ответе, а каждая страница
+     * применяется одной транзакцией. Если за один вызов достигнут MAX_PULL_PAGES,
+     * курсор сохраняется, и следующая синхронизация продолжает с него, а не с начала окна.
+     * @return true, если все страницы получены и применены
      */
-    private suspend fun processSyncItems(items: List<ProgressSyncQueueEntity>): Boolean {
-        if (items.isEmpty()) {
-            Timber.d("Нет элементов для синхронизации")
-            return true
+    private suspend fun pullProgressFromServer(): Boolean {
+        val lastTimestamp = getLastSyncTimestamp()
+        Timber.d("🕒 Запрашиваем синхронизацию прогресса с timestamp: $lastTimestamp")
+
+        val checkpoint = getPullCheckpoint()
+        var cursor: Int? = checkpoint?.first
+        var maxTimestamp: Long? = checkpoint?.second
+        var pulledCount = 0
+        if (checkpoint != null) {
+            Timber.d("🕒 Продолжаем загрузку прогресса с курсора ${checkpoint.first}")
         }
+        val toQueueForSync = mutableListOf<Pair<ProgressEntity, List<String>>>()
 
-        Timber.d("📊 Начинаем обработку пакетной синхронизации для ${items.size} элементов")
-
-        val progressItems = items.filter { it.itemType == ProgressSyncQueueEntity.ITEM_TYPE_PROGRESS }
-        val statisticsItems = items.filter { it.itemType == ProgressSyncQueueEntity.ITEM_TYPE_STATISTICS }
+        for (pageIndex in 0 until MAX_PULL_PAGES) {
+            val response = progressApiService.syncProgress(lastTimestamp, PULL_PAGE_SIZE, cursor)
 
-        var progressSyncSuccess = true
-        if (progressItems.isNotEmpty()) {
-            progressSyncSuccess = processProgressItems(progressItems)
-        }
+            if (!response.isSuccessful) {
+                Timber.d("🚫 Ошибка при запросе прогресса: ${response.code()} ${response.message()}")
+                if (response.errorBody() != null) {
+                    try {
+                        Timber.d("🚫 Тело ошибки: ${response.errorBody()?.string()}")
+                    } catch (e: Exception) {
+                        Timber.d("🚫 Не удалось прочитать тело ошибки", e)
+                    }
+                }
+                return interruptPull(cursor, maxTimestamp, toQueueForSync)
+            }
 
-        var statisticsSyncSuccess = true
-        if (statisticsItems.isNotEmpty()) {
-            statisticsSyncSuccess = processStatisticsItems(statisticsItems)
-        }
+            val page = response.body()
+            if (page == null) {
+                Timber.d("⚠️ Сервер вернул null вместо списка прогресса")
+                return interruptPull(cursor, maxTimestamp, toQueueForSync)
+            }
+            if (page.isEmpty()) {
+                break
+            }
 
-        return progressSyncSuccess && statisticsSyncSuccess
-    }
+            pulledCount += page.size
+            toQueueForSync.addAll(mergeServerProgressPage(page))
+            val pageMaxTimestamp = page.maxOf { it.timestamp }
+            maxTimestamp = maxOf(maxTimestamp ?: pageMaxTimestamp, pageMaxTimestamp)
 
-    private suspend fun processProgressItems(items: List<ProgressSyncQueueEntity>): Boolean {
-        Timber.d("📊 Обработка ${items.size} элементов прогресса для batch-синхронизации")
-        try {
-            val groupedItems = items.groupBy { it.itemId }
-            val latestItems = groupedItems.mapValues { (_, items) -> items.maxByOrNull { it.timestamp } }.values.filterNotNull()
-            
-            Timber.d("📊 Обработка ${latestItems.size} уникальных элементов прогресса (было ${items.size})")
-            
-            val contentIds = latestItems.map { it.itemId }
-            val progressEntities = progressDao.getProgressByContentIdsSync(contentIds)
-            val progressEntityMap = progressEntities.associateBy { it.getContentId() }
-            
-            val updateRequests = latestItems.map { item ->
-                val progressEntity = progressEntityMap[item.itemId]
-                if (progressEntity != null) {
-                    toProgressUpdateDto(progressEntity)
-                } else {
-                    ProgressUpdateRequest(
-                        contentId = item.itemId,
-                        percentage = item.percentage,
-                        completed = item.isCompleted(),
-                        timestamp = item.timestamp,
-                        solvedTaskIds = parseJsonSolvedTaskIds(item.getSolvedTaskIds())
-                    )
-                }
+            // Сервер без поддержки пагинации вернет весь список сразу и курсор не сдвинется
+            val nextCursor = page.maxOf { it.progressId }
+            if (page.size < PULL_PAGE_SIZE || (cursor != null && nextCursor <= cursor)) {
+                break
             }
-            
-            if (updateRequests.isEmpty()) {
-                Timber.d("Нет запросов для обновления прогресса после фильтрации")
-                return true
+            cursor = nextCursor
+            if (pageIndex == MAX_PULL_PAGES - 1) {
+                Timber.d("⚠️ Достигнут лимит страниц ($MAX_PULL_PAGES), остаток будет загружен при следующей синхронизации с курсора $nextCursor")
+                return interruptPull(nextCursor, maxTimestamp, toQueueForSync)
             }
-            
-            Timber.d("📊 Отправляем batch-запрос прогресса на сервер для ${updateRequests.size} элементов")
-            
-            val response = progressApiService.updateProgressBatch(updateRequests)
-            
-            Timber.d("📊 Получен ответ от сервера для прогресса: isSuccessful=${response.isSuccessful}, code=${response.code()}")
-            
-            if (response.isSuccessful) {
-                val responseList = response.body() ?: emptyList()
-                val responseMap = responseList.associateBy { it.contentId }
-                
-                for (item in items) {
-                    val itemResponse = responseMap[item.itemId]
-                    if (itemResponse?.success == true) {
-                        item.syncStatus = SyncStatus.SYNCED
-                    } else {
-                        item.syncStatus = SyncStatus.FAILED
-                    }
-                    progressSyncQueueDao.update(item)
-                }
-                
-                val allSuccess = responseList.all { it.success }
-                Timber.d("Batch-синхронизация прогресса завершена, все успешно: $allSuccess")
-                return allSuccess
-            } else {
-                Timber.d("Ошибка при batch-синхронизации прогресса: ${response.code()} ${response.message()}")
-                items.forEach { item ->
-                    item.syncStatus = SyncStatus.FAILED
-                    progressSyncQueueDao.update(item)
-                }
-                return false
-            }
-        } catch (e: Exception) {
-            Timber.d("Исключение при batch-синхронизации прогресса", e)
-            items.forEach { item ->
-                item.syncStatus = SyncStatus.FAILED
-                progressSyncQueueDao.update(item)
+        }
+
+        queueLocalUpdates(toQueueForSync)
+        clearPullCheckpoint()
+
+        if (pulledCount > 0 || maxTimestamp != null) {
+            Timber.d("✅ Получено и обработано $pulledCount записей прогресса с сервера")
+            saveLastSyncTimestamp(maxTimestamp ?: System.currentTimeMillis())
+            Timber.d("🕒 Сохранена новая метка времени синхронизации: $maxTimestamp")
+        } else {
+            Timber.d("ℹ️ Сервер вернул пустой список прогресса")
+            if (lastTimestamp == null) {
+                val currentTime = System.currentTimeMillis()
+                saveLastSyncTimestamp(currentTime)
+                Timber.d("🕒 Сохранена текущая метка времени: $currentTime")
             }
-            return false
         }
+        return true
     }
 
-    private suspend fun processStatisticsItems(items: List<ProgressSyncQueueEntity>): Boolean {
-        Timber.d("📊 Обработка ${items.size} элементов статистики для batch-синхронизации.")
-        try {
-            val updateRequests = items.mapNotNull { item ->
-                val statsEntity = practiceStatisticsDao.getStatisticsByEgeNumberSync(item.itemId)
-                statsEntity?.let {
-                    PracticeStatisticSyncDto(
-                        egeNumber = it.egeNumber,
-                        totalAttempts = it.totalAttempts,
-                        correctAttempts = it.correctAttempts,
-                        lastAttemptDate = it.lastAttemptDate,
-                        variantData = it.variantData
-                    )
-                }
-            }
+    /**
+     * Прерывает загрузку: уже примененные страницы не теряются - их локальные изменения
+     * ставятся в очередь, а курсор сохраняется для следующей синхронизации
+     * @return всегда false
+     */
+    private suspend fun interruptPull(
+        cursor: Int?,
+        maxTimestamp: Long?,
+        toQueueForSync: List<Pair<ProgressEntity, List<String>>>
+    ): Boolean {
+        queueLocalUpdates(toQueueForSync)
+        if (cursor != null) {
+            savePullCheckpoint(cursor, maxTimestamp)
+        }
+        return false
+    }
 
-            if (updateRequests.isEmpty()) {
-                Timber.d("Нет валидных элементов статистики для синхронизации после поиска в БД.")
-                items.forEach { item ->
-                    item.syncStatus = SyncStatus.FAILED
-                    progressSyncQueueDao.update(item)
-                }
-                return true
-            }
+    /**
+     * Ставит в очередь локальные записи, в которых есть задания, отсутствующие на сервере
+     */
+    private suspend fun queueLocalUpdates(toQueueForSync: List<Pair<ProgressEntity, List<String>>>) {
+        if (toQueueForSync.isEmpty()) return
+        for ((entityToSync, localOnlyTaskIds) in toQueueForSync) {
+            queueProgressUpdate(entityToSync, addedTaskIds = localOnlyTaskIds)
+        }
+        Timber.d("✅ Добавлено в очередь на синхронизацию ${toQueueForSync.size} локально обновленных записей")
+        syncEngine.flush()
+    }
 
-            val userId = userDao.getFirstUser()?.getUserId()
-            if (userId == null) {
-                Timber.d("Не удалось получить ID пользователя для синхронизации статистики.")
-                return false
-            }
-            val lastSyncTimestamp = getLastStatsSyncTimestamp() ?: 0L
+    /**
+     * Объединяет страницу серверного прогресса с локальными записями в одной транзакции.
+     * Решенные задания сливаются как растущее множество, время доступа - по максимуму,
+     * поэтому результат не зависит от того, чья запись новее.
+     * @return локальные записи с заданиями, которых нет на сервере, и сами эти задания
+     */
+    private suspend fun mergeServerProgressPage(page: List<ProgressSyncItemDto>): List<Pair<ProgressEntity, List<String>>> {
+        val serverEntities = page.mapNotNull { dto -> dto.toProgressEntity()?.let { it to dto.solvedTaskIds.orEmpty().toSet() } }
+        if (serverEntities.isEmpty()) {
+            return emptyList()
+        }
 
-            val request = PracticeStatisticsBranchRequest(
-                userId = userId.toString(),
-                lastKnownServerSyncTimestamp = lastSyncTimestamp,
-                newOrUpdatedAggregatedStatistics = updateRequests,
-                newAttempts = emptyList()
-            )
+        val toQueueForSync = mutableListOf<Pair<ProgressEntity, List<String>>>()
+        appDatabase.withTransaction {
+            val contentIds = serverEntities.map { it.first.getContentId() }
+            val existingProgressMap = progressDao.getProgressByContentIdsSync(contentIds)
+                .associateBy { it.getContentId() }
+            val localSolvedMap = progressSolvedTaskDao.getByContentIdsSync(contentIds)
+                .groupBy({ it.contentId }, { it.taskId })
+
+            val toUpdate = mutableListOf<ProgressEntity>()
+            val toInsert = mutableListOf<ProgressEntity>()
+            val solvedToInsert = mutableListOf<ProgressSolvedTaskEntity>()
+
+            for ((serverEntity, serverSolvedIds) in serverEntities) {
+                val contentId = serverEntity.getContentId()
+                val localEntity = existingProgressMap[contentId]
+
+                if (localEntity == null) {
+                    toInsert.add(serverEntity)
+                    serverSolvedIds.mapTo(solvedToInsert) { ProgressSolvedTaskEntity(contentId, it, serverEntity.getLastAccessed()) }
+                    continue
+                }
 
-            val response = practiceApiService.updatePracticeStatistics(request)
-            
-            Timber.d("📊 Получен ответ от сервера для статистики: isSuccessful=${response.isSuccessful}, code=${response.code()}")
+                val localSolvedIds = localSolvedMap[contentId].orEmpty().toSet()
+                val mergedSolvedIds = solvedTasksMergePolicy.merge(localSolvedIds, serverSolvedIds)
+                val mergedLastAccessed = MaxValuePolicy.merge(localEntity.getLastAccessed(), serverEntity.getLastAccessed())
 
-            if (response.isSuccessful) {
-                val branchResponse = response.body()
-                if (branchResponse != null) {
-                    saveLastStatsSyncTimestamp(branchResponse.newServerSyncTimestamp)
-                    Timber.d("🕒 Сохранена новая метка времени синхронизации статистики из branch-ответа: ${branchResponse.newServerSyncTimestamp}")
+                (serverSolvedIds - localSolvedIds).mapTo(solvedToInsert) {
+                    ProgressSolvedTaskEntity(contentId, it, serverEntity.getLastAccessed())
                 }
-                items.forEach { item ->
-                    item.syncStatus = SyncStatus.SYNCED
-                    progressSyncQueueDao.update(item)
+
+                if (mergedSolvedIds.size != localSolvedIds.size || mergedLastAccessed != localEntity.getLastAccessed()) {
+                    val totalTasks = getTotalTasksCount(contentId)
+                    val newPercentage = calculatePercentage(mergedSolvedIds.size, totalTasks)
+                    localEntity.setPercentage(newPercentage)
+                    localEntity.setCompleted(newPercentage >= 100)
+                    localEntity.setLastAccessed(mergedLastAccessed)
+                    toUpdate.add(localEntity)
                 }
-                Timber.d("Batch-синхронизация статистики успешно завершена.")
-                return true
-            } else {
-                Timber.d("Batch-синхронизация статистики не удалась: ${response.code()} ${response.message()}")
-                items.forEach { item ->
-                    item.syncStatus = SyncStatus.FAILED
-                    progressSyncQueueDao.update(item)
+
+                if (mergedSolvedIds.size != serverSolvedIds.size) {
+                    toQueueForSync.add(localEntity to (localSolvedIds - serverSolvedIds).toList())
                 }
-                return false
             }
-        } catch (e: Exception) {
-            Timber.d("Ошибка во время batch-синхронизации статистики", e)
-             items.forEach { item ->
-                item.syncStatus = SyncStatus.FAILED
-                progressSyncQueueDao.update(item)
+
+            if (toUpdate.isNotEmpty()) {
+                progressDao.updateAll(toUpdate)
             }
-            return false
+            if (toInsert.isNotEmpty()) {
+                progressDao.insertAll(toInsert)
+            }
+            if (solvedToInsert.isNotEmpty()) {
+                progressSolvedTaskDao.insertAllOrIgnore(solvedToInsert)
+            }
+            Timber.d("✅ Страница прогресса применена: обновлено ${toUpdate.size}, новых ${toInsert.size}, есть только локально ${toQueueForSync.size}")
         }
+        return toQueueForSync
     }
 
     /**
@@ -616,53 +462,39 @@ class ProgressSyncRepository @Inject constructor(
      */
     suspend fun addSolvedTask(taskGroupId: String, solvedTaskId: String, syncImmediately: Boolean = false) = withContext(Dispatchers.IO) {
         try {
-            var progressEntity = progressDao.getProgressByContentIdSync(taskGroupId)
+            val now = System.currentTimeMillis()
+            val progressEntity = appDatabase.withTransaction {
+                val inserted = progressSolvedTaskDao.insertOrIgnore(ProgressSolvedTaskEntity(taskGroupId, solvedTaskId, now)) != -1L
+                if (!inserted) {
+                    return@withTransaction null
+                }
 
-            if (progressEntity == null) {
-                Timber.d("Прогресс для группы $taskGroupId не найден, создаем новый.")
-                progressEntity = ProgressEntity()
-                progressEntity.setContentId(taskGroupId)
-                progressEntity.setPercentage(0)
-                progressEntity.setCompleted(false)
-                progressEntity.setLastAccessed(System.currentTimeMillis())
-                progressEntity.setSolvedTaskIds("[]")
-
-                progressDao.insert(progressEntity)
-                Timber.d("Новая сущность ProgressEntity для $taskGroupId создана и сохранена.")
-                progressEntity = progressDao.getProgressByContentIdSync(taskGroupId)
-                if (progressEntity == null) {
-                    Timber.d("Не удалось создать или получить ProgressEntity для $taskGroupId после insert.")
-                    return@withContext false
+                var entity = progressDao.getProgressByContentIdSync(taskGroupId)
+                if (entity == null) {
+                    Timber.d("Прогресс для группы $taskGroupId не найден, создаем новый.")
+                    entity = ProgressEntity()
+                    entity.setContentId(taskGroupId)
+                    entity.setSolvedTaskIds("[]")
                 }
-            }
-            
-            val currentSolved = progressEntity.getSolvedTaskIdsList().toMutableList()
-            
-            if (!currentSolved.contains(solvedTaskId)) {
-                currentSolved.add(solvedTaskId)
-                
+
                 val totalTasksCount = getTotalTasksCount(taskGroupId)
-                Timber.d("Общее количество заданий для группы $taskGroupId: $totalTasksCount")
-                
-                val newPercentage = calculatePercentage(currentSolved.size, totalTasksCount)
-                val newLastAccessed = System.currentTimeMillis()
-                val newSolvedTaskIds = ProgressEntity.listToJsonString(currentSolved)
-                
-                progressEntity.setPercentage(newPercentage)
-                progressEntity.setLastAccessed(newLastAccessed)
-                progressEntity.setCompleted(newPercentage >= 100)
-                progressEntity.setSolvedTaskIds(newSolvedTaskIds)
-                
-                progressDao.update(progressEntity)
-                
-                queueProgressUpdate(progressEntity, syncImmediately)
-                
-                Timber.d("Добавлено решенное задание $solvedTaskId в группу $taskGroupId. Текущий прогресс: $newPercentage%")
-                return@withContext true
-            } else {
+                val newPercentage = calculatePercentage(progressSolvedTaskDao.getSolvedCountSync(taskGroupId), totalTasksCount)
+
+                entity.setPercentage(newPercentage)
+                entity.setLastAccessed(now)
+                entity.setCompleted(newPercentage >= 100)
+                progressDao.insert(entity)
+                entity
+            }
+
+            if (progressEntity == null) {
                 Timber.d("Задание $solvedTaskId уже отмечено как решенное в группе $taskGroupId")
                 return@withContext false
             }
+
+            queueProgressUpdate(progressEntity, syncImmediately, listOf(solvedTaskId))
+            Timber.d("Добавлено решенное задание $solvedTaskId в группу $taskGroupId. Текущий прогресс: ${progressEntity.getPercentage()}%")
+            return@withContext true
         } catch (e: Exception) {
             Timber.d("Ошибка при добавлении решенного задания", e)
             return@withContext false
@@ -676,17 +508,16 @@ class ProgressSyncRepository @Inject constructor(
      */
     private fun getTotalTasksCount(taskGroupId: String): Int {
         try {
-            val contentEntity = contentDao.getContentByIdSync(taskGroupId)
-
-            if (contentEntity?.isDownloaded == true) {
-                val egeNumber = taskGroupId.removePrefix("task_group_")
-                val count = taskDao.getTaskCountByEgeNumberSync(egeNumber)
-                if (count > 0) {
-                    Timber.d("Подсчитано $count загруженных заданий для $taskGroupId")
-                    return count
-                }
+            // Скачанность группы определяет сводка downloaded_groups, флаг contents.is_downloaded
+            // для групп заданий больше не ведется
+            val egeNumber = taskGroupId.removePrefix("task_group_")
+            val downloadedCount = taskDao.getTaskCountByEgeNumberSync(egeNumber)
+            if (downloadedCount > 0) {
+                Timber.d("Подсчитано $downloadedCount загруженных заданий для $taskGroupId")
+                return downloadedCount
             }
-            
+
+            val contentEntity = contentDao.getContentByIdSync(taskGroupId)
             if (contentEntity != null && contentEntity.description != null) {
                 val description = contentEntity.description
                 Timber.d("Описание для $taskGroupId: $description")
@@ -762,45 +593,20 @@ class ProgressSyncRepository @Inject constructor(
         return ((solvedCount.toFloat() / totalCount) * 100).toInt().coerceIn(0, 100)
     }
 
-    /**
-     * Преобразует сущность прогресса в DTO для обновления на сервере
-     */
-    private fun toProgressUpdateDto(progressEntity: ProgressEntity): ProgressUpdateRequest {
-        val solvedTaskIds = progressEntity.getSolvedTaskIdsList().takeIf { it.isNotEmpty() }
-        
-        return ProgressUpdateRequest(
-            contentId = progressEntity.getContentId(),
-            percentage = progressEntity.getPercentage(),
-            completed = progressEntity.isCompleted(),
-            timestamp = progressEntity.getLastAccessed(),
-            solvedTaskIds = solvedTaskIds
-        )
-    }
-
     /**
      * Получает поток ID решенных задач для указанной категории ЕГЭ.
      * @param categoryId ID категории (например, "1", "2", ... "27")
      * @return Flow, который эмитит список ID решенных задач (List<String>)
      */
     fun getSolvedTaskIdsForEgeCategory(categoryId: String): kotlinx.coroutines.flow.Flow<List<String>> {
-        val contentId = "task_group_$categoryId"
+        return progressSolvedTaskDao.getSolvedTaskIds("task_group_$categoryId")
+    }
 
-        return progressDao.getProgressByContentId(contentId).asFlow()
-            .map { entity: ProgressEntity? ->
-                if (entity != null && !entity.getSolvedTaskIds().isNullOrEmpty()) {
-                    try {
-                        parseJsonSolvedTaskIds(entity.getSolvedTaskIds()) ?: emptyList<String>()
-                    } catch (e: org.json.JSONException) {
-                        Timber.d("Ошибка JSON парсинга solvedTaskIds для contentId $contentId: ${entity.getSolvedTaskIds()}", e)
-                        emptyList<String>()
-                    } catch (e: Exception) {
-                        Timber.d("Общая ошибка парсинга solvedTaskIds для contentId $contentId: ${entity.getSolvedTaskIds()}", e)
-                        emptyList<String>()
-                    }
-                } else {
-                    emptyList<String>()
-                }
-            }
+    /**
+     * Проверяет, отмечено ли задание решенным (поиск по первичному ключу)
+     */
+    suspend fun isTaskSolved(taskGroupId: String, taskId: String): Boolean = withContext(Dispatchers.IO) {
+        progressSolvedTaskDao.isTaskSolvedSync(taskGroupId, taskId)
     }
 
     suspend fun queueStatisticsUpdate(statistics: PracticeStatisticsEntity, syncImmediately: Boolean = false): Long = withContext(Dispatchers.IO) {
@@ -824,19 +630,20 @@ class ProgressSyncRepository @Inject constructor(
             SyncStatus.PENDING,
             "[]"
         )
+        syncQueueEntity.setOperationId(syncSequenceStore.newOperationId())
+        syncQueueEntity.setDeviceSequence(syncSequenceStore.nextDeviceSequence())
 
         val existingItem = progressSyncQueueDao.getItemByItemId(statistics.egeNumber)
         if (existingItem != null) {
             syncQueueEntity.setId(existingItem.id)
+            syncQueueEntity.setSequence(existingItem.sequence + 1)
             Timber.d("🔄 Обновляем существующую запись статистики в очереди: itemId=${statistics.egeNumber}, id=${existingItem.id}")
         }
 
         val id = progressSyncQueueDao.insert(syncQueueEntity)
         Timber.d("🔄 Добавлена статистика в очередь: itemId=${statistics.egeNumber}, id=$id")
 
-        if (syncImmediately) {
-            syncNow(true)
-        }
+        syncScheduler.onItemsQueued(urgent = syncImmediately)
 
         return@withContext id
     }
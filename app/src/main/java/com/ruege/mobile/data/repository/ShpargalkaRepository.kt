@@ -1,6 +1,7 @@
 package com.ruege.mobile.data.repository
 
 import android.content.Context
+import com.ruege.mobile.data.network.cache.isNotModified
 import timber.log.Timber
 import androidx.lifecycle.LiveData
 import androidx.lifecycle.MutableLiveData
@@ -37,7 +38,9 @@ class ShpargalkaRepository @Inject constructor(
         try {
             val response = shpargalkiApiService.getShpargalkaGroups()
             
-            if (response.isSuccessful && response.body() != null) {
+            if (response.isNotModified() && shpargalkaDao.getCount() > 0) {
+                Timber.d("Список шпаргалок не изменился (304)")
+            } else if (response.isSuccessful && response.body() != null) {
                 val shpargalkaData = response.body()!!
                 
                 if (shpargalkaData.isEmpty()) {
@@ -66,8 +69,8 @@ class ShpargalkaRepository @Inject constructor(
                     )
                 }
 
-                shpargalkaDao.replaceAll(newCacheEntities)
-                Timber.d("Обновлен кэш шпаргалок в БД: ${newCacheEntities.size} записей")
+                val changed = shpargalkaDao.applyCatalog(newCacheEntities)
+                Timber.d("Обновлен кэш шпаргалок в БД: ${newCacheEntities.size} записей, изменено $changed")
 
             } else {
                 _errorMessage.postValue("Ошибка загрузки шпаргалок: ${response.message()}")
@@ -1,9 +1,11 @@
 package com.ruege.mobile.data.repository
 
-import androidx.lifecycle.asFlow
 import com.ruege.mobile.data.local.dao.ContentDao
 import com.ruege.mobile.data.local.dao.TaskDao
 import com.ruege.mobile.data.local.entity.ContentEntity
+import com.ruege.mobile.data.cache.ContentCache
+import com.ruege.mobile.data.cache.ContentCacheManager
+import com.ruege.mobile.data.network.RequestCoalescer
 import com.ruege.mobile.data.network.api.TaskApiService
 import com.ruege.mobile.data.local.entity.TaskEntity
 import com.ruege.mobile.data.network.dto.response.TaskDto
@@ -14,11 +16,11 @@ import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.flow
 import kotlinx.coroutines.withContext
 import timber.log.Timber
+import java.util.concurrent.ConcurrentHashMap
 import javax.inject.Inject
 import javax.inject.Singleton
 import kotlinx.coroutines.flow.MutableStateFlow
 import com.ruege.mobile.data.network.dto.response.TextDataDto
-import kotlinx.coroutines.flow.combine
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.flow.flowOn
 import com.ruege.mobile.data.local.dao.TaskTextDao
@@ -35,19 +37,28 @@ class TasksRepository @Inject constructor(
     private val taskApiService: TaskApiService,
     private val taskTextDao: TaskTextDao,
     private val externalScope: CoroutineScope,
-    private val userDao: UserDao
+    private val userDao: UserDao,
+    private val requestCoalescer: RequestCoalescer,
+    contentCacheManager: ContentCacheManager
 ) {
     private val TAG = "TasksRepository"
 
     private val _tasksContentLoaded = MutableStateFlow(false)
 
-    private val tasksCategoryCache = mutableMapOf<String, List<TaskItem>>()
-    private val taskTextCache = mutableMapOf<String, String>()
-    private val taskDetailCache = mutableMapOf<Int, TaskItem>()
-    private val pageNumberByCategory = mutableMapOf<String, Int>()
+    private val tasksCategoryCache = contentCacheManager.create<String, List<TaskItem>>("tasks_category", 0.15f) { _, tasks ->
+        tasks.sumOf { sizeOf(it) }
+    }
+    private val taskTextCache = contentCacheManager.create<String, String>("task_text", 0.15f) { _, text ->
+        ContentCache.sizeOf(text) + ContentCache.ENTRY_OVERHEAD_BYTES
+    }
+    private val taskDetailCache = contentCacheManager.create<Int, TaskItem>("task_detail", 0.15f) { _, task ->
+        sizeOf(task)
+    }
+    private val pageNumberByCategory = ConcurrentHashMap<String, Int>()
 
     companion object {
         const val NO_DATA_AND_NETWORK_ISSUE_FLAG = "NO_DATA_AND_NETWORK_ISSUE"
+        private const val DOWNLOAD_PAGE_SIZE = 100
     }
 
     init {
@@ -55,7 +66,6 @@ class TasksRepository @Inject constructor(
             userDao.getFirstUserFlow().collect { user ->
                 if (user == null) {
                     _tasksContentLoaded.value = false
-                    tasksCategoryCache.clear()
                     pageNumberByCategory.clear()
                     Timber.d("User logged out or not present, content loaded flags reset.")
                 }
@@ -65,22 +75,16 @@ class TasksRepository @Inject constructor(
 
     fun getTasksTopicsStream(): Flow<List<ContentEntity>> {
         Timber.d("Getting tasks topics stream from DB")
-        return contentDao.getContentsByType("task_group").asFlow()
-            .combine(taskDao.getDownloadedEgeNumbersStream()) { entities, downloadedEgeNumbers ->
-                val downloadedSet = downloadedEgeNumbers.toSet()
-                entities.map { group ->
-                    val egeNumber = group.contentId.removePrefix("task_group_")
-                    group.apply {
-                        this.isDownloaded = downloadedSet.contains(egeNumber)
-                    }
-                }
-            }
+        return contentDao.getTaskGroupsWithDownloadStatus()
     }
 
     suspend fun refreshTasksTopics() {
         withContext(Dispatchers.IO) {
             try {
                 val response = taskApiService.getAllTasks()
+                // Ответ 304 тоже применяется: группы заданий есть и в снимке первого запуска,
+                // поэтому непустая таблица не значит, что ответ уже применен. Неизменные строки
+                // applyCatalog не перезаписывает
                 if (response.isSuccessful && response.body() != null) {
                     val taskGroups = response.body()!!
                     val newTasksEntities = taskGroups.map { group ->
@@ -94,7 +98,8 @@ class TasksRepository @Inject constructor(
                             setDescription("$count заданий")
                         }
                     }
-                    contentDao.insertAll(newTasksEntities)
+                    val changed = contentDao.applyCatalog("task_group", newTasksEntities)
+                    Timber.d("refreshTasksTopics: изменено групп заданий: $changed")
                 }
             } catch (e: Exception) {
                 Timber.e(e, "refreshTasksTopics failed")
@@ -109,7 +114,12 @@ class TasksRepository @Inject constructor(
         val page = pageNumberByCategory.getOrDefault(actualCategoryId, 1)
 
         if (page == 1) {
-            val localTasks = taskDao.getTasksByEgeNumberSync(actualCategoryId).map { it.toTaskItem() }
+            val isDownloaded = taskDao.getTaskCountByEgeNumberSync(actualCategoryId) > 0
+            val localTasks = if (isDownloaded) {
+                taskDao.getTasksByEgeNumberSync(actualCategoryId).map { it.toTaskItem() }
+            } else {
+                emptyList()
+            }
             if(localTasks.isNotEmpty()){
                 tasksCategoryCache[actualCategoryId] = localTasks
                 emit(Result.Success(TasksPage(tasks = localTasks, hasMore = false)))
@@ -125,7 +135,7 @@ class TasksRepository @Inject constructor(
                 val hasMore = taskDtos.size >= pageSize
                 val newTasks = taskDtos.map { it.toTaskItem() }
 
-                val currentTasks = tasksCategoryCache.getOrDefault(actualCategoryId, emptyList())
+                val currentTasks = tasksCategoryCache[actualCategoryId] ?: emptyList()
                 tasksCategoryCache[actualCategoryId] = currentTasks + newTasks
                 
                 if (hasMore) {
@@ -175,23 +185,27 @@ class TasksRepository @Inject constructor(
         }
 
         Timber.d("Требуется загрузка с сервера для задания ID $taskIdString.")
-        try {
-            val response = taskApiService.getTaskDetail(taskIdString, includeText = true)
+        emit(requestCoalescer.coalesce("tasks/detail", taskIdInt) { fetchTaskDetail(taskIdInt) })
+    }
+
+    private suspend fun fetchTaskDetail(taskId: Int): Result<TaskItem> {
+        return try {
+            val response = taskApiService.getTaskDetail(taskId.toString(), includeText = true)
             if (response.isSuccessful) {
                 val taskDetailDto = response.body()
                 if (taskDetailDto != null) {
                     val taskItem = taskDetailDto.toEntity().toTaskItemWithText(taskDetailDto.text)
-                    taskDetailCache[taskIdInt] = taskItem
-                    emit(Result.Success(taskItem))
+                    taskDetailCache[taskId] = taskItem
+                    Result.Success(taskItem)
                 } else {
-                    emit(Result.Error("Пустой ответ от сервера для задания $taskIdString"))
+                    Result.Error("Пустой ответ от сервера для задания $taskId")
                 }
             } else {
-                emit(Result.Error("Ошибка сервера: ${response.code()} для задания $taskIdString"))
+                Result.Error("Ошибка сервера: ${response.code()} для задания $taskId")
             }
         } catch (e: Exception) {
-            Timber.e(e, "Ошибка сети при получении деталей задания ID $taskIdString.")
-            emit(Result.Error(e.message.toString()))
+            Timber.e(e, "Ошибка сети при получении деталей задания ID $taskId.")
+            Result.Error(e.message.toString())
         }
     }
 
@@ -217,7 +231,11 @@ class TasksRepository @Inject constructor(
         }
 
         emit(Result.Loading)
-        try {
+        emit(requestCoalescer.coalesce("tasks/text", textId) { fetchTaskText(textId) })
+    }
+
+    private suspend fun fetchTaskText(textId: String): Result<String> {
+        return try {
             Timber.d("Запрос текста задания с ID: $textId с сервера.")
             val response = taskApiService.getTaskTextById(textId)
             if (response.isSuccessful) {
@@ -228,55 +246,63 @@ class TasksRepository @Inject constructor(
                     withContext(Dispatchers.IO) {
                         taskTextDao.insertAll(listOf(TaskTextEntity(textId, taskTextDto.content)))
                     }
-                    emit(Result.Success(taskTextDto.content))
+                    Result.Success(taskTextDto.content)
                 } else {
                     Timber.w("Тело ответа или текст для $textId пустое.")
-                    emit(Result.Error("Отсутствует текст в ответе сервера"))
+                    Result.Error("Отсутствует текст в ответе сервера")
                 }
             } else {
                 val errorMsg = "Ошибка при загрузке текста задания $textId: ${response.code()} - ${response.message()}"
                 Timber.e(errorMsg)
-                emit(Result.Error(errorMsg))
+                Result.Error(errorMsg)
             }
         } catch (e: Exception) {
             Timber.e(e, "Исключение при загрузке текста задания $textId")
-            emit(Result.Error(e.message.toString()))
+            Result.Error(e.message.toString())
         }
     }
 
+    /**
+     * Скачивает группу постранично: каждая страница пишется своей транзакцией сразу по получении,
+     * в памяти держится одна страница. Тексты, общие для нескольких страниц, пишутся один раз.
+     * Группа отмечается скачанной в downloaded_groups только после последней страницы;
+     * при ошибке уже записанные страницы незавершенной группы удаляются.
+     */
     fun downloadTaskGroup(egeNumber: String): Flow<Result<Unit>> = flow {
         emit(Result.Loading)
         try {
+            taskDao.deleteIncompleteGroup(egeNumber)
+            val writtenTextIds = mutableSetOf<String>()
             var page = 1
-            val allTasks = mutableListOf<TaskDto>()
+            var written = 0
             while (true) {
-                val response = taskApiService.getTasksByEgeNumberPaginated(egeNumber, pageNumber = page, limit = 100)
-                if (response.isSuccessful) {
-                    val tasksDto = response.body()?.tasks ?: emptyList()
-                    if (tasksDto.isEmpty()) {
-                        break 
-                    }
-                    allTasks.addAll(tasksDto)
-                    page++
-                } else {
+                val response = taskApiService.getTasksByEgeNumberPaginated(egeNumber, pageNumber = page, limit = DOWNLOAD_PAGE_SIZE)
+                if (!response.isSuccessful) {
                     throw Exception("Ошибка сервера при загрузке страницы $page для группы $egeNumber: ${response.code()}")
                 }
+                val tasksDto = response.body()?.tasks ?: emptyList()
+                if (tasksDto.isEmpty()) {
+                    break
+                }
+                val textEntities = tasksDto.mapNotNull { it.text?.toEntity() }
+                    .filter { writtenTextIds.add(it.textId) }
+                taskDao.insertDownloadPage(tasksDto.map { it.toEntity() }, textEntities)
+                written += tasksDto.size
+                page++
             }
 
-            if (allTasks.isNotEmpty()) {
-                val taskEntities = allTasks.map { it.toEntity() }
-                val textEntities = allTasks.mapNotNull { it.text?.toEntity() }
-
-                taskDao.insertAll(taskEntities)
-                if (textEntities.isNotEmpty()) {
-                    taskTextDao.insertAll(textEntities)
-                }
-                contentDao.updateDownloadStatus("task_group_$egeNumber", true)
+            if (written > 0) {
+                taskDao.refreshDownloadedGroups(listOf(egeNumber), System.currentTimeMillis())
             }
-            
+            Timber.d("Группа $egeNumber скачана: заданий $written, текстов ${writtenTextIds.size}, страниц ${page - 1}")
             emit(Result.Success(Unit))
         } catch (e: Exception) {
             Timber.e(e, "Ошибка при скачивании группы заданий $egeNumber")
+            try {
+                taskDao.deleteIncompleteGroup(egeNumber)
+            } catch (cleanupError: Exception) {
+                Timber.e(cleanupError, "Не удалось удалить недокачанную группу $egeNumber")
+            }
             emit(Result.Error(e.message ?: "Неизвестная ошибка при скачивании"))
         }
     }.flowOn(Dispatchers.IO)
@@ -285,13 +311,21 @@ class TasksRepository @Inject constructor(
         emit(Result.Loading)
         try {
             taskDao.deleteTasksByEgeNumber(egeNumber)
-            contentDao.updateDownloadStatus("task_group_$egeNumber", false)
             emit(Result.Success(Unit))
         } catch (e: Exception) {
             emit(Result.Error(e.message ?: "Ошибка при удалении группы заданий"))
         }
     }.flowOn(Dispatchers.IO)
 
+    private fun sizeOf(task: TaskItem): Int {
+        return ContentCache.sizeOf(task.content) +
+            ContentCache.sizeOf(task.title) +
+            ContentCache.sizeOf(task.description) +
+            ContentCache.sizeOf(task.correctAnswer) +
+            ContentCache.sizeOf(task.explanation) +
+            ContentCache.ENTRY_OVERHEAD_BYTES
+    }
+
     private fun TaskDto.toTaskItem(): TaskItem {
         val orderPosition = try {
             this.egeNumber.toInt()
@@ -363,7 +397,6 @@ class TasksRepository @Inject constructor(
         withContext(Dispatchers.IO) {
             taskDao.deleteAll()
             taskTextDao.deleteAll()
-            contentDao.updateAllDownloadStatusByType("task_group", false)
         }
     }
 }
\ No newline at end of file
@@ -5,8 +5,12 @@ import androidx.lifecycle.asFlow
 import com.ruege.mobile.data.local.dao.ContentDao
 import com.ruege.mobile.data.local.dao.DownloadedTheoryDao
 import com.ruege.mobile.data.local.dao.UserDao
+import com.ruege.mobile.data.local.entity.CachedContentEntity
 import com.ruege.mobile.data.local.entity.ContentEntity
 import com.ruege.mobile.data.local.entity.DownloadedTheoryEntity
+import com.ruege.mobile.data.cache.ContentCache
+import com.ruege.mobile.data.cache.ContentCacheManager
+import com.ruege.mobile.data.network.RequestCoalescer
 import com.ruege.mobile.data.network.api.TheoryApiService
 import com.ruege.mobile.data.network.dto.response.TheoryContentDto
 import kotlinx.coroutines.CoroutineScope
@@ -20,6 +24,7 @@ import kotlinx.coroutines.flow.flow
 import kotlinx.coroutines.flow.flowOn
 import kotlinx.coroutines.launch
 import kotlinx.coroutines.withContext
+import com.ruege.mobile.data.network.cache.isNotModified
 import timber.log.Timber
 import javax.inject.Inject
 import javax.inject.Singleton
@@ -30,14 +35,19 @@ class TheoryRepository @Inject constructor(
     private val theoryApiService: TheoryApiService,
     private val downloadedTheoryDao: DownloadedTheoryDao,
     private val externalScope: CoroutineScope,
-    private val userDao: UserDao
+    private val userDao: UserDao,
+    private val requestCoalescer: RequestCoalescer,
+    private val contentStore: ContentStore,
+    contentCacheManager: ContentCacheManager
 ) {
 
     private val TAG = "TheoryRepository"
 
     private val _contentLoaded = MutableStateFlow(false)
 
-    private val theoryContentCache = mutableMapOf<String, TheoryContentDto>()
+    private val theoryContentCache = contentCacheManager.create<String, TheoryContentDto>("theory", 0.35f) { _, dto ->
+        ContentCache.sizeOf(dto.content) + ContentCache.sizeOf(dto.title) + ContentCache.ENTRY_OVERHEAD_BYTES
+    }
 
     init {
         externalScope.launch {
@@ -69,11 +79,14 @@ class TheoryRepository @Inject constructor(
                 Timber.d("LOG_CHAIN: TheoryRepository.refreshTheoryTopics - Начало.")
                 val response = theoryApiService.getAllTheory()
 
-                if (response.isSuccessful && response.body() != null) {
+                if (response.isNotModified() && contentDao.countByType("theory") > 0) {
+                    Timber.d("LOG_CHAIN: TheoryRepository.refreshTheoryTopics - Каталог не изменился (304).")
+                } else if (response.isSuccessful && response.body() != null) {
                     val theorySummaries = response.body()!!
                     val theoryEntities = theorySummaries.map { it.toContentEntity() }
-                    contentDao.insertAll(theoryEntities)
-                    Timber.d("LOG_CHAIN: TheoryRepository.refreshTheoryTopics - Успешно. Загружено и сохранено ${theoryEntities.size} тем.")
+                    val changed = theoryEntities.groupBy { it.type }
+                        .entries.sumOf { (type, entities) -> contentDao.applyCatalog(type, entities) }
+                    Timber.d("LOG_CHAIN: TheoryRepository.refreshTheoryTopics - Успешно. Получено ${theoryEntities.size} тем, изменено $changed.")
                 } else {
                     Timber.w("LOG_CHAIN: TheoryRepository.refreshTheoryTopics - Ошибка. Код: ${response.code()}.")
                 }
@@ -87,32 +100,73 @@ class TheoryRepository @Inject constructor(
     }
 
     suspend fun getTheoryContentById(contentId: String): TheoryContentDto? {
-        if (theoryContentCache.containsKey(contentId)) {
+        theoryContentCache[contentId]?.let {
             Timber.d("Getting theory content from memory cache for ID: $contentId", TAG)
-            return theoryContentCache[contentId]
+            return it
         }
 
+        return requestCoalescer.coalesce("theory/content", contentId) { loadTheoryContent(contentId) }
+    }
+
+    /**
+     * Читает теорию из content_cache (устаревшая запись проверяется в фоне по ETag),
+     * при отсутствии записи - загружает из сети
+     */
+    private suspend fun loadTheoryContent(contentId: String): TheoryContentDto? {
+        val stored = contentStore.read(
+            CachedContentEntity.KIND_THEORY,
+            contentId,
+            onRefreshed = { theoryContentCache[contentId] = it.toTheoryContentDto() }
+        ) { etag -> fetchTheoryContent(contentId, etag) }
+        return stored?.toTheoryContentDto()?.also { theoryContentCache[contentId] = it }
+    }
+
+    private suspend fun fetchTheoryContent(contentId: String, etag: String?): ContentFetchResult {
         return withContext(Dispatchers.IO) {
             try {
                 Timber.d("Getting theory content from network for ID: $contentId")
-                val response = theoryApiService.getTheoryContent(contentId)
+                val response = theoryApiService.getTheoryContent(contentId, etag)
 
+                if (response.isNotModified()) {
+                    return@withContext ContentFetchResult.NotModified
+                }
                 if (response.isSuccessful && response.body() != null) {
                     val theoryContent = response.body()!!
                     Timber.d("Successfully loaded theory content from network, caching result.")
-                    theoryContentCache[contentId] = theoryContent
-                    return@withContext theoryContent
+                    return@withContext ContentFetchResult.Loaded(
+                        CachedContentEntity(
+                            CachedContentEntity.KIND_THEORY,
+                            contentId,
+                            theoryContent.id,
+                            theoryContent.egeNumber,
+                            theoryContent.title,
+                            theoryContent.content,
+                            theoryContent.createdAt,
+                            theoryContent.updatedAt,
+                            response.headers()["ETag"],
+                            System.currentTimeMillis()
+                        )
+                    )
                 } else {
                     Timber.w("Failed to load theory content from network. Code: ${response.code()}")
-                    return@withContext null
+                    return@withContext ContentFetchResult.Failed
                 }
             } catch (e: Exception) {
                 Timber.e(e, "Error loading theory content", e)
-                return@withContext null
+                return@withContext ContentFetchResult.Failed
             }
         }
     }
 
+    private fun CachedContentEntity.toTheoryContentDto() = TheoryContentDto(
+        id = remoteId,
+        egeNumber = egeNumber,
+        title = title,
+        content = body,
+        createdAt = createdAt,
+        updatedAt = updatedAt
+    )
+
     suspend fun downloadTheory(contentId: String): Flow<Result<Unit>> = flow {
         emit(Result.Loading)
         try {
@@ -161,5 +215,7 @@ class TheoryRepository @Inject constructor(
             downloadedTheoryDao.deleteAll()
             contentDao.updateAllDownloadStatusByType("theory", false)
         }
+        contentStore.clear(CachedContentEntity.KIND_THEORY)
+        theoryContentCache.clear()
     }
 } 
\ No newline at end of file
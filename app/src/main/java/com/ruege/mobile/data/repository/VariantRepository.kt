@@ -1,5 +1,6 @@
 package com.ruege.mobile.data.repository
 
+import com.ruege.mobile.data.network.cache.isNotModified
 import timber.log.Timber
 import androidx.room.withTransaction
 import com.ruege.mobile.data.local.AppDatabase
@@ -21,6 +22,7 @@ import com.ruege.mobile.data.network.dto.VariantTaskDto
 import com.ruege.mobile.data.network.dto.VariantDetailDto
 import com.ruege.mobile.data.network.dto.UserAnswerPayloadDto
 import com.ruege.mobile.data.network.dto.UserAnswerResponseItemDto
+import com.ruege.mobile.data.network.RequestCoalescer
 import com.ruege.mobile.utils.Resource
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.flow.Flow
@@ -43,7 +45,8 @@ class VariantRepository @Inject constructor(
     private val variantSharedTextDao: VariantSharedTextDao,
     private val variantTaskDao: VariantTaskDao,
     private val variantTaskOptionDao: VariantTaskOptionDao,
-    private val userVariantTaskAnswerDao: UserVariantTaskAnswerDao
+    private val userVariantTaskAnswerDao: UserVariantTaskAnswerDao,
+    private val requestCoalescer: RequestCoalescer
 ) {
 
     init { 
@@ -65,7 +68,9 @@ class VariantRepository @Inject constructor(
             try {
                 Timber.d("Attempting to fetch variants from network...")
                 val response = variantApiService.getVariants()
-                if (response.isSuccessful) {
+                if (response.isNotModified() && variantDao.getVariantCount() > 0) {
+                    Timber.d("Variants list not modified (304), skipping DB update")
+                } else if (response.isSuccessful) {
                     val dtoList = response.body() ?: emptyList()
                     if (dtoList.isNotEmpty()) {
                         
@@ -86,7 +91,9 @@ class VariantRepository @Inject constructor(
                                     updatedAt = dto.createdAt,
                                     taskCount = dto.taskCount
                                 )
-                                variantsToUpdate.add(updatedVariant)
+                                if (updatedVariant != existingVariant) {
+                                    variantsToUpdate.add(updatedVariant)
+                                }
                             } else {
                                 variantsToInsert.add(dto.toEntity())
                             }
@@ -213,6 +220,10 @@ class VariantRepository @Inject constructor(
     }
 
     suspend fun fetchAndSaveVariantDetails(variantId: Int): Resource<VariantEntity> {
+        return requestCoalescer.coalesce("variants", variantId) { downloadVariantDetails(variantId) }
+    }
+
+    private suspend fun downloadVariantDetails(variantId: Int): Resource<VariantEntity> {
         return withContext(Dispatchers.IO) {
             try {
                 Timber.d("Запрос деталей для варианта ID: $variantId")
@@ -0,0 +1,66 @@
+package com.ruege.mobile.data.sync
+
+/**
+ * Правило слияния локального и серверного значения при синхронизации.
+ * Реализации коммутативны, ассоциативны и идемпотентны, поэтому результат
+ * не зависит от порядка и количества синхронизаций между устройствами.
+ */
+interface MergePolicy<T> {
+    fun merge(local: T, remote: T): T
+}
+
+/**
+ * Множество, которое может только расти (G-Set): решенное задание
+ * не "отменяется" синхронизацией с другим устройством
+ */
+object GrowOnlySetPolicy : MergePolicy<Set<String>> {
+    override fun merge(local: Set<String>, remote: Set<String>): Set<String> {
+        return if (remote.isEmpty()) local else if (local.isEmpty()) remote else local + remote
+    }
+}
+
+/**
+ * Монотонный регистр: побеждает большее значение (например, время последнего доступа)
+ */
+object MaxValuePolicy : MergePolicy<Long> {
+    override fun merge(local: Long, remote: Long): Long = maxOf(local, remote)
+}
+
+/**
+ * Счетчик с увеличениями и уменьшениями по каждому устройству (PN-Counter).
+ * Каждое устройство меняет только свои компоненты, значение - сумма увеличений минус сумма уменьшений.
+ */
+data class PNCounter(
+    val increments: Map<String, Long> = emptyMap(),
+    val decrements: Map<String, Long> = emptyMap()
+) {
+    val value: Long get() = increments.values.sum() - decrements.values.sum()
+
+    fun increment(deviceId: String, by: Long = 1): PNCounter {
+        return copy(increments = increments + (deviceId to (increments[deviceId] ?: 0L) + by))
+    }
+
+    fun decrement(deviceId: String, by: Long = 1): PNCounter {
+        return copy(decrements = decrements + (deviceId to (decrements[deviceId] ?: 0L) + by))
+    }
+}
+
+/**
+ * Слияние PN-счетчиков: покомпонентный максимум по каждому устройству
+ */
+object PNCounterPolicy : MergePolicy<PNCounter> {
+    override fun merge(local: PNCounter, remote: PNCounter): PNCounter {
+        return PNCounter(
+            increments = mergeComponents(local.increments, remote.increments),
+            decrements = mergeComponents(local.decrements, remote.decrements)
+        )
+    }
+
+    private fun mergeComponents(local: Map<String, Long>, remote: Map<String, Long>): Map<String, Long> {
+        val result = local.toMutableMap()
+        for ((deviceId, count) in remote) {
+            result[deviceId] = maxOf(result[deviceId] ?: 0L, count)
+        }
+        return result
+    }
+}
@@ -0,0 +1,446 @@
+package com.ruege.mobile.data.sync
+
+import android.content.Context
+import android.content.SharedPreferences
+import com.ruege.mobile.data.local.dao.PracticeAttemptCounterDao
+import com.ruege.mobile.data.local.dao.PracticeStatisticsDao
+import com.ruege.mobile.data.local.dao.ProgressDao
+import com.ruege.mobile.data.local.dao.ProgressSolvedTaskDao
+import com.ruege.mobile.data.local.dao.ProgressSyncQueueDao
+import com.ruege.mobile.data.local.dao.UserDao
+import com.ruege.mobile.data.local.entity.ProgressSyncQueueEntity
+import com.ruege.mobile.data.local.entity.SyncStatus
+import com.ruege.mobile.data.mapper.batchIdempotencyKey
+import com.ruege.mobile.data.mapper.toAttemptCounterDto
+import com.ruege.mobile.data.mapper.toProgressDeltaDto
+import com.ruege.mobile.data.mapper.toProgressUpdateDto
+import com.ruege.mobile.data.network.api.PracticeApiService
+import com.ruege.mobile.data.network.api.ProgressApiService
+import com.ruege.mobile.data.network.dto.ProgressSyncResponse
+import com.ruege.mobile.data.network.dto.ProgressUpdateRequest
+import com.ruege.mobile.data.network.dto.request.PracticeStatisticSyncDto
+import com.ruege.mobile.data.network.dto.request.PracticeStatisticsBranchRequest
+import dagger.hilt.android.qualifiers.ApplicationContext
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Deferred
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.async
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import retrofit2.Response
+import timber.log.Timber
+import javax.inject.Inject
+import java.util.concurrent.TimeUnit
+import javax.inject.Singleton
+
+/**
+ * Единый механизм отправки очереди синхронизации прогресса и статистики на сервер.
+ * Используется воркером, пороговой синхронизацией и forceSyncWithServer, поэтому
+ * одновременно выполняется не более одной отправки: повторные вызовы flush()
+ * дожидаются уже запущенной.
+ */
+@Singleton
+class SyncEngine @Inject constructor(
+    @ApplicationContext private val context: Context,
+    private val progressSyncQueueDao: ProgressSyncQueueDao,
+    private val progressDao: ProgressDao,
+    private val progressSolvedTaskDao: ProgressSolvedTaskDao,
+    private val practiceStatisticsDao: PracticeStatisticsDao,
+    private val practiceAttemptCounterDao: PracticeAttemptCounterDao,
+    private val userDao: UserDao,
+    private val progressApiService: ProgressApiService,
+    private val practiceApiService: PracticeApiService,
+    private val syncSequenceStore: SyncSequenceStore,
+    private val syncMetricsStore: SyncMetricsStore
+) {
+
+    companion object {
+        const val BATCH_SIZE = 100
+        private const val MAX_BATCHES_PER_FLUSH = 20
+        private val SYNCED_RETENTION_MS = TimeUnit.DAYS.toMillis(7)
+        private val TRANSIENT_CLIENT_ERROR_CODES = setOf(408, 429)
+
+        /**
+         * Первая повторная попытка через ~30 с, далее задержка удваивается (не более ~8.5 ч).
+         * После 12 неудач или 3 отказов сервера (4xx) запись уходит в DEAD_LETTER.
+         */
+        val RETRY_POLICY = ProgressSyncQueueDao.RetryPolicy(
+            TimeUnit.SECONDS.toMillis(30),
+            10,
+            12,
+            3
+        )
+        private const val PREFS_NAME = "ProgressSyncPrefs"
+        private const val KEY_LAST_STATS_SYNC_TIMESTAMP = "lastStatsSyncTimestamp"
+        private val DELTA_UNSUPPORTED_CODES = setOf(404, 405, 501)
+        private val STATUSES_TO_SYNC = listOf(SyncStatus.PENDING.getValue(), SyncStatus.FAILED.getValue())
+    }
+
+    /**
+     * Метрики обработки одного пакета очереди
+     */
+    data class BatchMetrics(
+        val batchIndex: Int,
+        val queuedRows: Int,
+        val coalescedItems: Int,
+        val progressItems: Int,
+        val statisticsItems: Int,
+        val success: Boolean,
+        val durationMs: Long,
+        val bytesSent: Long,
+        val httpCodes: List<Int>,
+        val acknowledged: Int,
+        val failed: Int,
+        val rejected: Int
+    )
+
+    /**
+     * Результат одного прохода flush()
+     */
+    data class FlushResult(
+        val success: Boolean,
+        val batches: List<BatchMetrics>
+    ) {
+        val totalItems: Int get() = batches.sumOf { it.coalescedItems }
+    }
+
+    private val engineScope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+    private val flushMutex = Mutex()
+    private var inFlightFlush: Deferred<FlushResult>? = null
+
+    private val sharedPreferences: SharedPreferences by lazy {
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+    }
+
+    /**
+     * Отправляет все ожидающие записи очереди. Если отправка уже идет,
+     * возвращает результат текущей отправки вместо запуска новой.
+     */
+    suspend fun flush(): FlushResult {
+        val flush = flushMutex.withLock {
+            inFlightFlush?.takeIf { it.isActive } ?: engineScope.async { runFlush() }.also {
+                inFlightFlush = it
+            }
+        }
+        return flush.await()
+    }
+
+    private suspend fun runFlush(): FlushResult {
+        val flushStartedAt = System.currentTimeMillis()
+        val batches = mutableListOf<BatchMetrics>()
+        var lastId = 0L
+
+        while (batches.size < MAX_BATCHES_PER_FLUSH) {
+            val rows = progressSyncQueueDao.getItemsByStatusesAfterIdSync(
+                STATUSES_TO_SYNC,
+                lastId,
+                System.currentTimeMillis(),
+                BATCH_SIZE
+            )
+            if (rows.isEmpty()) {
+                break
+            }
+            lastId = rows.last().id
+
+            val startedAt = System.currentTimeMillis()
+            val items = coalesce(rows)
+            val progressItems = items.filter { it.itemType == ProgressSyncQueueEntity.ITEM_TYPE_PROGRESS }
+            val statisticsItems = items.filter { it.itemType == ProgressSyncQueueEntity.ITEM_TYPE_STATISTICS }
+
+            val outcome = BatchOutcome()
+            val progressSuccess = progressItems.isEmpty() || syncProgressItems(progressItems, outcome)
+            val statisticsSuccess = statisticsItems.isEmpty() || syncStatisticsItems(statisticsItems, outcome)
+            progressSyncQueueDao.applyBatchResult(
+                outcome.acknowledged,
+                outcome.failed,
+                outcome.rejected,
+                outcome.error ?: "",
+                System.currentTimeMillis(),
+                RETRY_POLICY
+            )
+
+            val metrics = BatchMetrics(
+                batchIndex = batches.size,
+                queuedRows = rows.size,
+                coalescedItems = items.size,
+                progressItems = progressItems.size,
+                statisticsItems = statisticsItems.size,
+                success = progressSuccess && statisticsSuccess,
+                durationMs = System.currentTimeMillis() - startedAt,
+                bytesSent = outcome.bytesSent,
+                httpCodes = outcome.httpCodes.toList(),
+                acknowledged = outcome.acknowledged.size,
+                failed = outcome.failed.size,
+                rejected = outcome.rejected.size
+            )
+            batches.add(metrics)
+            Timber.d("SyncEngine: пакет $metrics")
+
+            if (rows.size < BATCH_SIZE) {
+                break
+            }
+        }
+
+        val result = FlushResult(batches.all { it.success }, batches)
+        if (batches.isNotEmpty()) {
+            syncMetricsStore.record(
+                SyncRunRecord(
+                    startedAt = flushStartedAt,
+                    durationMs = System.currentTimeMillis() - flushStartedAt,
+                    batches = batches.size,
+                    items = result.totalItems,
+                    bytesSent = batches.sumOf { it.bytesSent },
+                    requests = batches.sumOf { it.httpCodes.size },
+                    httpCodes = batches.flatMap { it.httpCodes },
+                    acknowledged = batches.sumOf { it.acknowledged },
+                    failed = batches.sumOf { it.failed },
+                    rejected = batches.sumOf { it.rejected },
+                    success = result.success
+                )
+            )
+        }
+        Timber.d("SyncEngine: отправка завершена, пакетов=${batches.size}, элементов=${result.totalItems}, успешно=${result.success}")
+        return result
+    }
+
+    /**
+     * Сжимает очередь: удаляет подтвержденные записи старше срока хранения и схлопывает
+     * дублирующиеся неотправленные записи, чтобы чтение очереди оставалось O(pending).
+     * Выполняется под тем же мьютексом, что и flush(), чтобы не удалить отправляемые записи.
+     * @return количество удаленных записей
+     */
+    suspend fun compact(): Int = flushMutex.withLock {
+        inFlightFlush?.takeIf { it.isActive }?.join()
+        val deleted = progressSyncQueueDao.compact(System.currentTimeMillis() - SYNCED_RETENTION_MS)
+        Timber.d("SyncEngine: сжатие очереди завершено, удалено записей: $deleted")
+        deleted
+    }
+
+    /**
+     * Оставляет по одной, самой свежей, записи на каждый itemId
+     */
+    private fun coalesce(rows: List<ProgressSyncQueueEntity>): List<ProgressSyncQueueEntity> {
+        return rows.groupBy { it.itemType to it.itemId }
+            .values
+            .mapNotNull { group -> group.maxByOrNull { it.timestamp } }
+    }
+
+    /**
+     * Накопленный результат отправки пакета; применяется к очереди одной транзакцией
+     */
+    private class BatchOutcome {
+        val acknowledged = mutableListOf<ProgressSyncQueueEntity>()
+        val failed = mutableListOf<ProgressSyncQueueEntity>()
+        val rejected = mutableListOf<ProgressSyncQueueEntity>()
+        var error: String? = null
+        var bytesSent = 0L
+        val httpCodes = mutableListOf<Int>()
+
+        /**
+         * Учитывает отправленный запрос: код ответа и размер тела запроса
+         */
+        fun recordRequest(response: Response<*>) {
+            httpCodes.add(response.code())
+            bytesSent += response.raw().request.body?.contentLength()?.coerceAtLeast(0L) ?: 0L
+        }
+
+        fun fail(items: List<ProgressSyncQueueEntity>, message: String) {
+            failed.addAll(items)
+            error = message
+        }
+
+        fun reject(items: List<ProgressSyncQueueEntity>, message: String) {
+            rejected.addAll(items)
+            error = message
+        }
+
+        fun failByResponse(items: List<ProgressSyncQueueEntity>, response: Response<*>) {
+            val message = "HTTP ${response.code()}"
+            if (response.code() in 400..499 && response.code() !in TRANSIENT_CLIENT_ERROR_CODES) {
+                reject(items, message)
+            } else {
+                fail(items, message)
+            }
+        }
+
+        fun isSettled(item: ProgressSyncQueueEntity): Boolean {
+            return item in acknowledged || item in failed || item in rejected
+        }
+    }
+
+    private suspend fun syncProgressItems(items: List<ProgressSyncQueueEntity>, outcome: BatchOutcome): Boolean {
+        try {
+            // Сервер уже подтвердил применение всех операций до ackedSequence включительно
+            // (например, ответ на прошлую отправку потерялся по таймауту) - повторно их не шлем
+            val ackedSequence = syncSequenceStore.getAckedDeviceSequence()
+            val (alreadyApplied, itemsToSend) = items.partition {
+                it.deviceSequence > 0 && it.deviceSequence <= ackedSequence
+            }
+            if (alreadyApplied.isNotEmpty()) {
+                Timber.d("SyncEngine: ${alreadyApplied.size} элементов уже применены сервером, пропускаем отправку")
+                outcome.acknowledged.addAll(alreadyApplied)
+            }
+            if (itemsToSend.isEmpty()) {
+                return true
+            }
+
+            val (deltaItems, fullItems) = itemsToSend.partition { it.hasDelta() }
+            val itemsForFullUpload = fullItems.toMutableList()
+            var deltaSyncSuccess = true
+
+            if (deltaItems.isNotEmpty()) {
+                val response = progressApiService.updateProgressDeltaBatch(
+                    deltaItems.mapNotNull { toProgressDeltaDto(it) },
+                    batchIdempotencyKey(deltaItems)
+                )
+                outcome.recordRequest(response)
+                if (response.code() in DELTA_UNSUPPORTED_CODES) {
+                    Timber.d("SyncEngine: сервер не поддерживает delta-синхронизацию (${response.code()}), отправляем полным списком")
+                    itemsForFullUpload.addAll(deltaItems)
+                } else {
+                    deltaSyncSuccess = collectProgressBatchResponse(deltaItems, response, outcome)
+                }
+            }
+
+            if (itemsForFullUpload.isEmpty()) {
+                return deltaSyncSuccess
+            }
+
+            val contentIds = itemsForFullUpload.map { it.itemId }
+            val progressEntityMap = progressDao.getProgressByContentIdsSync(contentIds)
+                .associateBy { it.getContentId() }
+            val solvedTaskIdsMap = progressSolvedTaskDao.getByContentIdsSync(contentIds)
+                .groupBy({ it.contentId }, { it.taskId })
+
+            val updateRequests = itemsForFullUpload.map { item ->
+                val progressEntity = progressEntityMap[item.itemId]
+                val request = if (progressEntity != null) {
+                    toProgressUpdateDto(progressEntity, solvedTaskIdsMap[item.itemId].orEmpty())
+                } else {
+                    ProgressUpdateRequest(
+                        contentId = item.itemId,
+                        percentage = item.percentage,
+                        completed = item.isCompleted(),
+                        timestamp = item.timestamp,
+                        solvedTaskIds = solvedTaskIdsMap[item.itemId]
+                    )
+                }
+                request.copy(
+                    operationId = item.operationId,
+                    deviceSequence = item.deviceSequence.takeIf { it > 0 }
+                )
+            }
+
+            val response = progressApiService.updateProgressBatch(updateRequests, batchIdempotencyKey(itemsForFullUpload))
+            outcome.recordRequest(response)
+            return collectProgressBatchResponse(itemsForFullUpload, response, outcome) && deltaSyncSuccess
+        } catch (e: Exception) {
+            Timber.e(e, "SyncEngine: ошибка при отправке прогресса")
+            outcome.fail(items.filterNot { outcome.isSettled(it) }, e.message ?: e.javaClass.simpleName)
+            return false
+        }
+    }
+
+    /**
+     * Раскладывает ответ сервера по элементам пакета: подтвержденные и неудачные
+     */
+    private fun collectProgressBatchResponse(
+        items: List<ProgressSyncQueueEntity>,
+        response: Response<List<ProgressSyncResponse>>,
+        outcome: BatchOutcome
+    ): Boolean {
+        if (!response.isSuccessful) {
+            Timber.d("SyncEngine: ошибка batch-синхронизации прогресса: ${response.code()} ${response.message()}")
+            outcome.failByResponse(items, response)
+            return false
+        }
+
+        val responseList = response.body() ?: emptyList()
+        val responseMap = responseList.associateBy { it.contentId }
+
+        val acknowledged = mutableListOf<ProgressSyncQueueEntity>()
+        for (item in items) {
+            val itemResponse = responseMap[item.itemId]
+            if (itemResponse?.success == true) {
+                acknowledged.add(item)
+                outcome.acknowledged.add(item)
+            } else {
+                outcome.reject(listOf(item), itemResponse?.message ?: "Нет ответа для ${item.itemId}")
+            }
+        }
+
+        responseList.mapNotNull { it.appliedDeviceSequence }.maxOrNull()?.let {
+            advanceAckedSequence(it, acknowledged)
+        }
+
+        return responseList.all { it.success }
+    }
+
+    /**
+     * Сдвигает подтвержденный номер не дальше последней операции перед самой ранней
+     * неподтвержденной: записи с номером не больше него при следующей отправке считаются
+     * примененными, поэтому отклоненная операция не должна оказаться ниже отметки
+     */
+    private fun advanceAckedSequence(appliedSequence: Long, acknowledged: List<ProgressSyncQueueEntity>) {
+        val minUnacked = progressSyncQueueDao.getMinUnackedDeviceSequenceSync(acknowledged.map { it.id })
+        val sequence = if (minUnacked > 0) minOf(appliedSequence, minUnacked - 1) else appliedSequence
+        syncSequenceStore.advanceAckedDeviceSequence(sequence)
+    }
+
+    private suspend fun syncStatisticsItems(items: List<ProgressSyncQueueEntity>, outcome: BatchOutcome): Boolean {
+        try {
+            val egeNumbers = items.map { it.itemId }
+            val countersMap = practiceAttemptCounterDao.getCountersByEgeNumbersSync(egeNumbers).groupBy { it.egeNumber }
+            val updateRequests = practiceStatisticsDao.getStatisticsByEgeNumbersSync(egeNumbers)
+                .map {
+                    PracticeStatisticSyncDto(
+                        egeNumber = it.egeNumber,
+                        totalAttempts = it.totalAttempts,
+                        correctAttempts = it.correctAttempts,
+                        lastAttemptDate = it.lastAttemptDate,
+                        variantData = it.variantData,
+                        attemptCounters = countersMap[it.egeNumber]?.map { counter -> counter.toAttemptCounterDto() }
+                    )
+                }
+
+            if (updateRequests.isEmpty()) {
+                Timber.d("SyncEngine: нет валидных элементов статистики для синхронизации")
+                outcome.reject(items, "Статистика не найдена локально")
+                return true
+            }
+
+            val userId = userDao.getFirstUser()?.getUserId()
+            if (userId == null) {
+                Timber.d("SyncEngine: не удалось получить ID пользователя для синхронизации статистики")
+                return false
+            }
+
+            val request = PracticeStatisticsBranchRequest(
+                userId = userId.toString(),
+                lastKnownServerSyncTimestamp = sharedPreferences.getLong(KEY_LAST_STATS_SYNC_TIMESTAMP, 0L),
+                newOrUpdatedAggregatedStatistics = updateRequests,
+                newAttempts = emptyList()
+            )
+
+            val response = practiceApiService.updatePracticeStatistics(request)
+            outcome.recordRequest(response)
+
+            if (response.isSuccessful) {
+                response.body()?.let {
+                    sharedPreferences.edit().putLong(KEY_LAST_STATS_SYNC_TIMESTAMP, it.newServerSyncTimestamp).apply()
+                }
+                outcome.acknowledged.addAll(items)
+                return true
+            } else {
+                Timber.d("SyncEngine: batch-синхронизация статистики не удалась: ${response.code()} ${response.message()}")
+                outcome.failByResponse(items, response)
+                return false
+            }
+        } catch (e: Exception) {
+            Timber.e(e, "SyncEngine: ошибка при отправке статистики")
+            outcome.fail(items, e.message ?: e.javaClass.simpleName)
+            return false
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.ruege.mobile.data.sync
+
+import android.content.Context
+import android.content.SharedPreferences
+import dagger.hilt.android.qualifiers.ApplicationContext
+import org.json.JSONArray
+import org.json.JSONObject
+import timber.log.Timber
+import javax.inject.Inject
+import javax.inject.Singleton
+
+/**
+ * Итог одного прохода SyncEngine.flush()
+ */
+data class SyncRunRecord(
+    val startedAt: Long,
+    val durationMs: Long,
+    val batches: Int,
+    val items: Int,
+    val bytesSent: Long,
+    val requests: Int,
+    val httpCodes: List<Int>,
+    val acknowledged: Int,
+    val failed: Int,
+    val rejected: Int,
+    val success: Boolean
+) {
+    fun toJson(): JSONObject {
+        return JSONObject()
+            .put("startedAt", startedAt)
+            .put("durationMs", durationMs)
+            .put("batches", batches)
+            .put("items", items)
+            .put("bytesSent", bytesSent)
+            .put("requests", requests)
+            .put("httpCodes", JSONArray(httpCodes))
+            .put("acknowledged", acknowledged)
+            .put("failed", failed)
+            .put("rejected", rejected)
+            .put("success", success)
+    }
+
+    companion object {
+        fun fromJson(json: JSONObject): SyncRunRecord {
+            val codes = json.optJSONArray("httpCodes") ?: JSONArray()
+            return SyncRunRecord(
+                startedAt = json.optLong("startedAt"),
+                durationMs = json.optLong("durationMs"),
+                batches = json.optInt("batches"),
+                items = json.optInt("items"),
+                bytesSent = json.optLong("bytesSent"),
+                requests = json.optInt("requests"),
+                httpCodes = (0 until codes.length()).map { codes.getInt(it) },
+                acknowledged = json.optInt("acknowledged"),
+                failed = json.optInt("failed"),
+                rejected = json.optInt("rejected"),
+                success = json.optBoolean("success")
+            )
+        }
+    }
+}
+
+/**
+ * Кольцевой буфер последних запусков синхронизации, хранится локально
+ * и переживает перезапуск приложения
+ */
+@Singleton
+class SyncMetricsStore @Inject constructor(
+    @ApplicationContext private val context: Context
+) {
+
+    companion object {
+        const val MAX_RECORDS = 50
+        private const val PREFS_NAME = "SyncMetricsPrefs"
+        private const val KEY_RUNS = "runs"
+    }
+
+    private val sharedPreferences: SharedPreferences by lazy {
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+    }
+
+    private var runs: ArrayDeque<SyncRunRecord>? = null
+
+    @Synchronized
+    fun record(run: SyncRunRecord) {
+        val buffer = loadRuns()
+        buffer.addLast(run)
+        while (buffer.size > MAX_RECORDS) {
+            buffer.removeFirst()
+        }
+        val json = JSONArray()
+        buffer.forEach { json.put(it.toJson()) }
+        sharedPreferences.edit().putString(KEY_RUNS, json.toString()).apply()
+    }
+
+    /**
+     * Последние запуски, от новых к старым
+     */
+    @Synchronized
+    fun getRecentRuns(): List<SyncRunRecord> = loadRuns().reversed()
+
+    @Synchronized
+    fun clear() {
+        runs = ArrayDeque()
+        sharedPreferences.edit().remove(KEY_RUNS).apply()
+    }
+
+    private fun loadRuns(): ArrayDeque<SyncRunRecord> {
+        runs?.let { return it }
+        val loaded = ArrayDeque<SyncRunRecord>()
+        try {
+            val json = JSONArray(sharedPreferences.getString(KEY_RUNS, "[]"))
+            for (i in 0 until json.length()) {
+                loaded.addLast(SyncRunRecord.fromJson(json.getJSONObject(i)))
+            }
+        } catch (e: Exception) {
+            Timber.w(e, "SyncMetricsStore: не удалось прочитать сохраненные запуски")
+        }
+        runs = loaded
+        return loaded
+    }
+}
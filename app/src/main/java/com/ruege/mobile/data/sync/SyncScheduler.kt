@@ -0,0 +1,75 @@
+package com.ruege.mobile.data.sync
+
+import android.content.Context
+import android.net.ConnectivityManager
+import android.os.BatteryManager
+import com.ruege.mobile.worker.ProgressSyncWorker
+import dagger.hilt.android.qualifiers.ApplicationContext
+import timber.log.Timber
+import javax.inject.Inject
+import javax.inject.Singleton
+
+/**
+ * Планирует отправку очереди синхронизации окнами вместо запуска на каждое изменение.
+ * В тарифицируемой сети и при низком заряде окно увеличивается; несрочная отложенная
+ * отправка в тарифицируемой сети ждет безлимитную сеть, а при низком заряде - его восстановления.
+ * Если безлимитной сети так и не будет, очередь отправит периодическая синхронизация.
+ */
+@Singleton
+class SyncScheduler @Inject constructor(
+    @ApplicationContext private val context: Context
+) {
+
+    companion object {
+        private const val LOW_BATTERY_PERCENT = 15
+    }
+
+    private val window = SyncWindow()
+
+    /**
+     * Сообщает о новых изменениях в очереди
+     * @param items количество изменений
+     * @param urgent сократить окно до SyncWindowConfig.urgentDelayMs
+     */
+    fun onItemsQueued(items: Int = 1, urgent: Boolean = false) {
+        val conditions = currentConditions()
+        when (val decision = window.record(items, conditions, urgent)) {
+            is SyncDecision.FlushNow -> {
+                Timber.d("SyncScheduler: окно заполнено, запускаем отправку ($conditions)")
+                ProgressSyncWorker.cancelWindowedSync(context)
+                ProgressSyncWorker.startOneTimeSync(context, expedited = false)
+            }
+            is SyncDecision.FlushLater -> {
+                if (decision.reschedule) {
+                    Timber.d("SyncScheduler: отправка через ${decision.delayMs} мс ($conditions)")
+                    ProgressSyncWorker.scheduleWindowedSync(
+                        context,
+                        decision.delayMs,
+                        requiresBatteryNotLow = conditions.isBatteryLow,
+                        requiresUnmetered = conditions.isMetered && !urgent
+                    )
+                }
+            }
+        }
+    }
+
+    /**
+     * Отправляет очередь сразу, минуя окно
+     */
+    fun flushNow(expedited: Boolean) {
+        window.reset()
+        ProgressSyncWorker.cancelWindowedSync(context)
+        ProgressSyncWorker.startOneTimeSync(context, expedited = expedited)
+    }
+
+    private fun currentConditions(): SyncConditions {
+        val connectivityManager = context.getSystemService(Context.CONNECTIVITY_SERVICE) as? ConnectivityManager
+        val batteryManager = context.getSystemService(Context.BATTERY_SERVICE) as? BatteryManager
+        val batteryPercent = batteryManager?.getIntProperty(BatteryManager.BATTERY_PROPERTY_CAPACITY) ?: 100
+        val isCharging = batteryManager?.isCharging ?: false
+        return SyncConditions(
+            isMetered = connectivityManager?.isActiveNetworkMetered ?: false,
+            isBatteryLow = !isCharging && batteryPercent in 1..LOW_BATTERY_PERCENT
+        )
+    }
+}
@@ -0,0 +1,106 @@
+package com.ruege.mobile.data.sync
+
+import android.content.Context
+import android.content.SharedPreferences
+import dagger.hilt.android.qualifiers.ApplicationContext
+import java.util.UUID
+import javax.inject.Inject
+import javax.inject.Singleton
+
+/**
+ * Хранит монотонный счетчик операций устройства и последний подтвержденный сервером номер.
+ * Каждое изменение в очереди синхронизации получает свой operation_id и device_sequence,
+ * поэтому повторная отправка того же пакета после таймаута не применяется сервером дважды.
+ */
+@Singleton
+class SyncSequenceStore @Inject constructor(
+    @ApplicationContext private val context: Context
+) {
+
+    companion object {
+        private const val PREFS_NAME = "ProgressSyncPrefs"
+        private const val KEY_DEVICE_SEQUENCE = "deviceSequence"
+        private const val KEY_ACKED_DEVICE_SEQUENCE = "ackedDeviceSequence"
+        private const val KEY_DEVICE_ID = "deviceId"
+
+        /**
+         * Сколько номеров резервируется одной записью на диск
+         */
+        private const val SEQUENCE_BLOCK_SIZE = 64L
+    }
+
+    private val sharedPreferences: SharedPreferences by lazy {
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+    }
+
+    /**
+     * Последний выданный номер; -1, пока отметка не прочитана с диска
+     */
+    private var lastIssuedSequence = -1L
+
+    /**
+     * Верхняя граница зарезервированного блока, сохраненная в KEY_DEVICE_SEQUENCE
+     */
+    private var reservedUpTo = 0L
+
+    /**
+     * Постоянный идентификатор устройства, под которым учитывается его вклад в счетчики
+     */
+    @Synchronized
+    fun getDeviceId(): String {
+        sharedPreferences.getString(KEY_DEVICE_ID, null)?.let { return it }
+        val deviceId = UUID.randomUUID().toString()
+        sharedPreferences.edit().putString(KEY_DEVICE_ID, deviceId).commit()
+        return deviceId
+    }
+
+    /**
+     * Выдает следующий номер операции устройства
+     */
+    fun nextDeviceSequence(): Long = nextDeviceSequences(1).first
+
+    /**
+     * Выдает [count] подряд идущих номеров операций. Номера берутся из блока в памяти;
+     * на диск синхронно пишется только верхняя граница нового блока, поэтому после
+     * перезапуска счетчик продолжается за ней. Неиспользованный остаток блока дает
+     * пропуск в нумерации, который сервер и advanceAckedSequence допускают.
+     */
+    @Synchronized
+    fun nextDeviceSequences(count: Int): LongRange {
+        require(count > 0) { "count должен быть положительным: $count" }
+        if (lastIssuedSequence < 0) {
+            reservedUpTo = sharedPreferences.getLong(KEY_DEVICE_SEQUENCE, 0L)
+            lastIssuedSequence = reservedUpTo
+        }
+        val first = lastIssuedSequence + 1
+        val last = lastIssuedSequence + count
+        if (last > reservedUpTo) {
+            reservedUpTo = last + SEQUENCE_BLOCK_SIZE
+            sharedPreferences.edit().putLong(KEY_DEVICE_SEQUENCE, reservedUpTo).commit()
+        }
+        lastIssuedSequence = last
+        return first..last
+    }
+
+    /**
+     * Генерирует новый идентификатор операции
+     */
+    fun newOperationId(): String = UUID.randomUUID().toString()
+
+    /**
+     * Последний номер операции, о применении которого сообщил сервер
+     */
+    fun getAckedDeviceSequence(): Long {
+        return sharedPreferences.getLong(KEY_ACKED_DEVICE_SEQUENCE, 0L)
+    }
+
+    /**
+     * Сдвигает подтвержденный сервером номер вперед; меньшие значения игнорируются
+     */
+    @Synchronized
+    fun advanceAckedDeviceSequence(sequence: Long) {
+        if (sequence > getAckedDeviceSequence()) {
+            sharedPreferences.edit().putLong(KEY_ACKED_DEVICE_SEQUENCE, sequence).apply()
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.ruege.mobile.data.sync
+
+/**
+ * Параметры окна накопления изменений перед отправкой
+ * @param maxItems после стольких изменений очередь отправляется сразу
+ * @param maxDelayMs не позже чем через столько после первого изменения в окне
+ * @param urgentDelayMs предельная задержка для изменений, помеченных как срочные
+ * @param meteredFactor во сколько раз окно растет в тарифицируемой сети
+ * @param lowBatteryFactor во сколько раз окно растет при низком заряде
+ */
+data class SyncWindowConfig(
+    val maxItems: Int = 20,
+    val maxDelayMs: Long = 60_000L,
+    val urgentDelayMs: Long = 10_000L,
+    val meteredFactor: Int = 4,
+    val lowBatteryFactor: Int = 4
+)
+
+/**
+ * Состояние устройства, от которого зависит размер окна
+ */
+data class SyncConditions(
+    val isMetered: Boolean = false,
+    val isBatteryLow: Boolean = false
+)
+
+/**
+ * Решение окна после очередного изменения
+ */
+sealed class SyncDecision {
+    /** Окно заполнено, отправить сейчас */
+    object FlushNow : SyncDecision()
+
+    /**
+     * Отправить через delayMs. reschedule = false означает, что отправка
+     * уже запланирована на этот срок и ничего делать не нужно
+     */
+    data class FlushLater(val delayMs: Long, val reschedule: Boolean) : SyncDecision()
+}
+
+/**
+ * Окно накопления изменений: отправка после N изменений или через T после первого из них,
+ * смотря что наступит раньше. Не зависит от Android, время берется из clock,
+ * поэтому логику можно проверить с подменными часами.
+ */
+class SyncWindow(
+    private val config: SyncWindowConfig = SyncWindowConfig(),
+    private val clock: () -> Long = System::currentTimeMillis
+) {
+
+    private var pendingItems = 0
+    private var deadline = NO_WINDOW
+
+    /**
+     * Учитывает новые изменения и возвращает, когда их нужно отправить
+     */
+    @Synchronized
+    fun record(items: Int, conditions: SyncConditions, urgent: Boolean = false): SyncDecision {
+        val now = clock()
+        val factor = (if (conditions.isMetered) config.meteredFactor else 1) *
+            (if (conditions.isBatteryLow) config.lowBatteryFactor else 1)
+
+        var reschedule = false
+        if (deadline == NO_WINDOW || now >= deadline) {
+            pendingItems = 0
+            deadline = now + config.maxDelayMs * factor
+            reschedule = true
+        }
+        if (urgent && deadline > now + config.urgentDelayMs) {
+            deadline = now + config.urgentDelayMs
+            reschedule = true
+        }
+
+        pendingItems += items
+        if (pendingItems >= config.maxItems * factor) {
+            reset()
+            return SyncDecision.FlushNow
+        }
+        return SyncDecision.FlushLater(deadline - now, reschedule)
+    }
+
+    /**
+     * Закрывает текущее окно, например после внеочередной отправки
+     */
+    @Synchronized
+    fun reset() {
+        pendingItems = 0
+        deadline = NO_WINDOW
+    }
+
+    private companion object {
+        const val NO_WINDOW = -1L
+    }
+}
@@ -7,7 +7,12 @@ import com.ruege.mobile.data.local.dao.ContentDao
 import com.ruege.mobile.data.local.dao.NewsDao
 import com.ruege.mobile.data.local.dao.PracticeAttemptDao
 import com.ruege.mobile.data.local.dao.PracticeStatisticsDao
+import com.ruege.mobile.data.local.dao.PracticeAttemptCounterDao
+import com.ruege.mobile.data.local.dao.PracticeRecordDao
+import com.ruege.mobile.data.local.dao.VariantTaskResultDao
+import com.ruege.mobile.data.local.dao.CachedContentDao
 import com.ruege.mobile.data.local.dao.ProgressDao
+import com.ruege.mobile.data.local.dao.ProgressSolvedTaskDao
 import com.ruege.mobile.data.local.dao.ProgressSyncQueueDao
 import com.ruege.mobile.data.local.dao.TaskDao
 import com.ruege.mobile.data.local.dao.UserDao
@@ -91,6 +96,31 @@ object DatabaseModule {
         return appDatabase.practiceStatisticsDao()
     }
     
+    @Provides
+    fun provideProgressSolvedTaskDao(appDatabase: AppDatabase): ProgressSolvedTaskDao {
+        return appDatabase.progressSolvedTaskDao()
+    }
+    
+    @Provides
+    fun providePracticeAttemptCounterDao(appDatabase: AppDatabase): PracticeAttemptCounterDao {
+        return appDatabase.practiceAttemptCounterDao()
+    }
+
+    @Provides
+    fun providePracticeRecordDao(appDatabase: AppDatabase): PracticeRecordDao {
+        return appDatabase.practiceRecordDao()
+    }
+
+    @Provides
+    fun provideVariantTaskResultDao(appDatabase: AppDatabase): VariantTaskResultDao {
+        return appDatabase.variantTaskResultDao()
+    }
+    
+    @Provides
+    fun provideCachedContentDao(appDatabase: AppDatabase): CachedContentDao {
+        return appDatabase.cachedContentDao()
+    }
+    
     @Provides
     fun provideTaskOptionDao(appDatabase: AppDatabase): TaskOptionDao {
         return appDatabase.taskOptionDao()
@@ -1,6 +1,10 @@
 package com.ruege.mobile.di
 
+import android.content.Context
 import com.ruege.mobile.data.network.adapter.DateAdapter
+import com.ruege.mobile.data.network.cache.CatalogCacheInterceptor
+import com.ruege.mobile.data.network.encoding.GzipRequestInterceptor
+import com.ruege.mobile.data.network.encoding.NegotiatingConverterFactory
 import com.ruege.mobile.data.network.api.AuthApiService
 import com.ruege.mobile.data.network.api.NewsApiService
 import com.ruege.mobile.data.network.api.ProgressApiService
@@ -16,11 +20,14 @@ import com.squareup.moshi.kotlin.reflect.KotlinJsonAdapterFactory
 import dagger.Module
 import dagger.Provides
 import dagger.hilt.InstallIn
+import dagger.hilt.android.qualifiers.ApplicationContext
 import dagger.hilt.components.SingletonComponent
+import okhttp3.Cache
 import okhttp3.OkHttpClient
+import okhttp3.brotli.BrotliInterceptor
 import okhttp3.logging.HttpLoggingInterceptor
 import retrofit2.Retrofit
-import retrofit2.converter.moshi.MoshiConverterFactory
+import java.io.File
 import java.util.concurrent.TimeUnit
 import javax.inject.Named
 import javax.inject.Singleton
@@ -32,6 +39,8 @@ object NetworkModule {
     private const val BASE_URL = "http://46.8.232.191:80/api/v1/"
 
     private const val DEBUG = true
+    private const val HTTP_CACHE_DIR = "http_cache"
+    private const val HTTP_CACHE_SIZE_BYTES = 10L * 1024 * 1024
 
     @Provides
     @Singleton
@@ -48,12 +57,22 @@ object NetworkModule {
         }
     }
 
+    /**
+     * Дисковый HTTP-кэш: хранит ответы каталогов с ETag/Last-Modified для условных запросов
+     */
+    @Provides
+    @Singleton
+    fun provideHttpCache(@ApplicationContext context: Context): Cache {
+        return Cache(File(context.cacheDir, HTTP_CACHE_DIR), HTTP_CACHE_SIZE_BYTES)
+    }
+
     @Provides
     @Singleton
     fun provideOkHttpClient(
         tokenAuthenticator: TokenAuthenticator,
         authInterceptor: AuthInterceptor,
-        loggingInterceptor: HttpLoggingInterceptor
+        loggingInterceptor: HttpLoggingInterceptor,
+        httpCache: Cache
     ): OkHttpClient {
         Timber.d("provideOkHttpClient: START Creating OkHttpClient.")
         Timber.d("provideOkHttpClient: Using loggingInterceptor: $loggingInterceptor")
@@ -63,20 +82,29 @@ object NetworkModule {
             .readTimeout(60, TimeUnit.SECONDS)
             .writeTimeout(60, TimeUnit.SECONDS)
             .addInterceptor(authInterceptor)
+            .addInterceptor(GzipRequestInterceptor())
+            // Accept-Encoding: br,gzip и распаковка ответа; без него OkHttp запрашивает только gzip
+            .addInterceptor(BrotliInterceptor)
             .addInterceptor(loggingInterceptor)
+            .addNetworkInterceptor(CatalogCacheInterceptor())
+            .cache(httpCache)
             .authenticator(tokenAuthenticator)
             .build()
         Timber.d("provideOkHttpClient: FINISHED Creating OkHttpClient (AuthInterceptor ENABLED, TokenAuthenticator TEMPORARILY DISABLED): $client")
         return client
     }
 
+    /**
+     * DTO с @JsonClass(generateAdapter = true) разбираются адаптерами, сгенерированными KSP;
+     * рефлексия KotlinJsonAdapterFactory остается последним вариантом для остальных типов
+     */
     @Provides
     @Singleton
     fun provideMoshi(): Moshi {
         Timber.d("provideMoshi: Creating Moshi instance.")
         return Moshi.Builder()
             .add(DateAdapter()) 
-            .add(KotlinJsonAdapterFactory()) 
+            .addLast(KotlinJsonAdapterFactory()) 
             .build()
     }
 
@@ -87,7 +115,7 @@ object NetworkModule {
         val retrofit = Retrofit.Builder()
             .baseUrl(BASE_URL)
             .client(okHttpClient)
-            .addConverterFactory(MoshiConverterFactory.create(moshi))
+            .addConverterFactory(NegotiatingConverterFactory.create(moshi))
             .build()
         Timber.d("provideRetrofit: FINISHED Creating Retrofit: $retrofit with base URL: $BASE_URL")
         return retrofit
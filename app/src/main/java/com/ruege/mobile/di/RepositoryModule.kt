@@ -25,8 +25,11 @@ import com.ruege.mobile.data.local.dao.UserDao
 import com.ruege.mobile.data.network.api.TaskApiService
 import com.ruege.mobile.data.network.api.TheoryApiService
 import com.ruege.mobile.data.network.api.EssayApiService
+import com.ruege.mobile.data.cache.ContentCacheManager
+import com.ruege.mobile.data.network.RequestCoalescer
 import kotlinx.coroutines.CoroutineScope
 import com.ruege.mobile.data.repository.PracticeRepository
+import com.ruege.mobile.data.repository.PracticeAttemptRecorder
 import com.ruege.mobile.data.repository.ProgressSyncRepository
 import com.ruege.mobile.data.repository.PracticeSyncRepository
 import com.ruege.mobile.data.repository.ProgressRepository
@@ -34,6 +37,7 @@ import com.ruege.mobile.data.repository.UserRepository
 import com.ruege.mobile.data.local.dao.PracticeAttemptDao
 import com.ruege.mobile.data.local.dao.PracticeStatisticsDao
 import com.ruege.mobile.data.local.dao.ProgressDao
+import com.ruege.mobile.data.local.dao.ProgressSolvedTaskDao
 import com.ruege.mobile.data.local.dao.ProgressSyncQueueDao
 import com.ruege.mobile.data.local.dao.ShpargalkaDao
 import com.ruege.mobile.data.network.api.ProgressApiService
@@ -41,11 +45,14 @@ import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.SupervisorJob
 import com.ruege.mobile.data.local.dao.TaskTextDao
 import com.ruege.mobile.data.local.dao.UserEssayDao
-import com.ruege.mobile.data.network.api.PracticeApiService
 import com.ruege.mobile.data.repository.EssayRepository
 import com.ruege.mobile.data.repository.PracticeStatisticsRepository
+import com.ruege.mobile.data.repository.ContentStore
 import com.ruege.mobile.data.repository.TheoryRepository
 import com.ruege.mobile.data.repository.TasksRepository
+import com.ruege.mobile.data.sync.SyncEngine
+import com.ruege.mobile.data.sync.SyncScheduler
+import com.ruege.mobile.data.sync.SyncSequenceStore
 
 @Module
 @InstallIn(SingletonComponent::class)
@@ -80,9 +87,12 @@ object RepositoryModule {
         theoryApiService: TheoryApiService,
         downloadedTheoryDao: DownloadedTheoryDao,
         externalScope: CoroutineScope,
-        userDao: UserDao
+        userDao: UserDao,
+        requestCoalescer: RequestCoalescer,
+        contentStore: ContentStore,
+        contentCacheManager: ContentCacheManager
     ): TheoryRepository {
-        return TheoryRepository(contentDao, theoryApiService, downloadedTheoryDao, externalScope, userDao)
+        return TheoryRepository(contentDao, theoryApiService, downloadedTheoryDao, externalScope, userDao, requestCoalescer, contentStore, contentCacheManager)
     }
 
     @Provides
@@ -93,9 +103,11 @@ object RepositoryModule {
         taskApiService: TaskApiService,
         taskTextDao: TaskTextDao,
         externalScope: CoroutineScope,
-        userDao: UserDao
+        userDao: UserDao,
+        requestCoalescer: RequestCoalescer,
+        contentCacheManager: ContentCacheManager
     ): TasksRepository {
-        return TasksRepository(taskDao, contentDao, taskApiService, taskTextDao, externalScope, userDao)
+        return TasksRepository(taskDao, contentDao, taskApiService, taskTextDao, externalScope, userDao, requestCoalescer, contentCacheManager)
     }
 
     @Provides
@@ -106,9 +118,12 @@ object RepositoryModule {
         externalScope: CoroutineScope,
         userDao: UserDao,
         userEssayDao: UserEssayDao,
-        practiceStatisticsRepository: PracticeStatisticsRepository
+        practiceStatisticsRepository: PracticeStatisticsRepository,
+        requestCoalescer: RequestCoalescer,
+        contentStore: ContentStore,
+        contentCacheManager: ContentCacheManager
     ): EssayRepository {
-        return EssayRepository(contentDao, essayApiService, externalScope, userDao, userEssayDao, practiceStatisticsRepository)
+        return EssayRepository(contentDao, essayApiService, externalScope, userDao, userEssayDao, practiceStatisticsRepository, requestCoalescer, contentStore, contentCacheManager)
     }
 
     @Provides
@@ -120,7 +135,8 @@ object RepositoryModule {
         variantSharedTextDao: VariantSharedTextDao,
         variantTaskDao: VariantTaskDao,
         variantTaskOptionDao: VariantTaskOptionDao,
-        userVariantTaskAnswerDao: UserVariantTaskAnswerDao
+        userVariantTaskAnswerDao: UserVariantTaskAnswerDao,
+        requestCoalescer: RequestCoalescer
     ): VariantRepository {
         return VariantRepository(
             appDatabase, 
@@ -130,6 +146,7 @@ object RepositoryModule {
             variantTaskDao,
             variantTaskOptionDao,
             userVariantTaskAnswerDao,
+            requestCoalescer,
         )
     }
 
@@ -139,8 +156,9 @@ object RepositoryModule {
         practiceAttemptDao: PracticeAttemptDao,
         practiceStatisticsDao: PracticeStatisticsDao,
         taskDao: TaskDao,
+        practiceAttemptRecorder: PracticeAttemptRecorder
     ): PracticeRepository {
-        return PracticeRepository(practiceAttemptDao, practiceStatisticsDao, taskDao)
+        return PracticeRepository(practiceAttemptDao, practiceStatisticsDao, taskDao, practiceAttemptRecorder)
     }
     
     @Provides
@@ -150,14 +168,17 @@ object RepositoryModule {
         progressDao: ProgressDao,
         progressSyncQueueDao: ProgressSyncQueueDao,
         progressApiService: ProgressApiService,
-        practiceApiService: PracticeApiService,
         contentDao: ContentDao,
         userDao: UserDao,
-        practiceStatisticsDao: PracticeStatisticsDao,
         practiceSyncRepository: PracticeSyncRepository,
-        taskDao: TaskDao
+        taskDao: TaskDao,
+        syncEngine: SyncEngine,
+        syncSequenceStore: SyncSequenceStore,
+        appDatabase: AppDatabase,
+        syncScheduler: SyncScheduler,
+        progressSolvedTaskDao: ProgressSolvedTaskDao
     ): ProgressSyncRepository {
-        return ProgressSyncRepository(context, progressDao, progressSyncQueueDao, progressApiService, practiceApiService, contentDao, userDao, practiceStatisticsDao, practiceSyncRepository, taskDao)
+        return ProgressSyncRepository(context, progressDao, progressSyncQueueDao, progressApiService, contentDao, userDao, practiceSyncRepository, taskDao, syncEngine, syncSequenceStore, appDatabase, syncScheduler, progressSolvedTaskDao)
     }
     
     @Provides
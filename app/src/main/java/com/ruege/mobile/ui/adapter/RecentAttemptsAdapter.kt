@@ -3,8 +3,8 @@ package com.ruege.mobile.ui.adapter
 import android.view.LayoutInflater
 import android.view.ViewGroup
 import androidx.core.content.ContextCompat
+import androidx.paging.PagingDataAdapter
 import androidx.recyclerview.widget.DiffUtil
-import androidx.recyclerview.widget.ListAdapter
 import androidx.recyclerview.widget.RecyclerView
 import com.ruege.mobile.R
 import com.ruege.mobile.model.PracticeAttemptItemUiModel
@@ -12,7 +12,10 @@ import com.ruege.mobile.databinding.ItemRecentAttemptBinding
 import java.text.SimpleDateFormat
 import java.util.Locale
 
-class RecentAttemptsAdapter : ListAdapter<PracticeAttemptItemUiModel, RecentAttemptsAdapter.ViewHolder>(DiffCallback()) {
+/**
+ * Постраничный список истории попыток
+ */
+class RecentAttemptsAdapter : PagingDataAdapter<PracticeAttemptItemUiModel, RecentAttemptsAdapter.ViewHolder>(DiffCallback()) {
 
     private val dateFormat = SimpleDateFormat("dd.MM.yyyy HH:mm", Locale.getDefault())
 
@@ -22,7 +25,7 @@ class RecentAttemptsAdapter : ListAdapter<PracticeAttemptItemUiModel, RecentAtte
     }
 
     override fun onBindViewHolder(holder: ViewHolder, position: Int) {
-        val item = getItem(position)
+        val item = getItem(position) ?: return
         holder.bind(item, dateFormat)
     }
 
@@ -10,6 +10,7 @@ import androidx.recyclerview.widget.DiffUtil
 import androidx.recyclerview.widget.ListAdapter
 import androidx.recyclerview.widget.RecyclerView
 import com.ruege.mobile.R
+import com.ruege.mobile.data.local.dao.PracticeStatisticsDao.StatisticsTabRow
 import com.ruege.mobile.data.local.entity.PracticeStatisticsEntity
 import com.ruege.mobile.databinding.ItemPracticeStatisticsBinding
 import java.text.SimpleDateFormat
@@ -19,7 +20,7 @@ import java.util.Locale
 class StatisticsAdapter(
     private val onPracticeClick: (String) -> Unit,
     private val onStatisticsClick: (String) -> Unit
-) : ListAdapter<PracticeStatisticsEntity, StatisticsAdapter.StatisticsViewHolder>(DIFF_CALLBACK) {
+) : ListAdapter<StatisticsTabRow, StatisticsAdapter.StatisticsViewHolder>(DIFF_CALLBACK) {
 
     override fun onCreateViewHolder(parent: ViewGroup, viewType: Int): StatisticsViewHolder {
         val binding = ItemPracticeStatisticsBinding.inflate(
@@ -42,26 +43,24 @@ class StatisticsAdapter(
 
         private val dateFormat = SimpleDateFormat("dd.MM.yyyy", Locale.getDefault())
 
-        fun bind(statistics: PracticeStatisticsEntity) {
-            if (statistics.egeNumber.startsWith("essay:")) {
-                binding.tvEgeNumber.text = statistics.egeNumber.removePrefix("essay:")
-                binding.tvPractice.visibility = View.GONE
-            } else if (statistics.egeNumber.contains("_")) {
-                val variantName = statistics.egeNumber.substringBeforeLast('_')
-                binding.tvEgeNumber.text = variantName
-                binding.tvPractice.visibility = View.GONE
-            } else {
-                binding.tvEgeNumber.text = "Задание ${statistics.egeNumber}"
+        fun bind(statistics: StatisticsTabRow) {
+            val isTask = statistics.kind == PracticeStatisticsEntity.KIND_TASK
+            val isEssay = statistics.kind == PracticeStatisticsEntity.KIND_ESSAY
+
+            binding.tvEgeNumber.text = statistics.displayName
+            if (isTask) {
                 binding.tvPractice.visibility = View.VISIBLE
                 binding.tvPractice.setOnClickListener {
                     onPracticeClick(statistics.egeNumber)
                 }
+            } else {
+                binding.tvPractice.visibility = View.GONE
             }
 
             binding.tvAttemptsCount.text = "Попыток: ${statistics.totalAttempts}"
             
             val successRate = statistics.successRate
-            if (statistics.egeNumber.startsWith("essay:")) {
+            if (isEssay) {
                 binding.tvSuccessRate.text = "Проверено"
                 binding.progressSuccess.visibility = View.GONE
             } else {
@@ -86,43 +85,25 @@ class StatisticsAdapter(
             }
             binding.tvLastAttempt.text = lastAttemptDate
             
-            if (!statistics.egeNumber.contains("_")) {
-                binding.tvPractice.setOnClickListener {
-                    onPracticeClick(statistics.egeNumber)
-                }
-            }
-            
-            val variantData = statistics.variantData
-            if (variantData != null && variantData.isNotEmpty()) {
-                binding.ivVariantData.visibility = View.VISIBLE
-                
+            binding.ivVariantData.visibility = if (statistics.hasDetails) View.VISIBLE else View.GONE
+            if (statistics.hasDetails || statistics.kind != PracticeStatisticsEntity.KIND_VARIANT) {
                 itemView.setOnClickListener {
                     onStatisticsClick(statistics.egeNumber)
                 }
             } else {
-                binding.ivVariantData.visibility = View.GONE
-                if (!statistics.egeNumber.contains("_")) {
-                     itemView.setOnClickListener {
-                        onStatisticsClick(statistics.egeNumber)
-                    }
-                } else {
-                    itemView.setOnClickListener(null)
-                }
+                itemView.setOnClickListener(null)
             }
         }
     }
 
     companion object {
-        private val DIFF_CALLBACK = object : DiffUtil.ItemCallback<PracticeStatisticsEntity>() {
-            override fun areItemsTheSame(oldItem: PracticeStatisticsEntity, newItem: PracticeStatisticsEntity): Boolean {
+        private val DIFF_CALLBACK = object : DiffUtil.ItemCallback<StatisticsTabRow>() {
+            override fun areItemsTheSame(oldItem: StatisticsTabRow, newItem: StatisticsTabRow): Boolean {
                 return oldItem.egeNumber == newItem.egeNumber
             }
 
-            override fun areContentsTheSame(oldItem: PracticeStatisticsEntity, newItem: PracticeStatisticsEntity): Boolean {
-                return oldItem.totalAttempts == newItem.totalAttempts &&
-                       oldItem.correctAttempts == newItem.correctAttempts &&
-                       oldItem.lastAttemptDate == newItem.lastAttemptDate &&
-                       oldItem.variantData == newItem.variantData
+            override fun areContentsTheSame(oldItem: StatisticsTabRow, newItem: StatisticsTabRow): Boolean {
+                return oldItem.isSameContent(newItem)
             }
         }
     }
@@ -1,5 +1,6 @@
 package com.ruege.mobile.ui.bottomsheet
 
+import com.ruege.mobile.BuildConfig
 import android.app.Dialog
 import android.content.Intent
 import android.os.Bundle
@@ -108,6 +109,16 @@ class ProfileBottomSheetDialogFragment : BottomSheetDialogFragment() {
             startActivity(intent)
         }
 
+        // Экран диагностики показывает SQL и состояние очереди - только в отладочной сборке
+        if (BuildConfig.DEBUG) {
+            binding.appVersion.setOnLongClickListener {
+                Timber.d(TAG_PROFILE_BS, "Открыт экран диагностики синхронизации")
+                val syncDebugSheet = SyncDebugBottomSheetDialogFragment.newInstance()
+                syncDebugSheet.show(parentFragmentManager, SyncDebugBottomSheetDialogFragment.TAG)
+                true
+            }
+        }
+
         binding.btnClearCache.setOnClickListener {
             Timber.d(TAG_PROFILE_BS, "Нажата кнопка 'Очистить кеш'")
             val clearCacheSheet = ClearCacheBottomSheetDialogFragment.newInstance()
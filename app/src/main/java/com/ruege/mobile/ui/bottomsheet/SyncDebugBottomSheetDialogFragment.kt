@@ -0,0 +1,150 @@
+package com.ruege.mobile.ui.bottomsheet
+
+import android.content.Intent
+import android.os.Bundle
+import android.view.LayoutInflater
+import android.view.View
+import android.view.ViewGroup
+import com.google.android.material.bottomsheet.BottomSheetDialogFragment
+import com.ruege.mobile.data.cache.ContentCacheManager
+import com.ruege.mobile.data.local.entity.SyncStatus
+import com.ruege.mobile.data.local.metrics.QueryMetrics
+import com.ruege.mobile.data.repository.ProgressSyncRepository
+import com.ruege.mobile.data.sync.SyncMetricsStore
+import com.ruege.mobile.data.sync.SyncRunRecord
+import com.ruege.mobile.databinding.LayoutSyncDebugBottomSheetBinding
+import dagger.hilt.android.AndroidEntryPoint
+import java.text.SimpleDateFormat
+import java.util.Date
+import java.util.Locale
+import javax.inject.Inject
+
+/**
+ * Скрытый экран диагностики синхронизации: глубина очереди по статусам,
+ * последние запуски SyncEngine, самые затратные запросы к базе и заполнение кэшей контента.
+ * Открывается долгим нажатием на версию в профиле.
+ */
+@AndroidEntryPoint
+class SyncDebugBottomSheetDialogFragment : BottomSheetDialogFragment() {
+
+    @Inject
+    lateinit var progressSyncRepository: ProgressSyncRepository
+    @Inject
+    lateinit var syncMetricsStore: SyncMetricsStore
+    @Inject
+    lateinit var contentCacheManager: ContentCacheManager
+
+    private var _binding: LayoutSyncDebugBottomSheetBinding? = null
+    private val binding get() = _binding!!
+
+    private val queueDepth = linkedMapOf<SyncStatus, Int>()
+    private val timeFormat = SimpleDateFormat("dd.MM HH:mm:ss", Locale.getDefault())
+
+    override fun onCreateView(
+        inflater: LayoutInflater,
+        container: ViewGroup?,
+        savedInstanceState: Bundle?
+    ): View {
+        _binding = LayoutSyncDebugBottomSheetBinding.inflate(inflater, container, false)
+        return binding.root
+    }
+
+    override fun onViewCreated(view: View, savedInstanceState: Bundle?) {
+        super.onViewCreated(view, savedInstanceState)
+
+        for (status in SyncStatus.values()) {
+            progressSyncRepository.getCountByStatus(status).observe(viewLifecycleOwner) { count ->
+                queueDepth[status] = count ?: 0
+                renderQueueDepth()
+                renderRuns()
+            }
+        }
+
+        binding.btnSyncNow.setOnClickListener {
+            progressSyncRepository.syncNow(true)
+        }
+
+        binding.btnClearRuns.setOnClickListener {
+            syncMetricsStore.clear()
+            renderRuns()
+        }
+
+        binding.btnExportQueries.setOnClickListener {
+            exportQueryMetrics()
+        }
+
+        binding.btnClearQueries.setOnClickListener {
+            QueryMetrics.clear()
+            renderQueryStats()
+        }
+
+        renderRuns()
+        renderQueryStats()
+        renderCacheStats()
+    }
+
+    private fun renderQueueDepth() {
+        binding.tvQueueDepth.text = queueDepth.entries.joinToString("\n") { (status, count) ->
+            "${status.getValue().padEnd(12)} $count"
+        }
+    }
+
+    private fun renderRuns() {
+        val runs = syncMetricsStore.getRecentRuns()
+        if (runs.isEmpty()) {
+            binding.tvSyncRuns.text = "Запусков пока не было"
+            return
+        }
+        binding.tvSyncRuns.text = runs.joinToString("\n\n") { formatRun(it) }
+    }
+
+    private fun formatRun(run: SyncRunRecord): String {
+        return "${timeFormat.format(Date(run.startedAt))} ${if (run.success) "OK" else "ОШИБКА"} ${run.durationMs} мс\n" +
+            "пакетов ${run.batches}, элементов ${run.items}, запросов ${run.requests}, ${run.bytesSent} байт\n" +
+            "подтверждено ${run.acknowledged}, повтор ${run.failed}, отклонено ${run.rejected}\n" +
+            "HTTP ${run.httpCodes.joinToString(",").ifEmpty { "-" }}"
+    }
+
+    private fun renderQueryStats() {
+        val stats = QueryMetrics.getStats().take(MAX_QUERY_ROWS)
+        val slowCount = QueryMetrics.getSlowQueries().size
+        if (stats.isEmpty()) {
+            binding.tvQueryStats.text = "Запросов пока не было"
+            return
+        }
+        binding.tvQueryStats.text = stats.joinToString("\n\n") { stat ->
+            "${stat.caller}\n" +
+                "вызовов ${stat.count}, всего ${"%.0f".format(stat.totalMs)} мс, " +
+                "средн. ${"%.1f".format(stat.avgMs)} мс, макс. ${"%.0f".format(stat.maxMs)} мс, строк ${stat.totalRows}"
+        } + "\n\nмедленных запросов в журнале: $slowCount"
+    }
+
+    private fun renderCacheStats() {
+        binding.tvCacheStats.text = contentCacheManager.stats().joinToString("\n") { stats ->
+            "${stats.name.padEnd(15)} ${stats.sizeBytes / 1024}/${stats.maxSizeBytes / 1024} КБ, " +
+                "записей ${stats.entries}, попаданий ${stats.hits}, промахов ${stats.misses}, вытеснено ${stats.evictions}"
+        }
+    }
+
+    private fun exportQueryMetrics() {
+        val intent = Intent(Intent.ACTION_SEND).apply {
+            type = "text/plain"
+            putExtra(Intent.EXTRA_SUBJECT, "Статистика запросов к базе")
+            putExtra(Intent.EXTRA_TEXT, QueryMetrics.export())
+        }
+        startActivity(Intent.createChooser(intent, "Выгрузить отчет"))
+    }
+
+    override fun onDestroyView() {
+        super.onDestroyView()
+        _binding = null
+    }
+
+    companion object {
+        const val TAG = "SyncDebugBottomSheet"
+        private const val MAX_QUERY_ROWS = 15
+        fun newInstance(): SyncDebugBottomSheetDialogFragment {
+            return SyncDebugBottomSheetDialogFragment()
+        }
+    }
+}
@@ -664,7 +664,7 @@ class VariantDetailBottomSheetDialogFragment : BottomSheetDialogFragment(), Vari
             variantResult.toJsonString()
         )
 
-        practiceViewModel.saveVariantStatistics(variantStatEntity)
+        practiceViewModel.saveVariantStatistics(variantStatEntity, variantResult)
 
         Toast.makeText(requireContext(), "Результаты варианта сохранены", Toast.LENGTH_SHORT).show()
     }
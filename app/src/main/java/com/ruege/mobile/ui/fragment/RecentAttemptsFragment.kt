@@ -9,11 +9,13 @@ import androidx.fragment.app.activityViewModels
 import androidx.lifecycle.Lifecycle
 import androidx.lifecycle.lifecycleScope
 import androidx.lifecycle.repeatOnLifecycle
+import androidx.paging.LoadState
 import androidx.recyclerview.widget.LinearLayoutManager
 import com.ruege.mobile.databinding.FragmentRecentAttemptsBinding
 import com.ruege.mobile.ui.adapter.RecentAttemptsAdapter
 import com.ruege.mobile.ui.viewmodel.PracticeStatisticsViewModel
 import dagger.hilt.android.AndroidEntryPoint
+import kotlinx.coroutines.flow.collectLatest
 import kotlinx.coroutines.launch
 
 @AndroidEntryPoint
@@ -49,28 +51,25 @@ class RecentAttemptsFragment : Fragment() {
     }
 
     private fun observeRecentAttempts() {
+        binding.pbLoadingRecentAttempts.visibility = View.VISIBLE
         viewLifecycleOwner.lifecycleScope.launch {
             repeatOnLifecycle(Lifecycle.State.STARTED) {
-                viewModel.recentAttempts.observe(viewLifecycleOwner) { attempts ->
-                    binding.pbLoadingRecentAttempts.visibility = View.GONE
-                    if (attempts == null) {
-                        binding.pbLoadingRecentAttempts.visibility = View.VISIBLE
-                        binding.tvNoRecentAttempts.visibility = View.GONE
-                        binding.rvRecentAttempts.visibility = View.GONE
-                    } else if (attempts.isEmpty()) {
-                        binding.tvNoRecentAttempts.visibility = View.VISIBLE
-                        binding.rvRecentAttempts.visibility = View.GONE
-                    } else {
-                        binding.tvNoRecentAttempts.visibility = View.GONE
-                        binding.rvRecentAttempts.visibility = View.VISIBLE
-                        recentAttemptsAdapter.submitList(attempts)
+                launch {
+                    viewModel.recentAttempts.collectLatest { pagingData ->
+                        recentAttemptsAdapter.submitData(pagingData)
+                    }
+                }
+                launch {
+                    recentAttemptsAdapter.loadStateFlow.collect { loadStates ->
+                        val isLoading = loadStates.refresh is LoadState.Loading
+                        val isEmpty = loadStates.refresh is LoadState.NotLoading && recentAttemptsAdapter.itemCount == 0
+                        binding.pbLoadingRecentAttempts.visibility = if (isLoading && recentAttemptsAdapter.itemCount == 0) View.VISIBLE else View.GONE
+                        binding.tvNoRecentAttempts.visibility = if (isEmpty) View.VISIBLE else View.GONE
+                        binding.rvRecentAttempts.visibility = if (isEmpty) View.GONE else View.VISIBLE
                     }
                 }
             }
         }
-        if (viewModel.recentAttempts.value == null) {
-             binding.pbLoadingRecentAttempts.visibility = View.VISIBLE
-        }
     }
 
     override fun onDestroyView() {
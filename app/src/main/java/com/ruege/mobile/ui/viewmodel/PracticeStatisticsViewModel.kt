@@ -5,13 +5,20 @@ import androidx.lifecycle.AndroidViewModel
 import androidx.lifecycle.LiveData
 import androidx.lifecycle.MutableLiveData
 import androidx.lifecycle.viewModelScope
+import androidx.paging.Pager
+import androidx.paging.PagingConfig
+import androidx.paging.PagingData
+import androidx.paging.cachedIn
+import androidx.paging.map
+import com.ruege.mobile.data.local.AppDatabase
 import com.ruege.mobile.data.local.dao.PracticeAttemptDao
 import com.ruege.mobile.data.local.dao.PracticeStatisticsDao
-import com.ruege.mobile.data.local.entity.PracticeStatisticsEntity
-import com.ruege.mobile.data.repository.TasksRepository
+import com.ruege.mobile.data.local.dao.PracticeStatisticsDao.StatisticsTabRow
+import com.ruege.mobile.data.repository.PracticeAttemptPagingSource
 import com.ruege.mobile.model.PracticeStatisticItem
 import com.ruege.mobile.model.PracticeAttemptItemUiModel
 import dagger.hilt.android.lifecycle.HiltViewModel
+import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.map
 import kotlinx.coroutines.launch
 import java.text.SimpleDateFormat
@@ -19,6 +26,8 @@ import java.util.Date
 import java.util.Locale
 import javax.inject.Inject
 
+private const val RECENT_ATTEMPTS_PAGE_SIZE = 30
+
 data class OverallStatisticsUiModel(
     val totalAttempts: Int,
     val correctAttempts: Int,
@@ -29,7 +38,7 @@ data class OverallStatisticsUiModel(
 class PracticeStatisticsViewModel @Inject constructor(
     private val practiceStatisticsDao: PracticeStatisticsDao,
     private val practiceAttemptDao: PracticeAttemptDao,
-    private val tasksRepository: TasksRepository,
+    private val appDatabase: AppDatabase,
     application: Application
 ) : AndroidViewModel(application) {
 
@@ -39,14 +48,20 @@ class PracticeStatisticsViewModel @Inject constructor(
     private val _allTaskStatistics = MutableLiveData<List<PracticeStatisticItem>>()
     val allTaskStatistics: LiveData<List<PracticeStatisticItem>> = _allTaskStatistics
 
-    private val _recentAttempts = MutableLiveData<List<PracticeAttemptItemUiModel>?>(null)
-    val recentAttempts: LiveData<List<PracticeAttemptItemUiModel>?> = _recentAttempts
-
     private val dateFormat = SimpleDateFormat("dd.MM.yyyy HH:mm", Locale.getDefault())
 
+    /**
+     * История попыток постранично, от новых к старым
+     */
+    val recentAttempts: Flow<PagingData<PracticeAttemptItemUiModel>> = Pager(
+        config = PagingConfig(pageSize = RECENT_ATTEMPTS_PAGE_SIZE, enablePlaceholders = false),
+        pagingSourceFactory = { PracticeAttemptPagingSource(practiceAttemptDao, appDatabase.invalidationTracker) }
+    ).flow
+        .map { pagingData -> pagingData.map { it.toUiModel() } }
+        .cachedIn(viewModelScope)
+
     init {
         loadStatistics()
-        loadRecentAttempts()
     }
 
     fun loadStatistics() {
@@ -72,66 +87,39 @@ class PracticeStatisticsViewModel @Inject constructor(
         }
 
         viewModelScope.launch {
-            practiceStatisticsDao.getAllStatisticsSortedByEgeNumber().collect { entities ->
-                val uiItems = entities.map { entity ->
-                    mapEntityToUiItem(entity)
+            practiceStatisticsDao.getTaskTabRows().collect { rows ->
+                val uiItems = rows.map { row ->
+                    mapRowToUiItem(row)
                 }
                 _allTaskStatistics.postValue(uiItems)
             }
         }
     }
 
-    private fun mapEntityToUiItem(entity: PracticeStatisticsEntity): PracticeStatisticItem {
-        val successRate = if (entity.totalAttempts > 0) {
-            (entity.correctAttempts * 100 / entity.totalAttempts)
-        } else {
-            0
-        }
-        val lastAttemptDateFormatted = if (entity.lastAttemptDate > 0) {
-            dateFormat.format(Date(entity.lastAttemptDate))
+    private fun mapRowToUiItem(row: StatisticsTabRow): PracticeStatisticItem {
+        val lastAttemptDateFormatted = if (row.lastAttemptDate > 0) {
+            dateFormat.format(Date(row.lastAttemptDate))
         } else {
             "-"
         }
 
         return PracticeStatisticItem(
-            id = entity.egeNumber,
-            egeDisplayNumber = "Задание ${entity.egeNumber}",
-            totalAttempts = entity.totalAttempts,
-            correctAttempts = entity.correctAttempts,
-            successRate = successRate,
+            id = row.egeNumber,
+            egeDisplayNumber = row.displayName,
+            totalAttempts = row.totalAttempts,
+            correctAttempts = row.correctAttempts,
+            successRate = row.successRate.toInt(),
             lastAttemptDateFormatted = lastAttemptDateFormatted
         )
     }
 
-    fun loadRecentAttempts(limit: Int = 20) {
-        viewModelScope.launch {
-            practiceAttemptDao.getRecentAttempts(limit)
-                .map { attempts ->
-                    if (attempts.isEmpty()) {
-                        return@map emptyList<PracticeAttemptItemUiModel>()
-                    }
-                    val taskIds = attempts.map { it.taskId }.distinct()
-
-                    val tasks = tasksRepository.getTasksByIds(taskIds)
-                    val tasksMap = tasks.associateBy { it.id }
-
-                    attempts.map { attemptEntity ->
-                        val taskEntity = tasksMap[attemptEntity.taskId]
-                        val egeTaskNumberDisplay = taskEntity?.egeNumber?.let { egeNumStr -> "Задание $egeNumStr" } 
-                                                  ?: "Задача ID: ${attemptEntity.taskId}"
-                        
-                        PracticeAttemptItemUiModel(
-                            attemptId = attemptEntity.attemptId,
-                            taskId = attemptEntity.taskId,
-                            egeTaskNumberDisplay = egeTaskNumberDisplay,
-                            attemptDateFormatted = dateFormat.format(Date(attemptEntity.attemptDate)),
-                            isCorrect = attemptEntity.isCorrect
-                        )
-                    }
-                }
-                .collect {
-                    _recentAttempts.postValue(it)
-                }
-        }
+    private fun PracticeAttemptDao.AttemptHistoryRow.toUiModel(): PracticeAttemptItemUiModel {
+        return PracticeAttemptItemUiModel(
+            attemptId = attemptId,
+            taskId = taskId,
+            egeTaskNumberDisplay = egeNumber?.let { "Задание $it" } ?: "Задача ID: $taskId",
+            attemptDateFormatted = dateFormat.format(Date(attemptDate)),
+            isCorrect = isCorrect
+        )
     }
 }
@@ -4,6 +4,7 @@ import androidx.lifecycle.LiveData
 import androidx.lifecycle.MutableLiveData
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
+import com.ruege.mobile.data.local.dao.PracticeStatisticsDao.StatisticsTabRow
 import com.ruege.mobile.data.local.entity.PracticeAttemptEntity
 import com.ruege.mobile.data.local.entity.PracticeStatisticsEntity
 import com.ruege.mobile.data.local.entity.TaskEntity
@@ -41,13 +42,13 @@ class PracticeViewModel @Inject constructor(
     val totalAttempts: LiveData<Int> = practiceRepository.getTotalAttempts()
     val totalCorrectAttempts: LiveData<Int> = practiceRepository.getTotalCorrectAttempts()
     
-    val statisticsByType: LiveData<List<PracticeStatisticsEntity>> = 
+    val statisticsByType: LiveData<List<StatisticsTabRow>> =
         practiceRepository.getStatisticsWithAttempts()
 
-    val statisticsByVariant: LiveData<List<PracticeStatisticsEntity>> =
+    val statisticsByVariant: LiveData<List<StatisticsTabRow>> =
         practiceRepository.getVariantStatistics()
   
-    val statisticsByEssay: LiveData<List<PracticeStatisticsEntity>> =
+    val statisticsByEssay: LiveData<List<StatisticsTabRow>> =
         practiceRepository.getEssayStatistics()
 
     private val _recentAttemptsWithTask = MutableLiveData<List<PracticeAttemptWithTask>>()
@@ -167,11 +168,12 @@ class PracticeViewModel @Inject constructor(
     /**
      * Сохраняет статистику по варианту
      * @param statisticsEntity сущность статистики
+     * @param variantResult результаты заданий варианта
      */
-    fun saveVariantStatistics(statisticsEntity: PracticeStatisticsEntity) {
+    fun saveVariantStatistics(statisticsEntity: PracticeStatisticsEntity, variantResult: VariantResult) {
         viewModelScope.launch {
             try {
-                practiceStatisticsRepository.saveVariantStatistics(statisticsEntity)
+                practiceStatisticsRepository.saveVariantStatistics(statisticsEntity, variantResult)
             } catch (e: Exception) {
                 _error.postValue("Ошибка при сохранении статистики варианта: ${e.message}")
             }
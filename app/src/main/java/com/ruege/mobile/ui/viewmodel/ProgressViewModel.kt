@@ -35,7 +35,7 @@ class ProgressViewModel @Inject constructor(
     private val _progressLiveData = MutableLiveData<List<ProgressEntity>>()
     val progressLiveData: LiveData<List<ProgressEntity>> = _progressLiveData
     
-    val syncQueueLiveData: LiveData<List<ProgressSyncQueueEntity>> = progressSyncRepository.getAllSyncItems()
+    val syncQueueLiveData: LiveData<List<ProgressSyncQueueEntity>> = progressSyncRepository.getUnsyncedItems()
     
     val pendingItemsCount: LiveData<Int> = progressSyncRepository.getCountByStatus(SyncStatus.PENDING)
     
@@ -14,6 +14,8 @@ import kotlinx.coroutines.launch
 import timber.log.Timber
 import javax.inject.Inject
 import kotlinx.coroutines.flow.collect
+import kotlinx.coroutines.flow.distinctUntilChanged
+import kotlinx.coroutines.flow.map
 import com.ruege.mobile.model.ContentItem
 import com.ruege.mobile.utils.Resource
 import com.ruege.mobile.data.repository.PracticeStatisticsRepository
@@ -78,11 +80,11 @@ class TasksViewModel @Inject constructor(
     }
 
     private suspend fun enrichTasksWithSolvedStatus(tasks: List<TaskItem>, categoryId: String): List<TaskItem> {
-        val solvedTaskIds: List<String> = try {
-            progressSyncRepository.getSolvedTaskIdsForEgeCategory(categoryId).firstOrNull() ?: emptyList()
+        val solvedTaskIds: Set<String> = try {
+            progressSyncRepository.getSolvedTaskIdsForEgeCategory(categoryId).firstOrNull()?.toHashSet() ?: emptySet()
         } catch (e: Exception) {
             Timber.e(e, "Ошибка при получении решенных TaskID для категории $categoryId из ProgressSyncRepository: ${e.message}")
-            emptyList()
+            emptySet()
         }
 
         Timber.d("enrichTasksWithSolvedStatus: для категории $categoryId получено ${solvedTaskIds.size} решенных ID: $solvedTaskIds")
@@ -103,11 +105,15 @@ class TasksViewModel @Inject constructor(
     private fun loadTaskTopics() {
         viewModelScope.launch {
             _taskItemsState.value = Resource.Loading()
-            tasksRepository.getTasksTopicsStream().collect { entities ->
-                val items = entities.map { ContentItem(it.contentId, it.title, it.description, it.type, it.parentId, it.isDownloaded, false) }
-                _taskItemsState.value = Resource.Success(items)
-                _isAnyTaskSelected.value = false
-            }
+            tasksRepository.getTasksTopicsStream()
+                .map { entities ->
+                    entities.map { ContentItem(it.contentId, it.title, it.description, it.type, it.parentId, it.isDownloaded, false) }
+                }
+                .distinctUntilChanged()
+                .collect { items ->
+                    _taskItemsState.value = Resource.Success(items)
+                    _isAnyTaskSelected.value = false
+                }
         }
     }
 
@@ -3,6 +3,7 @@ package com.ruege.mobile.utils
 import android.content.Context
 import com.ruege.mobile.auth.TokenManager
 import com.ruege.mobile.data.local.AppDatabase
+import com.ruege.mobile.data.local.CatalogSeeder
 import com.ruege.mobile.data.local.preferences.AppPreferences
 import dagger.hilt.android.qualifiers.ApplicationContext
 import kotlinx.coroutines.Dispatchers
@@ -57,9 +58,13 @@ class UserDataCleaner @Inject constructor(
                 appDatabase.taskTextDao().deleteAll()
 
                 appDatabase.progressDao().deleteAll()
+                appDatabase.progressSolvedTaskDao().deleteAll()
                 appDatabase.practiceStatisticsDao().deleteAll()
+                appDatabase.practiceAttemptCounterDao().deleteAll()
+                appDatabase.variantTaskResultDao().deleteAll()
                 appDatabase.shpargalkaDao().deleteAll()
                 appDatabase.downloadedTheoryDao().deleteAll()
+                appDatabase.cachedContentDao().deleteAll()
 
                 appDatabase.contentDao().deleteAll()
                 appDatabase.categoryDao().deleteAll()
@@ -73,6 +78,9 @@ class UserDataCleaner @Inject constructor(
                 
                 Timber.d("Все пользовательские данные из таблиц очищены")
             }
+
+            // Группы заданий не относятся к пользователю: возвращаем снимок, чтобы список не был пустым до загрузки
+            CatalogSeeder.seed(context, appDatabase.openHelper.writableDatabase)
             
             try {
                 withContext(Dispatchers.Main) {
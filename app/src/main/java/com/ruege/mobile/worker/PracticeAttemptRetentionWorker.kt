@@ -0,0 +1,65 @@
+package com.ruege.mobile.worker
+
+import android.content.Context
+import androidx.work.Constraints
+import androidx.work.CoroutineWorker
+import androidx.work.ExistingPeriodicWorkPolicy
+import androidx.work.PeriodicWorkRequestBuilder
+import androidx.work.WorkManager
+import androidx.work.WorkerParameters
+import com.ruege.mobile.data.local.dao.PracticeAttemptDao
+import java.util.concurrent.TimeUnit
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.withContext
+import timber.log.Timber
+
+/**
+ * Фоновый работник, удаляющий попытки старше RETENTION_DAYS.
+ * Попытки уже учтены в practice_statistics и счетчиках устройства
+ * (они пишутся одной транзакцией с попыткой), поэтому свертка сводится к удалению
+ * подробной истории: агрегаты не меняются.
+ */
+class PracticeAttemptRetentionWorker(
+    appContext: Context,
+    workerParams: WorkerParameters,
+    private val practiceAttemptDao: PracticeAttemptDao
+) : CoroutineWorker(appContext, workerParams) {
+
+    companion object {
+        const val RETENTION_DAYS = 180L
+        private const val WORK_NAME = "practice_attempt_retention"
+
+        /**
+         * Планирует ежедневную очистку истории попыток
+         */
+        @JvmStatic
+        fun schedule(context: Context) {
+            val constraints = Constraints.Builder()
+                .setRequiresBatteryNotLow(true)
+                .build()
+
+            val workRequest = PeriodicWorkRequestBuilder<PracticeAttemptRetentionWorker>(1, TimeUnit.DAYS)
+                .setConstraints(constraints)
+                .build()
+
+            WorkManager.getInstance(context)
+                .enqueueUniquePeriodicWork(
+                    WORK_NAME,
+                    ExistingPeriodicWorkPolicy.KEEP,
+                    workRequest
+                )
+        }
+    }
+
+    override suspend fun doWork(): Result {
+        return try {
+            val cutoff = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(RETENTION_DAYS)
+            val deleted = withContext(Dispatchers.IO) { practiceAttemptDao.deleteAttemptsBefore(cutoff) }
+            Timber.d("PracticeAttemptRetentionWorker: удалено попыток старше $RETENTION_DAYS дней: $deleted")
+            Result.success()
+        } catch (e: Exception) {
+            Timber.e(e, "PracticeAttemptRetentionWorker: ошибка очистки истории попыток")
+            Result.retry()
+        }
+    }
+}
@@ -6,10 +6,8 @@ import androidx.annotation.Nullable;
 import androidx.work.ListenableWorker;
 import androidx.work.WorkerFactory;
 import androidx.work.WorkerParameters;
-import com.ruege.mobile.data.local.dao.ProgressSyncQueueDao;
-import com.ruege.mobile.data.network.api.ProgressApiService;
-import com.ruege.mobile.data.network.api.PracticeApiService;
-import com.ruege.mobile.data.repository.PracticeSyncRepository;
+import com.ruege.mobile.data.local.dao.PracticeAttemptDao;
+import com.ruege.mobile.data.sync.SyncEngine;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import timber.log.Timber;
@@ -21,23 +19,15 @@ import timber.log.Timber;
 public class ProgressSyncWorkerFactory extends WorkerFactory {
     private static final String TAG = "PrgSyncWorkerFactory";
 
-    private final ProgressSyncQueueDao progressSyncQueueDao;
-    private final ProgressApiService progressApiService;
-    private final PracticeApiService practiceApiService;
-    private final PracticeSyncRepository practiceSyncRepository;
+    private final SyncEngine syncEngine;
+    private final PracticeAttemptDao practiceAttemptDao;
 
     @Inject
-    public ProgressSyncWorkerFactory(
-            ProgressSyncQueueDao progressSyncQueueDao,
-            ProgressApiService progressApiService,
-            PracticeApiService practiceApiService,
-            PracticeSyncRepository practiceSyncRepository) {
-        this.progressSyncQueueDao = progressSyncQueueDao;
-        this.progressApiService = progressApiService;
-        this.practiceApiService = practiceApiService;
-        this.practiceSyncRepository = practiceSyncRepository;
+    public ProgressSyncWorkerFactory(SyncEngine syncEngine, PracticeAttemptDao practiceAttemptDao) {
+        this.syncEngine = syncEngine;
+        this.practiceAttemptDao = practiceAttemptDao;
         
-        Timber.d("ProgressSyncWorkerFactory created with all api services");
+        Timber.d("ProgressSyncWorkerFactory created with SyncEngine");
     }
 
     @Nullable
@@ -56,10 +46,13 @@ public class ProgressSyncWorkerFactory extends WorkerFactory {
                 return new ProgressSyncWorker(
                     appContext,
                     workerParameters,
-                    progressSyncQueueDao,
-                    progressApiService,
-                    practiceApiService,
-                    practiceSyncRepository
+                    syncEngine
+                );
+            } else if (workerClassName.equals(PracticeAttemptRetentionWorker.class.getName())) {
+                return new PracticeAttemptRetentionWorker(
+                    appContext,
+                    workerParameters,
+                    practiceAttemptDao
                 );
             } else {
                 Timber.d("Using default creation for worker: " + workerClassName);
@@ -0,0 +1,151 @@
+package com.ruege.mobile.data.local.dao
+
+import android.app.Application
+import androidx.room.Room
+import androidx.room.RoomDatabase
+import androidx.sqlite.db.SimpleSQLiteQuery
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.ruege.mobile.data.local.AppDatabase
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.annotation.Config
+import org.robolectric.annotation.SQLiteMode
+import java.util.Collections
+
+/**
+ * EXPLAIN QUERY PLAN для частых запросов DAO. Схему строит Room в памяти из сущностей,
+ * а SQL с параметрами перехватывается через QueryCallback при вызове настоящих методов DAO,
+ * так что проверяется ровно тот запрос, который сгенерировал Room.
+ */
+@RunWith(AndroidJUnit4::class)
+@Config(sdk = [34], application = Application::class)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+class QueryPlanTest {
+
+    private val captured = Collections.synchronizedList(mutableListOf<CapturedQuery>())
+    private lateinit var database: AppDatabase
+
+    @Before
+    fun setUp() {
+        database = Room.inMemoryDatabaseBuilder(ApplicationProvider.getApplicationContext(), AppDatabase::class.java)
+            .allowMainThreadQueries()
+            .setQueryCallback(RoomDatabase.QueryCallback { sql, args -> captured.add(CapturedQuery(sql, args.toList())) }, Runnable::run)
+            .build()
+    }
+
+    @After
+    fun tearDown() {
+        database.close()
+    }
+
+    @Test
+    fun tasksByEgeNumberUseIndex() {
+        val single = captureQuery { database.taskDao().getTasksByEgeNumberSync("5") }
+        assertUsesIndex(single, "index_tasks_ege_number")
+
+        val several = captureQuery { database.taskDao().getTasksByEgeNumbers(listOf("5", "6")) }
+        assertUsesIndex(several, "index_tasks_ege_number")
+    }
+
+    @Test
+    fun taskGroupsAreReadInIndexOrder() {
+        val query = captureQuery { runBlocking { database.contentDao().taskGroupsWithDownloadStatus.first() } }
+        assertUsesIndex(query, "index_contents_type_order_position")
+        assertNoSort(query)
+    }
+
+    @Test
+    fun statisticsTabsUseKindIndices() {
+        val dao = database.practiceStatisticsDao()
+
+        val taskTab = captureQuery { runBlocking { dao.taskTabRows.first() } }
+        assertUsesIndex(taskTab, "index_practice_statistics_kind_task_number")
+        assertNoSort(taskTab)
+
+        val essayTab = captureQuery { runBlocking { dao.essayTabRows.first() } }
+        assertUsesIndex(essayTab, "index_practice_statistics_kind_last_attempt_date")
+        assertNoSort(essayTab)
+
+        val variantTab = captureQuery { runBlocking { dao.variantTabRows.first() } }
+        assertUsesIndex(variantTab, "index_practice_statistics_kind_last_attempt_date")
+        assertUsesIndex(variantTab, "sqlite_autoindex_variant_task_results_1")
+        assertNoSort(variantTab)
+    }
+
+    @Test
+    fun syncQueueLookupsUseIndices() {
+        val dao = database.progressSyncQueueDao()
+
+        val pending = captureQuery { dao.getItemsByStatusSync("PENDING", 50) }
+        assertUsesIndex(pending, "index_progress_and_static_sync_queue_sync_status_timestamp")
+        assertNoSort(pending)
+
+        val byItem = captureQuery { dao.getItemByItemId("task_group_5") }
+        assertUsesIndex(byItem, "index_progress_and_static_sync_queue_item_id")
+    }
+
+    @Test
+    fun attemptHistoryPagesAvoidSorting() {
+        val dao = database.practiceAttemptDao()
+
+        val firstPage = captureQuery { dao.getAttemptHistoryFirstPage(30) }
+        assertUsesIndex(firstPage, "index_practice_attempts_attempt_date")
+        assertNoSort(firstPage)
+
+        val nextPage = captureQuery { dao.getAttemptHistoryPageBefore(1_700_000_000_000, 100, 30) }
+        assertUsesIndex(nextPage, "index_practice_attempts_attempt_date")
+        // Сравнение строк значений дает поиск по диапазону индекса, а не полный обход
+        assertUsesIndex(nextPage, "attempt_date<?")
+        assertNoSort(nextPage)
+    }
+
+    /**
+     * Выполняет вызов DAO и возвращает единственный SELECT, который он отправил в SQLite.
+     * Служебные запросы InvalidationTracker не учитываются.
+     */
+    private fun captureQuery(call: () -> Unit): CapturedQuery {
+        captured.clear()
+        call()
+        val selects = synchronized(captured) {
+            captured.filter {
+                it.sql.trimStart().startsWith("SELECT", ignoreCase = true) &&
+                    !it.sql.contains("room_table_modification_log")
+            }
+        }
+        assertEquals("Ожидался один запрос DAO: $selects", 1, selects.size)
+        return selects.single()
+    }
+
+    private fun assertUsesIndex(query: CapturedQuery, index: String) {
+        val plan = explain(query)
+        assertTrue("Ожидался индекс $index в плане ${query.sql}:\n$plan", plan.contains(index))
+    }
+
+    private fun assertNoSort(query: CapturedQuery) {
+        val plan = explain(query)
+        assertFalse("Лишняя сортировка в плане ${query.sql}:\n$plan", plan.contains("USE TEMP B-TREE"))
+    }
+
+    private fun explain(query: CapturedQuery): String {
+        val plan = StringBuilder()
+        database.openHelper.readableDatabase
+            .query(SimpleSQLiteQuery("EXPLAIN QUERY PLAN " + query.sql, query.args.toTypedArray()))
+            .use { cursor ->
+                val detail = cursor.getColumnIndexOrThrow("detail")
+                while (cursor.moveToNext()) {
+                    plan.append(cursor.getString(detail)).append('\n')
+                }
+            }
+        return plan.toString()
+    }
+
+    private data class CapturedQuery(val sql: String, val args: List<Any?>)
+}
@@ -0,0 +1,150 @@
+package com.ruege.mobile.data.local.migration;
+
+import android.app.Application;
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.room.migration.Migration;
+import androidx.room.testing.MigrationTestHelper;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.ruege.mobile.data.local.AppDatabase;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Проверяет миграции AppDatabase по экспортированным схемам из app/schemas:
+ * каждый шаг отдельно и всю цепочку 25 -> последняя версия с переносом данных.
+ * Выполняется на JVM под Robolectric с нативным SQLite; схемы попадают в assets
+ * debug-сборки (см. app/build.gradle.kts), промежуточные версии выгружает
+ * scripts/export-room-schemas.sh.
+ */
+@RunWith(AndroidJUnit4.class)
+@Config(sdk = 34, application = Application.class)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class DatabaseMigrationsTest {
+
+    private static final String TEST_DB = "migration-test";
+    private static final int FIRST_MIGRATABLE_VERSION = 25;
+    private static final int LATEST_VERSION = 36;
+
+    @Rule
+    public MigrationTestHelper helper = new MigrationTestHelper(
+        InstrumentationRegistry.getInstrumentation(),
+        AppDatabase.class
+    );
+
+    @Before
+    public void setUp() {
+        targetContext().deleteDatabase(TEST_DB);
+    }
+
+    @Test
+    public void everyStepMatchesExportedSchema() throws Exception {
+        for (Migration migration : DatabaseMigrations.ALL) {
+            assumeTrue("Нет схемы версии " + migration.startVersion + ", запустите scripts/export-room-schemas.sh",
+                hasSchema(migration.startVersion));
+            assumeTrue("Нет схемы версии " + migration.endVersion + ", запустите scripts/export-room-schemas.sh",
+                hasSchema(migration.endVersion));
+            targetContext().deleteDatabase(TEST_DB);
+            helper.createDatabase(TEST_DB, migration.startVersion).close();
+            helper.runMigrationsAndValidate(TEST_DB, migration.endVersion, true, migration).close();
+        }
+    }
+
+    @Test
+    public void migrationsCoverEveryVersionUpToLatest() {
+        int expectedStart = FIRST_MIGRATABLE_VERSION;
+        for (Migration migration : DatabaseMigrations.ALL) {
+            assertEquals(expectedStart, migration.startVersion);
+            assertEquals(expectedStart + 1, migration.endVersion);
+            expectedStart = migration.endVersion;
+        }
+        assertEquals(LATEST_VERSION, expectedStart);
+    }
+
+    @Test
+    public void fullChainMovesDataIntoNewTables() throws Exception {
+        SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, FIRST_MIGRATABLE_VERSION);
+        db.execSQL("INSERT INTO progress (content_id, percentage, last_accessed, completed, title, description, user_id, solved_task_ids) " +
+            "VALUES ('task_group_5', 50, 1700000000000, 0, NULL, NULL, 1, '[\"101\",\"102\"]')");
+        db.execSQL("INSERT INTO progress (content_id, percentage, last_accessed, completed, title, description, user_id, solved_task_ids) " +
+            "VALUES ('task_group_6', 0, 1700000000000, 0, NULL, NULL, 1, '[]')");
+        db.execSQL("INSERT INTO practice_statistics (ege_number, total_attempts, correct_attempts, last_attempt_date, variant_data) " +
+            "VALUES ('7', 3, 2, 1700000000000, NULL)");
+        db.execSQL("INSERT INTO practice_statistics (ege_number, total_attempts, correct_attempts, last_attempt_date, variant_data) " +
+            "VALUES ('essay:12', 1, 1, 1700000000000, NULL)");
+        db.execSQL("INSERT INTO practice_statistics (ege_number, total_attempts, correct_attempts, last_attempt_date, variant_data) " +
+            "VALUES ('Вариант_1700000000000', 2, 1, 1700000000000, " +
+            "'[{\"task_id\":\"11\",\"ответ\":\"а\",\"верный ответ\":\"а\",\"статус\":true}," +
+            "{\"task_id\":\"12\",\"ответ\":\"б\",\"верный ответ\":\"в\",\"статус\":false}]')");
+        db.execSQL("INSERT INTO tasks (id, fipi_id, ege_number, task_text, solution, explanation, source, text_id, task_type) " +
+            "VALUES (1, NULL, '5', NULL, NULL, NULL, NULL, NULL, 'test')");
+        db.execSQL("INSERT INTO tasks (id, fipi_id, ege_number, task_text, solution, explanation, source, text_id, task_type) " +
+            "VALUES (2, NULL, '5', NULL, NULL, NULL, NULL, NULL, 'test')");
+        db.close();
+
+        db = helper.runMigrationsAndValidate(TEST_DB, LATEST_VERSION, true, DatabaseMigrations.ALL);
+
+        assertEquals(2, count(db, "SELECT COUNT(*) FROM progress_solved_tasks WHERE content_id = 'task_group_5'"));
+        assertEquals(0, count(db, "SELECT COUNT(*) FROM progress_solved_tasks WHERE content_id = 'task_group_6'"));
+
+        assertEquals(1, count(db, "SELECT COUNT(*) FROM practice_statistics WHERE kind = 'task' AND task_number = 7"));
+        assertEquals(1, count(db, "SELECT COUNT(*) FROM practice_statistics WHERE kind = 'essay' AND ege_number = 'essay:12'"));
+        assertEquals(1, count(db, "SELECT COUNT(*) FROM practice_statistics WHERE kind = 'variant' AND task_number IS NULL"));
+
+        assertEquals(2, count(db, "SELECT COUNT(*) FROM variant_task_results WHERE ege_number = 'Вариант_1700000000000'"));
+        assertEquals(1, count(db, "SELECT is_correct FROM variant_task_results WHERE ege_number = 'Вариант_1700000000000' AND position = 0"));
+        assertEquals(0, count(db, "SELECT is_correct FROM variant_task_results WHERE ege_number = 'Вариант_1700000000000' AND position = 1"));
+
+        assertEquals(2, count(db, "SELECT task_count FROM downloaded_groups WHERE ege_number = '5'"));
+        db.close();
+
+        // Room должен открыть мигрированную базу без fallback на пересоздание
+        AppDatabase appDatabase = Room.databaseBuilder(targetContext(), AppDatabase.class, TEST_DB)
+            .addMigrations(DatabaseMigrations.ALL)
+            .build();
+        try {
+            SupportSQLiteDatabase opened = appDatabase.getOpenHelper().getWritableDatabase();
+            assertEquals(LATEST_VERSION, opened.getVersion());
+            assertTrue(count(opened, "SELECT COUNT(*) FROM progress_solved_tasks") > 0);
+        } finally {
+            appDatabase.close();
+        }
+    }
+
+    private static long count(SupportSQLiteDatabase db, String sql) {
+        try (Cursor cursor = db.query(sql)) {
+            assertTrue(cursor.moveToFirst());
+            return cursor.getLong(0);
+        }
+    }
+
+    private static boolean hasSchema(int version) {
+        String path = AppDatabase.class.getCanonicalName() + "/" + version + ".json";
+        try (InputStream ignored = InstrumentationRegistry.getInstrumentation().getContext().getAssets().open(path)) {
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static Context targetContext() {
+        return InstrumentationRegistry.getInstrumentation().getTargetContext();
+    }
+}
@@ -0,0 +1,129 @@
+package com.ruege.mobile.data.repository
+
+import com.ruege.mobile.data.local.dao.CachedContentDao
+import com.ruege.mobile.data.local.entity.CachedContentEntity
+import com.ruege.mobile.data.network.RequestCoalescer
+import kotlinx.coroutines.runBlocking
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertSame
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class ContentStoreTest {
+
+    private val dao = FakeCachedContentDao()
+
+    @Test
+    fun notModifiedKeepsStoredEntryAndRefreshesFetchTime() {
+        val staleFetchedAt = System.currentTimeMillis() - ContentStore.FRESH_FOR_MS - 1
+        val stale = entry(fetchedAt = staleFetchedAt)
+        dao.insert(stale)
+        val sentEtags = mutableListOf<String?>()
+        val refreshed = mutableListOf<CachedContentEntity>()
+
+        val result = runBlocking {
+            val store = ContentStore(dao, this, RequestCoalescer(this))
+            store.read(KIND, ID, onRefreshed = { refreshed.add(it) }) { etag ->
+                sentEtags.add(etag)
+                ContentFetchResult.NotModified
+            }
+        }
+
+        assertSame(stale, result)
+        assertEquals(listOf<String?>(ETAG), sentEtags)
+        assertTrue(refreshed.isEmpty())
+        assertEquals(1, dao.revalidated.size)
+        assertTrue(dao.get(KIND, ID)!!.fetchedAt > staleFetchedAt)
+        // Тело не перезаписывалось: единственная вставка - подготовка теста
+        assertEquals(1, dao.inserts)
+    }
+
+    @Test
+    fun freshEntryIsServedWithoutNetwork() {
+        dao.insert(entry(fetchedAt = System.currentTimeMillis()))
+        var fetches = 0
+
+        runBlocking {
+            val store = ContentStore(dao, this, RequestCoalescer(this))
+            store.read(KIND, ID) {
+                fetches++
+                ContentFetchResult.Failed
+            }
+        }
+
+        assertEquals(0, fetches)
+        assertTrue(dao.revalidated.isEmpty())
+    }
+
+    @Test
+    fun changedVersionReplacesEntryAndNotifies() {
+        dao.insert(entry(fetchedAt = System.currentTimeMillis() - ContentStore.FRESH_FOR_MS - 1))
+        val updated = entry(fetchedAt = System.currentTimeMillis(), body = "новое тело", etag = "\"v2\"")
+        val refreshed = mutableListOf<CachedContentEntity>()
+
+        runBlocking {
+            val store = ContentStore(dao, this, RequestCoalescer(this))
+            store.read(KIND, ID, onRefreshed = { refreshed.add(it) }) { ContentFetchResult.Loaded(updated) }
+        }
+
+        assertEquals(listOf(updated), refreshed)
+        assertEquals("новое тело", dao.get(KIND, ID)!!.body)
+        assertTrue(dao.revalidated.isEmpty())
+    }
+
+    @Test
+    fun missingEntryWithoutNetworkReturnsNull() {
+        val result = runBlocking {
+            val store = ContentStore(dao, this, RequestCoalescer(this))
+            store.read(KIND, ID) { ContentFetchResult.Failed }
+        }
+
+        assertNull(result)
+    }
+
+    private fun entry(fetchedAt: Long, body: String = "тело", etag: String = ETAG) =
+        CachedContentEntity(KIND, ID, 1, 1, "заголовок", body, "2024-01-01", "2024-01-01", etag, fetchedAt)
+
+    private class FakeCachedContentDao : CachedContentDao {
+        val rows = mutableMapOf<Pair<String, String>, CachedContentEntity>()
+        val revalidated = mutableListOf<Pair<String, String>>()
+        var inserts = 0
+
+        override fun insert(content: CachedContentEntity) {
+            inserts++
+            rows[content.kind to content.contentId] = content
+        }
+
+        override fun get(kind: String, contentId: String): CachedContentEntity? = rows[kind to contentId]
+
+        override fun touch(kind: String, contentId: String, accessedAt: Long) {
+            rows[kind to contentId]?.lastAccessedAt = accessedAt
+        }
+
+        override fun markRevalidated(kind: String, contentId: String, fetchedAt: Long) {
+            revalidated.add(kind to contentId)
+            rows[kind to contentId]?.fetchedAt = fetchedAt
+        }
+
+        override fun getEvictionCandidates(): List<CachedContentDao.EvictionCandidate> = emptyList()
+
+        override fun delete(kind: String, contentId: String) {
+            rows.remove(kind to contentId)
+        }
+
+        override fun deleteByKind(kind: String) {
+            rows.keys.removeAll { it.first == kind }
+        }
+
+        override fun deleteAll() {
+            rows.clear()
+        }
+    }
+
+    private companion object {
+        const val KIND = CachedContentEntity.KIND_THEORY
+        const val ID = "theory_1"
+        const val ETAG = "\"v1\""
+    }
+}
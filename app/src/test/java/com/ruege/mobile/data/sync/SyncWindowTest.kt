@@ -0,0 +1,81 @@
+package com.ruege.mobile.data.sync
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class SyncWindowTest {
+
+    private var now = 1_000L
+    private val config = SyncWindowConfig(
+        maxItems = 5,
+        maxDelayMs = 60_000L,
+        urgentDelayMs = 10_000L,
+        meteredFactor = 4,
+        lowBatteryFactor = 2
+    )
+    private val window = SyncWindow(config) { now }
+
+    @Test
+    fun firstItemOpensWindowWithMaxDelay() {
+        assertEquals(SyncDecision.FlushLater(60_000L, reschedule = true), window.record(1, SyncConditions()))
+    }
+
+    @Test
+    fun laterItemsInSameWindowDoNotReschedule() {
+        window.record(1, SyncConditions())
+        now += 20_000L
+        assertEquals(SyncDecision.FlushLater(40_000L, reschedule = false), window.record(1, SyncConditions()))
+    }
+
+    @Test
+    fun flushesWhenItemLimitReached() {
+        repeat(4) { window.record(1, SyncConditions()) }
+        assertEquals(SyncDecision.FlushNow, window.record(1, SyncConditions()))
+        // После отправки открывается новое окно
+        assertEquals(SyncDecision.FlushLater(60_000L, reschedule = true), window.record(1, SyncConditions()))
+    }
+
+    @Test
+    fun meteredNetworkStretchesDelayAndItemLimit() {
+        val metered = SyncConditions(isMetered = true)
+        assertEquals(SyncDecision.FlushLater(240_000L, reschedule = true), window.record(5, metered))
+        assertEquals(SyncDecision.FlushNow, window.record(15, metered))
+    }
+
+    @Test
+    fun meteredAndLowBatteryFactorsMultiply() {
+        val decision = window.record(1, SyncConditions(isMetered = true, isBatteryLow = true))
+        assertEquals(SyncDecision.FlushLater(480_000L, reschedule = true), decision)
+    }
+
+    @Test
+    fun urgentItemShortensOpenWindow() {
+        window.record(1, SyncConditions())
+        now += 5_000L
+        assertEquals(SyncDecision.FlushLater(10_000L, reschedule = true), window.record(1, SyncConditions(), urgent = true))
+    }
+
+    @Test
+    fun urgentItemKeepsEarlierDeadline() {
+        window.record(1, SyncConditions())
+        now += 55_000L
+        assertEquals(SyncDecision.FlushLater(5_000L, reschedule = false), window.record(1, SyncConditions(), urgent = true))
+    }
+
+    @Test
+    fun expiredWindowStartsAgainWithoutOldItems() {
+        repeat(4) { window.record(1, SyncConditions()) }
+        now += 60_000L
+        val decision = window.record(1, SyncConditions())
+        assertEquals(SyncDecision.FlushLater(60_000L, reschedule = true), decision)
+        repeat(3) { assertTrue(window.record(1, SyncConditions()) is SyncDecision.FlushLater) }
+    }
+
+    @Test
+    fun resetClosesWindow() {
+        repeat(4) { window.record(1, SyncConditions()) }
+        window.reset()
+        assertEquals(SyncDecision.FlushLater(60_000L, reschedule = true), window.record(1, SyncConditions()))
+    }
+}
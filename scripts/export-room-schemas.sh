@@ -0,0 +1,41 @@
+#!/usr/bin/env bash
+# Экспортирует схемы Room (app/schemas/<AppDatabase>/N.json) для версий базы, которых
+# еще нет в репозитории. Для каждой версии берется последний коммит, где AppDatabase
+# имеет эту версию, он собирается в отдельном worktree (room.schemaLocation уже задан
+# в app/build.gradle.kts), и сгенерированный Room файл копируется в текущее дерево.
+#
+# Использование: scripts/export-room-schemas.sh [--force]
+#   --force  перегенерировать и уже существующие файлы схем
+set -euo pipefail
+
+ROOT=$(git rev-parse --show-toplevel)
+DB_FILE=app/src/main/java/com/ruege/mobile/data/local/AppDatabase.java
+SCHEMA_DIR=app/schemas/com.ruege.mobile.data.local.AppDatabase
+FORCE=${1:-}
+
+cd "$ROOT"
+
+declare -A LAST_COMMIT
+for commit in $(git rev-list --reverse HEAD); do
+    version=$(git show "$commit:$DB_FILE" 2>/dev/null | grep -o 'version = [0-9]*' | grep -o '[0-9]*' || true)
+    if [[ -n "$version" ]]; then
+        LAST_COMMIT[$version]=$commit
+    fi
+done
+
+for version in $(printf '%s\n' "${!LAST_COMMIT[@]}" | sort -n); do
+    target="$SCHEMA_DIR/$version.json"
+    if [[ -f "$target" && "$FORCE" != "--force" ]]; then
+        continue
+    fi
+    commit=${LAST_COMMIT[$version]}
+    worktree=$(mktemp -d)
+    echo "Версия $version: сборка ${commit:0:7}"
+    git worktree add --detach "$worktree" "$commit" >/dev/null
+    if [[ -f local.properties ]]; then
+        cp local.properties "$worktree/"
+    fi
+    (cd "$worktree" && ./gradlew -q :app:kspDebugKotlin)
+    cp "$worktree/$target" "$target"
+    git worktree remove --force "$worktree"
+done